@@ -0,0 +1,45 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+
+import java.util.Random;
+
+/**
+ * Surfaces shared by the benchmarks, sized from a "WIDTHxHEIGHT" parameter.
+ */
+final class BenchmarkSurfaces {
+
+  private BenchmarkSurfaces() {
+  }
+
+  static int width(String resolution) {
+    return Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+  }
+
+  static int height(String resolution) {
+    return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+  }
+
+  /**
+   * Creates a fire surface (with its extra seed row) filled with random intensities, seeded for repeatable runs.
+   */
+  static FixedIntSurface randomFire(String resolution) {
+    int width = width(resolution);
+    int height = height(resolution);
+    Random random = new Random(42);
+    int[] data = new int[width * (height + 1)];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextInt(FixedIntSurface.SCALING * 256);
+    }
+    return new FixedIntSurface(data, width, height);
+  }
+
+  /**
+   * Creates an empty fire surface (with its extra seed row).
+   */
+  static FixedIntSurface emptyFire(String resolution) {
+    int width = width(resolution);
+    int height = height(resolution);
+    return new FixedIntSurface(new int[width * (height + 1)], width, height);
+  }
+}
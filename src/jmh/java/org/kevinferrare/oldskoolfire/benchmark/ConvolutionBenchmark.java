@@ -0,0 +1,72 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import org.kevinferrare.oldskoolfire.drawable.ConvolutionStrategy;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.ScalarConvolutionStrategy;
+import org.kevinferrare.oldskoolfire.drawable.TornadoConvolutionStrategy;
+import org.kevinferrare.oldskoolfire.drawable.VectorConvolutionStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Convolution throughput of every {@link ConvolutionStrategy}, one full frame per operation.
+ * <p>
+ * The GPU strategy needs the TornadoVM runtime: without it its setup fails and JMH moves on to the next
+ * parameters. Exclude it with {@code -p strategy=Scalar,SIMD} to keep the output clean.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ConvolutionBenchmark {
+
+  /**
+   * Each pixel reads its source once and writes its destination once.
+   */
+  static final int BYTES_PER_PIXEL = 2 * Integer.BYTES;
+
+  @Param({"Scalar", "SIMD", "GPU"})
+  public String strategy;
+
+  @Param({"1280x720", "1920x1080", "2560x1440", "3840x2160"})
+  public String resolution;
+
+  @Param({"3", "12", "40"})
+  public int cooling;
+
+  private ConvolveAndRiseEffect effect;
+  private FixedIntSurface source;
+  private FixedIntSurface destination;
+  private int pixelsPerFrame;
+
+  @Setup
+  public void setUp() {
+    ConvolutionStrategy convolutionStrategy = switch (strategy) {
+      case "Scalar" -> new ScalarConvolutionStrategy();
+      case "SIMD" -> new VectorConvolutionStrategy();
+      case "GPU" -> new TornadoConvolutionStrategy();
+      default -> throw new IllegalArgumentException("Unknown strategy: " + strategy);
+    };
+    effect = new ConvolveAndRiseEffect(cooling, convolutionStrategy);
+    source = BenchmarkSurfaces.randomFire(resolution);
+    destination = BenchmarkSurfaces.emptyFire(resolution);
+    pixelsPerFrame = effect.rows(source) * source.width();
+  }
+
+  @Benchmark
+  public int[] convolve(Throughput throughput) {
+    effect.draw(source, destination);
+    throughput.add(pixelsPerFrame, BYTES_PER_PIXEL);
+    return destination.data();
+  }
+}
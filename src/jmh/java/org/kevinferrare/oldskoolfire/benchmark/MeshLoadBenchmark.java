@@ -0,0 +1,72 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import org.kevinferrare.oldskoolfire.drawable.threed.Mesh;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.MeshNormalizer;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.ObjLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse each bundled OBJ file with {@link ObjLoader#loadResource} and to normalize it with
+ * {@link MeshNormalizer#normalize}, separately and combined (what a shape switch costs).
+ * Run {@link #main} (or pass {@code -prof gc}) to also get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MeshLoadBenchmark {
+
+  @Param({"dragon", "plane", "teapot", "teaspoon", "teacup"})
+  public String mesh;
+
+  private final ObjLoader objLoader = new ObjLoader();
+  private final MeshNormalizer normalizer = new MeshNormalizer();
+  private String resourcePath;
+  private Mesh loaded;
+
+  @Setup
+  public void setUp() {
+    resourcePath = "/meshes/" + mesh + ".obj";
+    loaded = objLoader.loadResource(resourcePath);
+  }
+
+  @Benchmark
+  public Mesh loadResource() {
+    return objLoader.loadResource(resourcePath);
+  }
+
+  @Benchmark
+  public Mesh normalize() {
+    return normalizer.normalize(loaded);
+  }
+
+  @Benchmark
+  public Mesh loadAndNormalize() {
+    return normalizer.normalize(objLoader.loadResource(resourcePath));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(MeshLoadBenchmark.class.getSimpleName())
+      .addProfiler(GCProfiler.class)
+      .build()).run();
+  }
+}
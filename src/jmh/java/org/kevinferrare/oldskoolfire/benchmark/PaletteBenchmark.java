@@ -0,0 +1,52 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.palette.PaletteFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link Palette#apply}, converting one full frame of intensities to RGB per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PaletteBenchmark {
+
+  /**
+   * Each pixel reads its intensity once and writes its color once, the lookup table stays in cache.
+   */
+  private static final int BYTES_PER_PIXEL = 2 * Integer.BYTES;
+
+  @Param({"1280x720", "1920x1080", "2560x1440", "3840x2160"})
+  public String resolution;
+
+  private Palette palette;
+  private FixedIntSurface source;
+  private int[] destination;
+
+  @Setup
+  public void setUp() {
+    palette = PaletteFactory.createFire();
+    source = BenchmarkSurfaces.randomFire(resolution);
+    destination = new int[source.width() * source.height()];
+  }
+
+  @Benchmark
+  public int[] apply(Throughput throughput) {
+    palette.apply(source, destination);
+    throughput.add(destination.length, BYTES_PER_PIXEL);
+    return destination;
+  }
+}
@@ -0,0 +1,83 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.LineRasterizer;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3DFactory;
+import org.kevinferrare.oldskoolfire.drawable.threed.Graphics3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.ShapeSource;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projection and rasterization of each built-in shape with {@link Graphics3D#drawMesh} and a {@link LineRasterizer},
+ * one full shape per operation.
+ * <p>
+ * The scale is relative to the smallest surface dimension, 1.2 being the size the application starts with.
+ * Run {@link #main} (or pass {@code -prof gc}) to also get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ShapeDrawBenchmark {
+
+  @Param({"cube", "dragon", "plane", "teapot", "teaspoon", "teacup", "pyramid", "torus", "sphere", "octahedron",
+    "icosahedron", "trefoil-knot", "mobius-strip", "helix", "lissajous", "star"})
+  public String shape;
+
+  @Param({"0.5", "1.2", "3.0"})
+  public double scale;
+
+  @Param({"1920x1080"})
+  public String resolution;
+
+  private Graphics3D graphics3D;
+  private LineRasterizer rasterizer;
+  private Entity3D entity;
+
+  @Setup
+  public void setUp() {
+    FixedIntSurface surface = BenchmarkSurfaces.emptyFire(resolution);
+    graphics3D = new Graphics3D(surface.width(), surface.height());
+    rasterizer = new LineRasterizer(surface);
+    ShapeSource source = ShapeSource.builtIns().stream()
+      .filter(s -> s.name().equals(shape))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("Unknown shape: " + shape));
+    entity = new Entity3DFactory(RandomStreams.UNSEEDED).createScaled(shape, source.load(),
+      Math.min(surface.width(), surface.height()) * scale);
+    // A pose showing all three axes, not an edge-on view
+    entity.transform().rotate(0.5, 0.3);
+  }
+
+  @Benchmark
+  public void drawMesh() {
+    graphics3D.drawMesh(rasterizer, entity.mesh(), entity.transform(), entity.material().getPixelSource());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(ShapeDrawBenchmark.class.getSimpleName())
+      .addProfiler(GCProfiler.class)
+      .build()).run();
+  }
+}
@@ -0,0 +1,39 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results reported next to the ops/s score: pixels processed per second and bytes moved per second
+ * (divide by 1e9 for GB/s).
+ * <p>
+ * Bytes are the effective memory traffic of a kernel: every source pixel read once and every destination pixel
+ * written once. Neighbour reads hitting the cache are not counted.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+  public long pixels;
+  public long bytes;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    pixels = 0;
+    bytes = 0;
+  }
+
+  /**
+   * Accounts for one kernel invocation.
+   *
+   * @param pixelCount    pixels written
+   * @param bytesPerPixel bytes read and written per pixel
+   */
+  void add(long pixelCount, int bytesPerPixel) {
+    pixels += pixelCount;
+    bytes += pixelCount * bytesPerPixel;
+  }
+}
@@ -0,0 +1,65 @@
+package org.kevinferrare.oldskoolfire.benchmark;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.VectorConvolutionStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SIMD convolution throughput for each vector width. Widths larger than the hardware supports still run,
+ * emulated, which shows why the preferred species is the default.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorSpeciesBenchmark {
+
+  /**
+   * Vector size in bits, or "preferred" for the platform's preferred species.
+   */
+  @Param({"preferred", "64", "128", "256", "512"})
+  public String species;
+
+  @Param({"1280x720", "1920x1080", "2560x1440", "3840x2160"})
+  public String resolution;
+
+  @Param({"12"})
+  public int cooling;
+
+  private ConvolveAndRiseEffect effect;
+  private FixedIntSurface source;
+  private FixedIntSurface destination;
+  private int pixelsPerFrame;
+
+  @Setup
+  public void setUp() {
+    VectorSpecies<Integer> vectorSpecies = "preferred".equals(species)
+      ? IntVector.SPECIES_PREFERRED
+      : VectorSpecies.of(int.class, VectorShape.forBitSize(Integer.parseInt(species)));
+    effect = new ConvolveAndRiseEffect(cooling, new VectorConvolutionStrategy(vectorSpecies));
+    source = BenchmarkSurfaces.randomFire(resolution);
+    destination = BenchmarkSurfaces.emptyFire(resolution);
+    pixelsPerFrame = effect.rows(source) * source.width();
+  }
+
+  @Benchmark
+  public int[] convolve(Throughput throughput) {
+    effect.draw(source, destination);
+    throughput.add(pixelsPerFrame, ConvolutionBenchmark.BYTES_PER_PIXEL);
+    return destination.data();
+  }
+}
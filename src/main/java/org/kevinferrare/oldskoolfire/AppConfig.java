@@ -1,11 +1,19 @@
 package org.kevinferrare.oldskoolfire;
 
+import lombok.Builder;
+import org.kevinferrare.oldskoolfire.broadcast.FrameBroadcaster;
+import org.kevinferrare.oldskoolfire.export.FrameExporter;
+
 import java.nio.file.Path;
 import java.util.List;
 
 /**
  * Application configuration populated from command line arguments.
+ * <p>
+ * Built by name rather than by position: {@link #defaults()} for a new configuration, {@link #toBuilder()} to derive
+ * one from another, so that a field added later keeps its default or its value instead of shifting the others.
  */
+@Builder(toBuilder = true)
 public record AppConfig(
   // Display settings
   int width,
@@ -19,6 +27,7 @@ public record AppConfig(
 
   // External mesh loading
   List<Path> meshFiles,
+  int shapeCacheMb,
 
   // Animation settings
   boolean autoRotate,
@@ -32,6 +41,48 @@ public record AppConfig(
   // Performance settings
   boolean gpu,
   boolean noVectorApi,
+  int threads,
+
+  // Deterministic mode
+  Long seed,
+  Path recordInput,
+  Path replayInput,
+
+  // Monitoring
+  int metricsPort,
+  double spikeBudgetMs,
+  Path spikeDir,
+  boolean spikeJfr,
+
+  // Frame export
+  Path exportPath,
+  String exportFormat,
+  String exportPolicy,
+  int exportFps,
+
+  // Fire recording
+  Path recordFire,
+  Path playFire,
+
+  // Frame broadcast
+  int broadcastPort,
+  int broadcastFps,
+
+  // Shared framebuffer
+  Path sharedFrame,
+  String sharedFrameContent,
+
+  // Tile wall
+  String wall,
+  List<String> wallTiles,
+
+  // Distributed bands
+  int bands,
+
+  // Warm start
+  Path snapshot,
+  int preroll,
+  int jitWarmupMs,
 
   // Renderer settings
   boolean wireframe
@@ -44,4 +95,31 @@ public record AppConfig(
   public static final String DEFAULT_SHAPE = "cube";
   public static final int DEFAULT_COOLING = 12;
   public static final int DEFAULT_SWITCH_INTERVAL = 3000;
+  public static final int DEFAULT_SHAPE_CACHE_MB = 256;
+  public static final String DEFAULT_SPIKE_DIR = "spikes";
+  public static final int DEFAULT_JIT_WARMUP_MS = 5000;
+
+  /**
+   * Returns a builder holding the command line defaults: the default window and scene, with every output,
+   * recording and optional mode disabled.
+   */
+  public static AppConfigBuilder defaults() {
+    return builder()
+      .width(DEFAULT_WIDTH)
+      .height(DEFAULT_HEIGHT)
+      .palette(DEFAULT_PALETTE)
+      .shape(DEFAULT_SHAPE)
+      .cooling(DEFAULT_COOLING)
+      .meshFiles(List.of())
+      .shapeCacheMb(DEFAULT_SHAPE_CACHE_MB)
+      .autoRotate(true)
+      .switchInterval(DEFAULT_SWITCH_INTERVAL)
+      .spikeDir(Path.of(DEFAULT_SPIKE_DIR))
+      .exportPolicy("drop")
+      .exportFps(FrameExporter.DEFAULT_FPS)
+      .broadcastFps(FrameBroadcaster.DEFAULT_FPS)
+      .sharedFrameContent("rgb")
+      .wallTiles(List.of())
+      .jitWarmupMs(DEFAULT_JIT_WARMUP_MS);
+  }
 }
@@ -1,5 +1,7 @@
 package org.kevinferrare.oldskoolfire;
 
+import org.kevinferrare.oldskoolfire.util.Stage;
+
 import java.awt.*;
 import java.awt.event.*;
 
@@ -16,7 +18,6 @@ public class AppFrame extends Frame {
 
   public AppFrame(AppConfig config) {
     this.controller = new SceneController();
-    this.inputHandler = new InputHandler(controller, this::exit);
 
     setLocationRelativeTo(null);
     setSize(config.width(), config.height());
@@ -26,6 +27,9 @@ public class AppFrame extends Frame {
       setUndecorated(true);
     }
 
+    controller.init(this.getWidth(), this.getHeight(), config);
+    this.inputHandler = new InputHandler(controller.getEngine(), this::exit);
+
     initWindowCloseHandling();
     initWindowResizeHandling();
     initMouseWheelHandling();
@@ -33,8 +37,6 @@ public class AppFrame extends Frame {
     initMouseDragHandling();
     initKeyboardHandling();
 
-    controller.init(this.getWidth(), this.getHeight(), config);
-
     // Start application with callbacks for rendering and stats updates
     int refreshRate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
     if (refreshRate <= 0) {
@@ -118,6 +120,9 @@ public class AppFrame extends Frame {
 
   @Override
   public void update(Graphics g) {
+    PerformanceMonitor monitor = controller.getPerformanceMonitor();
+    long start = monitor.beginStage(Stage.BLIT);
     g.drawImage(controller.getBufferedImage(), 0, 0, this.getWidth(), this.getHeight(), null);
+    monitor.recordStage(Stage.BLIT, start);
   }
 }
@@ -0,0 +1,113 @@
+package org.kevinferrare.oldskoolfire;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer/single-consumer queue handing {@link SceneCommand}s from the UI thread to the simulation thread.
+ * Both sides are wait-free and allocation-free: commands and their arguments live in preallocated rings,
+ * the producer publishes a slot by advancing the tail, the consumer frees it by advancing the head.
+ * <p>
+ * Mouse-drag rotations are not queued but accumulated, so a burst of drag events between two ticks
+ * is applied as a single rotation.
+ * <p>
+ * <b>Thread safety:</b> {@link #offer} and {@link #addRotation} must only be called from one thread
+ * (the AWT event thread), {@link #drain} and {@link #takeRotation} from another (the simulation thread).
+ */
+public class CommandQueue {
+
+  /**
+   * Receives drained commands, avoids boxing the argument.
+   */
+  @FunctionalInterface
+  public interface Handler {
+    void apply(SceneCommand command, double argument);
+  }
+
+  private static final int CAPACITY = 256; // power of 2
+  private static final int MASK = CAPACITY - 1;
+
+  private final SceneCommand[] commands = new SceneCommand[CAPACITY];
+  private final double[] arguments = new double[CAPACITY];
+  private final AtomicLong head = new AtomicLong(); // next slot to read, only written by the consumer
+  private final AtomicLong tail = new AtomicLong(); // next slot to write, only written by the producer
+  // Accumulated drag deltas, x in the high 32 bits and y in the low 32 bits
+  private final AtomicLong pendingRotation = new AtomicLong();
+
+  /**
+   * Enqueues a command without argument.
+   *
+   * @return false if the queue is full and the command was dropped
+   */
+  public boolean offer(SceneCommand command) {
+    return offer(command, 0.0);
+  }
+
+  /**
+   * Enqueues a command with its argument.
+   *
+   * @return false if the queue is full and the command was dropped
+   */
+  public boolean offer(SceneCommand command, double argument) {
+    long currentTail = tail.get();
+    if (currentTail - head.get() == CAPACITY) {
+      return false;
+    }
+    int slot = (int) currentTail & MASK;
+    commands[slot] = command;
+    arguments[slot] = argument;
+    // Release: the slot content is visible to the consumer before the new tail
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  /**
+   * Applies every queued command, in order, to the given handler.
+   *
+   * @return the number of commands applied
+   */
+  public int drain(Handler handler) {
+    long currentHead = head.get();
+    long currentTail = tail.get();
+    for (long i = currentHead; i < currentTail; i++) {
+      int slot = (int) i & MASK;
+      SceneCommand command = commands[slot];
+      commands[slot] = null;
+      handler.apply(command, arguments[slot]);
+    }
+    head.lazySet(currentTail);
+    return (int) (currentTail - currentHead);
+  }
+
+  /**
+   * Accumulates a mouse-drag delta, coalesced with any delta not yet taken.
+   */
+  public void addRotation(int dx, int dy) {
+    long current;
+    long updated;
+    do {
+      current = pendingRotation.get();
+      updated = packRotation(rotationX(current) + dx, rotationY(current) + dy);
+    } while (!pendingRotation.compareAndSet(current, updated));
+  }
+
+  /**
+   * Takes the accumulated drag delta and resets it.
+   *
+   * @return packed delta, decode with {@link #rotationX(long)} and {@link #rotationY(long)}, 0 if none
+   */
+  public long takeRotation() {
+    return pendingRotation.getAndSet(0);
+  }
+
+  public static int rotationX(long packed) {
+    return (int) (packed >> 32);
+  }
+
+  public static int rotationY(long packed) {
+    return (int) packed;
+  }
+
+  private static long packRotation(int x, int y) {
+    return ((long) x << 32) | (y & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,762 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Transform;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.ShapeSource;
+import org.kevinferrare.oldskoolfire.export.FrameSink;
+import org.kevinferrare.oldskoolfire.jfr.FrameTickEvent;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.palette.PaletteFactory;
+import org.kevinferrare.oldskoolfire.playback.IntensityPlayback;
+import org.kevinferrare.oldskoolfire.renderer.BandSceneRenderer;
+import org.kevinferrare.oldskoolfire.renderer.FireSceneRenderer;
+import org.kevinferrare.oldskoolfire.renderer.PlaybackSceneRenderer;
+import org.kevinferrare.oldskoolfire.renderer.SceneRenderer;
+import org.kevinferrare.oldskoolfire.renderer.WireframeSceneRenderer;
+import org.kevinferrare.oldskoolfire.util.Named;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The fire simulation without any window, thread or AWT dependency: {@link #step} advances it by one tick,
+ * {@link #renderTo} converts the latest frame to RGB pixels.
+ * The {@link SceneController} drives it from its own threads for the window, headless runs drive it directly.
+ * <p>
+ * Scene state is owned by the stepping thread. Commands ({@link #nextPalette()}, {@link #setShape}, ...)
+ * are queued in a lock-free {@link CommandQueue} and applied at the start of the next step, so they may come
+ * from one other thread (the UI) without the simulation ever waiting on a lock. Other threads only see
+ * the immutable {@link SceneState} published when the scene changes.
+ * <p>
+ * With a seed ({@link AppConfig#seed()}) the engine is deterministic: every random stream derives from the seed
+ * through the engine's own {@link RandomStreams}, whatever other engines of the process are seeded with, steps
+ * use {@link #FIXED_DELTA_SEC} whatever the caller passes, scene switches follow simulated time and shape
+ * switches wait for the shape to load. Replaying the recorded input ({@link AppConfig#recordInput()},
+ * {@link AppConfig#replayInput()}) then reproduces a run frame for frame.
+ * <p>
+ * With a spike budget ({@link AppConfig#spikeBudgetMs()}) every tick and frame is also recorded by a
+ * {@link SpikeRecorder}, which dumps the ticks around any that exceeds the budget. Every frame {@link #renderTo}
+ * produces is also handed to the {@link FrameSink}s the configuration asks for, see {@link FrameSinks}.
+ * <p>
+ * With {@link AppConfig#playFire()} a recording of the fire is played by a {@link PlaybackSceneRenderer}, the only
+ * renderer then, instead of simulating the fire. With {@link AppConfig#bands()} the fire is simulated in worker
+ * processes by a {@link BandSceneRenderer}.
+ * <p>
+ * A resize carries the fire over to the new size rather than letting it grow again from black. With
+ * {@link AppConfig#snapshot()} the engine resumes from the {@link FireSnapshot} of that file if there is one, its
+ * scene settings taking precedence over the configuration, and saves a new one there when closed.
+ * <p>
+ * <b>Thread safety:</b> {@link #step} and {@link #resize} from one thread, {@link #renderTo} from one thread
+ * (possibly another one), commands from one thread (possibly the stepping one), {@link #getState()} from any.
+ */
+@Slf4j
+public class FireEngine implements Simulation {
+
+  /**
+   * Radians per second for auto-rotation around X axis (calibrated to ~0.001 rad/tick at 1000 UPS).
+   */
+  private static final double AUTO_ROTATE_X_SPEED = 1.0;
+  /**
+   * Radians per second for auto-rotation around Y axis (calibrated to ~0.002 rad/tick at 1000 UPS).
+   */
+  private static final double AUTO_ROTATE_Y_SPEED = 2.0;
+  /**
+   * Time step of deterministic runs, the rate the rotation speeds are calibrated for.
+   */
+  public static final double FIXED_DELTA_SEC = 0.001;
+  private static final Duration DETERMINISTIC_SHAPE_TIMEOUT = Duration.ofSeconds(30);
+
+  private final int timeBetweenScenes;
+
+  private final Palette[] palettes;
+  private final ShapeLibrary shapes;
+
+  static List<Palette> createBuiltInPalettes() {
+    return new ArrayList<>(List.of(
+      PaletteFactory.createFire(),
+      PaletteFactory.createEvil(),
+      PaletteFactory.createRockbox(),
+      PaletteFactory.createBlueFire(),
+      PaletteFactory.createMatrix(),
+      PaletteFactory.createPurple(),
+      PaletteFactory.createGrayscale()
+    ));
+  }
+
+  // State
+  private int paletteIndex;
+  private int shape3dIndex;
+  private Entity3D displayedShape;
+  private int rendererIndex;
+  private boolean pause;
+  private boolean autoRotate;
+  private Long lastSwitchTime;
+  private long clockNanos;
+  private long tick;
+  private int width;
+  private int height;
+
+  // Components
+  private final SceneRenderer[] renderers;
+  private final FireSceneRenderer fireRenderer;
+  private final ForkJoinPool tickPool;
+  private final boolean ownsTickPool;
+  private final StageTimings timings = new StageTimings();
+  private final CommandQueue commands = new CommandQueue();
+  private final CommandQueue.Handler commandHandler = this::applyCommand;
+  private final boolean deterministic;
+  private final InputRecorder recorder;
+  private final InputScript replay;
+  private final InputScript.Handler replayHandler = this::applyScripted;
+  private final AtomicReference<SceneState> state = new AtomicReference<>();
+  private boolean stateChanged = true;
+  private final SpikeRecorder spikes;       // null unless a spike budget is given
+  private final List<FrameSink> sinks;      // offered frames by the render thread
+  private final IntensityPlayback playback; // null unless a recording is played
+  private final Path snapshotPath;          // null unless snapshots are saved
+  private Transform pendingTransform;       // pose of the snapshot, applied to the shape once loaded
+
+  /**
+   * Creates the engine for frames of the given size. Shapes start loading in the background,
+   * see {@link #awaitShape} to wait for the first one.
+   */
+  public FireEngine(int width, int height, AppConfig config) {
+    this(width, height, config, null);
+  }
+
+  /**
+   * @param tickPool pool running the ticks, left running by {@link #close}; null to use the shared pool, or a
+   *                 pool of its own when {@link AppConfig#threads()} is given
+   */
+  FireEngine(int width, int height, AppConfig config, ForkJoinPool tickPool) {
+    this.deterministic = config.seed() != null;
+    RandomStreams streams = new RandomStreams(config.seed());
+    try {
+      this.replay = config.replayInput() != null ? InputScript.load(config.replayInput()) : null;
+      this.recorder = config.recordInput() != null ? new InputRecorder(config.recordInput()) : null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open input script", e);
+    }
+
+    // Create renderers, ticks run on the shared pool unless a thread count or a pool is given
+    this.ownsTickPool = tickPool == null && config.threads() > 0;
+    if (tickPool != null) {
+      this.tickPool = tickPool;
+    } else {
+      this.tickPool = ownsTickPool ? new ForkJoinPool(config.threads()) : ForkJoinPool.commonPool();
+    }
+    this.fireRenderer = config.bands() > 0
+      ? new BandSceneRenderer(config.bands(), config.gpu(), config.noVectorApi(), config.seed())
+      : new FireSceneRenderer(config.gpu(), config.noVectorApi(), this.tickPool, streams);
+    if (config.playFire() != null) {
+      // The recording replaces the simulation
+      this.playback = openPlayback(config.playFire());
+      this.renderers = new SceneRenderer[]{new PlaybackSceneRenderer(playback)};
+    } else {
+      this.playback = null;
+      this.renderers = new SceneRenderer[]{
+        fireRenderer,
+        new WireframeSceneRenderer()
+      };
+    }
+    for (SceneRenderer renderer : renderers) {
+      renderer.setTimings(timings);
+    }
+
+    // Set initial renderer based on config
+    this.rendererIndex = config.wireframe() && playback == null ? 1 : 0;
+
+    // Build palettes array
+    this.palettes = createBuiltInPalettes().toArray(new Palette[0]);
+
+    // Set initial scale based on frame size
+    // Using 1.2x fills ~80% of screen height, leaving room for rotation
+    double initialScale = Math.min(width, height) * 1.2;
+
+    // Build shapes: built-in + external meshes, loaded in the background
+    List<ShapeSource> shapeList = ShapeSource.builtIns();
+    shapeList.addAll(shapeList.size() - 1, config.meshFiles().stream().map(ShapeSource::fromFile).toList()); // Insert before "none"
+    this.shapes = new ShapeLibrary(shapeList, initialScale, config.shapeCacheMb() * 1024L * 1024L, streams);
+
+    // Apply initial configuration
+    this.paletteIndex = findPaletteIndex(config.palette());
+    this.shape3dIndex = findShapeIndex(playback != null ? "none" : config.shape());
+    this.shapes.prefetchAround(shape3dIndex);
+    this.shapes.prefetchExternal();
+    this.autoRotate = config.autoRotate();
+    this.pause = config.paused();
+
+    // Apply fire effect settings
+    this.fireRenderer.setCooling(config.cooling());
+    this.fireRenderer.setStillFireBottom(config.stillFire());
+
+    // Apply auto-switch settings
+    if (config.autoSwitch()) {
+      this.lastSwitchTime = clockMillis() - config.switchInterval();
+    }
+    this.timeBetweenScenes = config.switchInterval();
+
+    this.spikes = config.spikeBudgetMs() > 0
+      ? new SpikeRecorder(timings, (long) (config.spikeBudgetMs() * 1_000_000), config.spikeDir(), config.spikeJfr())
+      : null;
+    this.sinks = FrameSinks.create(config, width, height, List.of(palettes));
+    this.snapshotPath = config.snapshot() != null && playback == null && config.bands() == 0
+      ? config.snapshot()
+      : null;
+    if (config.snapshot() != null && snapshotPath == null) {
+      log.warn("Snapshots need the fire simulated in this process, ignoring {}", config.snapshot());
+    }
+
+    resize(width, height);
+    if (snapshotPath != null && Files.exists(snapshotPath)) {
+      warmStart();
+    }
+    publishState();
+  }
+
+  private static IntensityPlayback openPlayback(Path path) {
+    try {
+      IntensityPlayback playback = IntensityPlayback.open(path);
+      log.info("Playing {}: {} frames of {}x{} at {} fps", path, playback.getFrameCount(), playback.getWidth(),
+        playback.getHeight(), playback.getFps());
+      return playback;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the fire recording " + path, e);
+    }
+  }
+
+  /**
+   * Resumes from the snapshot: a snapshot that cannot be read is only logged, the fire then grows from black.
+   */
+  private void warmStart() {
+    FireSnapshot snapshot;
+    try {
+      snapshot = FireSnapshot.load(snapshotPath);
+    } catch (IOException e) {
+      log.warn("Cannot load the snapshot {}, starting from black", snapshotPath, e);
+      return;
+    }
+    this.paletteIndex = findPaletteIndex(snapshot.palette());
+    this.shape3dIndex = findShapeIndex(snapshot.shape());
+    this.shapes.prefetchAround(shape3dIndex);
+    this.autoRotate = snapshot.autoRotate();
+    this.fireRenderer.setCooling(snapshot.cooling());
+    this.fireRenderer.setStillFireBottom(snapshot.stillFire());
+    // The shapes are scaled to the frame size, so is the saved pose
+    FixedIntSurface frame = snapshot.frame();
+    Transform transform = snapshot.transform();
+    transform.setScale(transform.getScale() * Math.min(width, height) / Math.min(frame.width(), frame.height()));
+    this.pendingTransform = transform;
+    fireRenderer.restore(frame);
+    log.info("Resumed from the snapshot {} of {}x{}", snapshotPath, frame.width(), frame.height());
+  }
+
+  private void saveSnapshot() {
+    FixedIntSurface frame = fireRenderer.completedSurface();
+    if (frame == null) {
+      return;
+    }
+    Transform transform = new Transform();
+    if (displayedShape != null) {
+      transform.copyFrom(displayedShape.transform());
+    } else if (pendingTransform != null) {
+      transform.copyFrom(pendingTransform);
+    }
+    try {
+      new FireSnapshot(frame, palettes[paletteIndex].name(), shapes.name(shape3dIndex), fireRenderer.getCooling(),
+        fireRenderer.isStillFireBottom(), autoRotate, transform).save(snapshotPath);
+      log.info("Saved the snapshot {}", snapshotPath);
+    } catch (IOException e) {
+      log.warn("Cannot save the snapshot {}", snapshotPath, e);
+    }
+  }
+
+  private int findPaletteIndex(String name) {
+    int index = Named.findIndex(palettes, name);
+    if (index == 0 && !palettes[0].name().equalsIgnoreCase(name)) {
+      log.warn("Unknown palette '{}', using '{}'", name, palettes[0].name());
+    }
+    return index;
+  }
+
+  private int findShapeIndex(String name) {
+    int index = shapes.findIndex(name);
+    if (index == 0 && !shapes.name(0).equalsIgnoreCase(name)) {
+      log.warn("Unknown shape '{}', using first available", name);
+    }
+    return index;
+  }
+
+  /**
+   * Changes the size of the frames, effective immediately, the fire scaled to the new size. Called by the stepping
+   * thread.
+   */
+  @Override
+  public void resize(int width, int height) {
+    FixedIntSurface previous = playback == null ? fireRenderer.completedSurface() : null;
+    this.width = width;
+    this.height = height;
+    for (SceneRenderer renderer : renderers) {
+      renderer.setSize(width, height);
+    }
+    if (previous != null) {
+      fireRenderer.restore(previous);
+    }
+  }
+
+  /**
+   * Returns the durations of the stages of {@link #step} and {@link #renderTo}.
+   */
+  @Override
+  public StageTimings getStageTimings() {
+    return timings;
+  }
+
+  /**
+   * Returns the estimated memory held by the loaded meshes. Safe to call from any thread.
+   */
+  @Override
+  public long getLoadedShapeBytes() {
+    return shapes.residentBytes();
+  }
+
+  @Override
+  public ConvolveAndRiseEffect getConvolution() {
+    return playback == null ? fireRenderer.getConvolution() : null;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Waits for the currently selected shape to be loaded, so that the next steps draw it.
+   *
+   * @return false if it failed to load or is not ready within the timeout
+   */
+  @Override
+  public boolean awaitShape(Duration timeout) throws InterruptedException {
+    return shapes.awaitLoaded(shape3dIndex, timeout);
+  }
+
+  /**
+   * Advances the simulation by one tick: applies queued commands, moves the shape and produces a new frame.
+   *
+   * @param deltaSec time elapsed since the previous step, drives the auto-rotation and scene switches
+   *                 (ignored when deterministic)
+   * @return false if paused, no frame was produced
+   */
+  @Override
+  public boolean step(double deltaSec) {
+    currentRenderer().awaitTick();
+    long start = System.nanoTime();
+    applyPendingInput();
+    if (pause) {
+      publishState();
+      return false;
+    }
+    if (deterministic) {
+      deltaSec = FIXED_DELTA_SEC;
+    }
+    clockNanos += (long) (deltaSec * 1_000_000_000.0);
+    tick++;
+    switchSceneIfNeeded();
+    Entity3D shape = getShape3d();
+    if (autoRotate && deltaSec > 0.0 && shape != null) {
+      shape.transform().rotate(AUTO_ROTATE_X_SPEED * deltaSec, AUTO_ROTATE_Y_SPEED * deltaSec);
+    }
+    SceneRenderer renderer = currentRenderer();
+    FrameTickEvent event = FrameTickEvent.recording() ? FrameTickEvent.start() : null;
+    renderer.update(shape);
+    renderer.swapBuffers();
+    if (event != null) {
+      event.end(tick, width, height, renderer.getName(), fireRenderer.getStrategyName(), fireRenderer.getCooling(),
+        shapes.name(shape3dIndex), shape != null ? shape.mesh().lines().length / 2 : 0);
+    }
+    publishState();
+    if (spikes != null) {
+      spikes.recordTick(tick, System.nanoTime() - start, state.get());
+    }
+    return true;
+  }
+
+  /**
+   * Converts the latest completed frame to RGB pixels with the current palette. Lock-free.
+   *
+   * @param target RGB pixels, row by row, width * height long
+   * @return false if the frame was skipped because it does not match the target size (resize in progress)
+   */
+  @Override
+  public boolean renderTo(int[] target) {
+    long start = System.nanoTime();
+    SceneState current = state.get();
+    boolean rendered = current.renderer().render(current.palette(), target);
+    if (rendered && !sinks.isEmpty()) {
+      FixedIntSurface frame = current.renderer().renderedSurface();
+      for (FrameSink sink : sinks) {
+        sink.offer(frame, target, current.palette());
+      }
+    }
+    if (spikes != null) {
+      spikes.recordFrame(System.nanoTime() - start);
+    }
+    return rendered;
+  }
+
+  @Override
+  public void command(Consumer<FireEngine> command) {
+    command.accept(this);
+  }
+
+  private SceneRenderer currentRenderer() {
+    return renderers[rendererIndex];
+  }
+
+  /**
+   * Publishes a new {@link SceneState} if anything it captures changed during this tick.
+   * Auto-rotation is not part of the snapshot, so steady-state ticks publish nothing.
+   */
+  private void publishState() {
+    if (!stateChanged) {
+      return;
+    }
+    stateChanged = false;
+    Entity3D shape = displayedShape;
+    state.set(new SceneState(
+      palettes[paletteIndex],
+      shapes.name(shape3dIndex),
+      currentRenderer(),
+      fireRenderer.getStrategyName(),
+      fireRenderer.getCooling(),
+      shape != null ? shape.transform().getScale() : 0,
+      shape != null ? shape.transform().getTranslation().z() : 0,
+      pause,
+      autoRotate,
+      lastSwitchTime != null,
+      fireRenderer.isStillFireBottom()
+    ));
+  }
+
+  /**
+   * Returns the latest scene snapshot, safe to call from any thread.
+   */
+  @Override
+  public SceneState getState() {
+    return state.get();
+  }
+
+  /**
+   * Returns the number of frames computed so far.
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  /**
+   * Applies the queued commands and accumulated drag rotation received since the last step,
+   * then the scripted input of this tick.
+   */
+  private void applyPendingInput() {
+    commands.drain(commandHandler);
+    long rotation = commands.takeRotation();
+    if (rotation != 0) {
+      applyRotation(CommandQueue.rotationX(rotation), CommandQueue.rotationY(rotation));
+    }
+    if (replay != null) {
+      replay.replayUpTo(tick, replayHandler);
+    }
+  }
+
+  private void applyScripted(InputScript.Event event) {
+    if (event.isRotation()) {
+      applyRotation(event.dx(), event.dy());
+    } else {
+      applyCommand(event.command(), event.argument());
+    }
+  }
+
+  private void applyRotation(int dx, int dy) {
+    if (recorder != null) {
+      recorder.rotation(tick, dx, dy);
+    }
+    withShape(shape -> shape.transform().rotate(dy * 0.01, dx * 0.01));
+  }
+
+  // --- Commands, applied at the next step ---
+
+  /**
+   * Selects the palette with the given name (case-insensitive).
+   *
+   * @throws IllegalArgumentException if there is no such palette
+   */
+  public void setPalette(String name) {
+    int index = Named.findIndex(palettes, name);
+    if (!palettes[index].name().equalsIgnoreCase(name)) {
+      throw new IllegalArgumentException("Unknown palette: " + name);
+    }
+    enqueue(SceneCommand.SET_PALETTE, index);
+  }
+
+  /**
+   * Selects the shape with the given name (case-insensitive). It is drawn once loaded.
+   *
+   * @throws IllegalArgumentException if there is no such shape
+   */
+  public void setShape(String name) {
+    int index = shapes.findIndex(name);
+    if (!shapes.name(index).equalsIgnoreCase(name)) {
+      throw new IllegalArgumentException("Unknown shape: " + name);
+    }
+    enqueue(SceneCommand.SET_SHAPE, index);
+  }
+
+  public void setCooling(int cooling) {
+    enqueue(SceneCommand.SET_COOLING, cooling);
+  }
+
+  public void nextPalette() {
+    enqueue(SceneCommand.NEXT_PALETTE, 0);
+  }
+
+  public void previousPalette() {
+    enqueue(SceneCommand.PREVIOUS_PALETTE, 0);
+  }
+
+  public void nextShape() {
+    enqueue(SceneCommand.NEXT_SHAPE, 0);
+  }
+
+  public void previousShape() {
+    enqueue(SceneCommand.PREVIOUS_SHAPE, 0);
+  }
+
+  public void increaseScale(double amount) {
+    enqueue(SceneCommand.INCREASE_SCALE, amount);
+  }
+
+  public void increaseZ(double amount) {
+    enqueue(SceneCommand.INCREASE_Z, amount);
+  }
+
+  public void toggleStillShape() {
+    enqueue(SceneCommand.TOGGLE_STILL_SHAPE, 0);
+  }
+
+  public void toggleStillFireBottom() {
+    enqueue(SceneCommand.TOGGLE_STILL_FIRE_BOTTOM, 0);
+  }
+
+  public void rotateShape(int dx, int dy) {
+    commands.addRotation(dx, dy);
+  }
+
+  public void toggleAutoRotate() {
+    enqueue(SceneCommand.TOGGLE_AUTO_ROTATE, 0);
+  }
+
+  public void toggleAutomaticSceneSwitch() {
+    enqueue(SceneCommand.TOGGLE_AUTOMATIC_SCENE_SWITCH, 0);
+  }
+
+  public void increaseCooling() {
+    enqueue(SceneCommand.INCREASE_COOLING, 0);
+  }
+
+  public void decreaseCooling() {
+    enqueue(SceneCommand.DECREASE_COOLING, 0);
+  }
+
+  public void toggleRenderer() {
+    enqueue(SceneCommand.TOGGLE_RENDERER, 0);
+  }
+
+  public void togglePause() {
+    enqueue(SceneCommand.TOGGLE_PAUSE, 0);
+  }
+
+  // --- Internal Logic ---
+
+  private void enqueue(SceneCommand command, double argument) {
+    if (!commands.offer(command, argument)) {
+      log.warn("Command queue full, dropping {}", command);
+    }
+  }
+
+  /**
+   * Applies a queued command. Runs on the stepping thread.
+   */
+  private void applyCommand(SceneCommand command, double argument) {
+    if (recorder != null) {
+      recorder.command(tick, command, argument);
+    }
+    stateChanged = true;
+    switch (command) {
+      case NEXT_PALETTE -> incPaletteIndex(1);
+      case PREVIOUS_PALETTE -> incPaletteIndex(-1);
+      case SET_PALETTE -> paletteIndex = (int) argument;
+      case NEXT_SHAPE -> incShape3dIndex(1);
+      case PREVIOUS_SHAPE -> incShape3dIndex(-1);
+      case SET_SHAPE -> incShape3dIndex((int) argument - shape3dIndex);
+      case INCREASE_SCALE -> incScale(argument);
+      case INCREASE_Z -> inczOffset(argument);
+      case TOGGLE_STILL_SHAPE -> toggleStillShapeInternal();
+      case TOGGLE_STILL_FIRE_BOTTOM -> fireRenderer.toggleStillFireBottom();
+      case TOGGLE_AUTO_ROTATE -> autoRotate = !autoRotate;
+      case TOGGLE_AUTOMATIC_SCENE_SWITCH -> toggleAutomaticSceneSwitchInternal();
+      case INCREASE_COOLING -> fireRenderer.incCooling(1);
+      case DECREASE_COOLING -> fireRenderer.incCooling(-1);
+      case SET_COOLING -> fireRenderer.setCooling((int) argument);
+      case TOGGLE_RENDERER -> rendererIndex = wrapIndex(rendererIndex, 1, renderers.length);
+      case TOGGLE_PAUSE -> pause = !pause;
+    }
+  }
+
+  /**
+   * Returns the shape to draw. Keeps the previously displayed shape until the current one has finished
+   * loading in the background, so a shape switch never blocks a tick, unless deterministic.
+   */
+  private Entity3D getShape3d() {
+    if (deterministic && shapes.getIfReady(shape3dIndex) == null) {
+      awaitShapeForDeterminism();
+    }
+    Entity3D ready = shapes.getIfReady(shape3dIndex);
+    if (ready != null && ready != displayedShape) {
+      if (pendingTransform != null) {
+        ready.transform().copyFrom(pendingTransform);
+        pendingTransform = null;
+      }
+      displayedShape = ready;
+      stateChanged = true;
+    }
+    return displayedShape;
+  }
+
+  private void awaitShapeForDeterminism() {
+    try {
+      if (!shapes.awaitLoaded(shape3dIndex, DETERMINISTIC_SHAPE_TIMEOUT)) {
+        log.warn("Shape '{}' not loaded, the run is not deterministic", shapes.name(shape3dIndex));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void withShape(Consumer<Entity3D> action) {
+    Entity3D shape = getShape3d();
+    if (shape != null) {
+      action.accept(shape);
+    }
+  }
+
+  private int wrapIndex(int current, int delta, int length) {
+    return ((current + delta) % length + length) % length;
+  }
+
+  private void incScale(double value) {
+    withShape(shape -> shape.transform().incScale(value));
+  }
+
+  private void toggleStillShapeInternal() {
+    withShape(shape -> shape.material().setRandomPixel(!shape.material().isRandomPixel()));
+  }
+
+  private void inczOffset(double value) {
+    withShape(shape -> shape.transform().incTranslateZ(value));
+  }
+
+  private void incPaletteIndex(int value) {
+    paletteIndex = wrapIndex(paletteIndex, value, palettes.length);
+    stateChanged = true;
+  }
+
+  private void incShape3dIndex(int value) {
+    shape3dIndex = wrapIndex(shape3dIndex, value, shapes.size());
+    shapes.prefetchAround(shape3dIndex);
+    stateChanged = true;
+  }
+
+  private void toggleAutomaticSceneSwitchInternal() {
+    if (lastSwitchTime == null) {
+      lastSwitchTime = clockMillis() - timeBetweenScenes;
+    } else {
+      lastSwitchTime = null;
+    }
+  }
+
+  private void switchSceneIfNeeded() {
+    if (lastSwitchTime == null) {
+      return;
+    }
+    long currentTime = clockMillis();
+    if (currentTime - lastSwitchTime < timeBetweenScenes) {
+      return;
+    }
+    lastSwitchTime = currentTime;
+    incPaletteIndex(1);
+    if (paletteIndex == 0) {
+      incShape3dIndex(1);
+    }
+  }
+
+  /**
+   * Simulated time: the sum of the step deltas, so a paused scene does not switch as soon as it resumes.
+   */
+  private long clockMillis() {
+    return clockNanos / 1_000_000;
+  }
+
+  /**
+   * Saves the snapshot, then stops the background work: input recording, frame sinks, shape stages, tick pool and
+   * shape loading.
+   */
+  @Override
+  public void close() {
+    if (snapshotPath != null) {
+      saveSnapshot();
+    }
+    if (recorder != null) {
+      try {
+        recorder.close();
+      } catch (IOException e) {
+        log.warn("Cannot close the input recording", e);
+      }
+    }
+    if (spikes != null) {
+      spikes.close();
+    }
+    sinks.forEach(FrameSink::close);
+    for (SceneRenderer renderer : renderers) {
+      renderer.close();
+    }
+    if (playback != null) {
+      // Not among the renderers while playing
+      fireRenderer.close();
+      try {
+        playback.close();
+      } catch (IOException e) {
+        log.warn("Cannot close the fire recording", e);
+      }
+    }
+    if (ownsTickPool) {
+      tickPool.shutdown();
+    }
+    shapes.close();
+  }
+}
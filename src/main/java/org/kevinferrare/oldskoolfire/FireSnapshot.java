@@ -0,0 +1,146 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.threed.Quaternion;
+import org.kevinferrare.oldskoolfire.drawable.threed.Transform;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * What a fire needs to resume where it stopped instead of growing again from black: its last frame, seed line
+ * included, and the scene settings. Saved into a memory-mapped file by {@link #save}, mapped back in by
+ * {@link #load}.
+ * <p>
+ * Numbers are little-endian: {@code int magic} ({@link #MAGIC}), {@code int version}, {@code int width},
+ * {@code int height}, {@code int length} (ints of the frame), {@code int cooling}, {@code int flags}
+ * ({@link #FLAG_STILL_FIRE}, {@link #FLAG_AUTO_ROTATE}), the shape's {@code double scale}, {@code translateZ} and
+ * orientation {@code w, x, y, z}, then the palette and shape names as a short length and UTF-8 bytes. The frame
+ * follows from the next multiple of 4 bytes.
+ * <p>
+ * The magic is written last, once the rest reached the disk: a snapshot cut short by a crash or power loss is
+ * rejected by {@link #load} rather than half loaded.
+ *
+ * @param frame     fixed-point intensities as kept by the fire renderer, with the seed line below the frame
+ * @param palette   name of the palette
+ * @param shape     name of the shape
+ * @param transform pose of the shape
+ */
+public record FireSnapshot(FixedIntSurface frame, String palette, String shape, int cooling, boolean stillFire,
+                           boolean autoRotate, Transform transform) {
+
+  /**
+   * "OSFS" read as a little-endian int.
+   */
+  static final int MAGIC = 0x5346534F;
+  static final int VERSION = 1;
+  static final int FLAG_STILL_FIRE = 1;
+  static final int FLAG_AUTO_ROTATE = 2;
+  private static final int FIXED_BYTES = 7 * Integer.BYTES + 6 * Double.BYTES;
+
+  /**
+   * Writes the snapshot, replacing the file.
+   */
+  public void save(Path path) throws IOException {
+    byte[] paletteBytes = palette.getBytes(StandardCharsets.UTF_8);
+    byte[] shapeBytes = shape.getBytes(StandardCharsets.UTF_8);
+    int[] data = frame.data();
+    int frameOffset = align(FIXED_BYTES + 2 * Short.BYTES + paletteBytes.length + shapeBytes.length);
+    long size = frameOffset + (long) data.length * Integer.BYTES;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      Quaternion orientation = transform.getOrientation();
+      buffer.position(Integer.BYTES);
+      buffer.putInt(VERSION)
+        .putInt(frame.width())
+        .putInt(frame.height())
+        .putInt(data.length)
+        .putInt(cooling)
+        .putInt((stillFire ? FLAG_STILL_FIRE : 0) | (autoRotate ? FLAG_AUTO_ROTATE : 0))
+        .putDouble(transform.getScale())
+        .putDouble(transform.getTranslation().z())
+        .putDouble(orientation.w())
+        .putDouble(orientation.x())
+        .putDouble(orientation.y())
+        .putDouble(orientation.z())
+        .putShort((short) paletteBytes.length)
+        .put(paletteBytes)
+        .putShort((short) shapeBytes.length)
+        .put(shapeBytes);
+      buffer.slice(frameOffset, data.length * Integer.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .asIntBuffer()
+        .put(data);
+      buffer.force();
+      buffer.putInt(0, MAGIC);
+      buffer.force();
+    }
+  }
+
+  /**
+   * Maps a snapshot written by {@link #save} and copies it.
+   *
+   * @throws IOException if the file is not a complete snapshot
+   */
+  public static FireSnapshot load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < FIXED_BYTES) {
+        throw new IOException("Not a fire snapshot: " + path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a fire snapshot, or an incomplete one: " + path);
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported fire snapshot version " + version + ": " + path);
+      }
+      int width = buffer.getInt();
+      int height = buffer.getInt();
+      int length = buffer.getInt();
+      int cooling = buffer.getInt();
+      int flags = buffer.getInt();
+      Transform transform = new Transform();
+      transform.setScale(buffer.getDouble());
+      transform.setTranslateZ(buffer.getDouble());
+      transform.getOrientation().set(new Quaternion(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+        buffer.getDouble()));
+      String palette = readName(buffer);
+      String shape = readName(buffer);
+      int frameOffset = align(buffer.position());
+      if (width <= 0 || height <= 0 || length < width * height || length % width != 0
+        || frameOffset + (long) length * Integer.BYTES > buffer.capacity()) {
+        throw new IOException("Corrupt fire snapshot: " + path);
+      }
+      int[] data = new int[length];
+      buffer.slice(frameOffset, length * Integer.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .asIntBuffer()
+        .get(data);
+      return new FireSnapshot(new FixedIntSurface(data, width, height), palette, shape, cooling,
+        (flags & FLAG_STILL_FIRE) != 0, (flags & FLAG_AUTO_ROTATE) != 0, transform);
+    }
+  }
+
+  private static String readName(MappedByteBuffer buffer) throws IOException {
+    int length = buffer.getShort() & 0xFFFF;
+    if (length > buffer.remaining()) {
+      throw new IOException("Corrupt fire snapshot");
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int align(int offset) {
+    return (offset + Integer.BYTES - 1) & -Integer.BYTES;
+  }
+}
@@ -0,0 +1,97 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.kevinferrare.oldskoolfire.broadcast.FrameBroadcaster;
+import org.kevinferrare.oldskoolfire.export.FrameExporter;
+import org.kevinferrare.oldskoolfire.export.FrameFormat;
+import org.kevinferrare.oldskoolfire.export.FrameSink;
+import org.kevinferrare.oldskoolfire.export.MappedFrameBuffer;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.playback.IntensityRecorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the {@link FrameSink}s the configuration asks for: a {@link FrameExporter} with an export path
+ * ({@link AppConfig#exportPath()}), an {@link IntensityRecorder} with {@link AppConfig#recordFire()}, a
+ * {@link FrameBroadcaster} with a broadcast port ({@link AppConfig#broadcastPort()}) and a
+ * {@link MappedFrameBuffer} with {@link AppConfig#sharedFrame()}.
+ */
+final class FrameSinks {
+
+  private FrameSinks() {
+  }
+
+  /**
+   * @param palettes the built-in palettes, see {@link MappedFrameBuffer}
+   * @throws UncheckedIOException if a sink cannot be opened, the ones already opened are closed
+   */
+  static List<FrameSink> create(AppConfig config, int width, int height, List<Palette> palettes) {
+    List<FrameSink> sinks = new ArrayList<>();
+    try {
+      if (config.exportPath() != null) {
+        sinks.add(createExporter(config, width, height));
+      }
+      if (config.recordFire() != null) {
+        sinks.add(createFireRecorder(config, width, height));
+      }
+      if (config.broadcastPort() > 0) {
+        sinks.add(createBroadcaster(config, width, height));
+      }
+      if (config.sharedFrame() != null) {
+        sinks.add(createSharedFrame(config, width, height, palettes));
+      }
+    } catch (RuntimeException e) {
+      sinks.forEach(FrameSink::close);
+      throw e;
+    }
+    return sinks;
+  }
+
+  private static FrameExporter createExporter(AppConfig config, int width, int height) {
+    FrameFormat format = config.exportFormat() != null
+      ? FrameFormat.parse(config.exportFormat())
+      : FrameFormat.forPath(config.exportPath());
+    FrameExporter.Policy policy = config.exportPolicy() != null
+      ? FrameExporter.Policy.parse(config.exportPolicy())
+      : FrameExporter.Policy.DROP;
+    int fps = config.exportFps() > 0 ? config.exportFps() : FrameExporter.DEFAULT_FPS;
+    try {
+      return new FrameExporter(config.exportPath(), format, width, height, policy, fps);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the frame export", e);
+    }
+  }
+
+  private static IntensityRecorder createFireRecorder(AppConfig config, int width, int height) {
+    int fps = config.exportFps() > 0 ? config.exportFps() : FrameExporter.DEFAULT_FPS;
+    try {
+      return new IntensityRecorder(config.recordFire(), width, height, fps);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the fire recording", e);
+    }
+  }
+
+  private static FrameBroadcaster createBroadcaster(AppConfig config, int width, int height) {
+    int fps = config.broadcastFps() > 0 ? config.broadcastFps() : FrameBroadcaster.DEFAULT_FPS;
+    try {
+      return new FrameBroadcaster(config.broadcastPort(), width, height, fps);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot start the frame broadcast on port " + config.broadcastPort(), e);
+    }
+  }
+
+  private static MappedFrameBuffer createSharedFrame(AppConfig config, int width, int height,
+                                                     List<Palette> palettes) {
+    MappedFrameBuffer.Content content = config.sharedFrameContent() != null
+      ? MappedFrameBuffer.Content.parse(config.sharedFrameContent())
+      : MappedFrameBuffer.Content.RGB;
+    try {
+      return new MappedFrameBuffer(config.sharedFrame(), content, width, height, palettes);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot map the shared frame " + config.sharedFrame(), e);
+    }
+  }
+}
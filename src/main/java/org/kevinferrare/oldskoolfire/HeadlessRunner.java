@@ -0,0 +1,64 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.zip.CRC32;
+
+/**
+ * Runs the {@link Simulation} for a fixed number of frames without any window, as fast as possible,
+ * and logs the achieved frame rate and a checksum of the last frame. Works on machines without a display.
+ * With a seed the checksum is the same for every run, a golden value for regression checks.
+ */
+@Slf4j
+public class HeadlessRunner {
+
+  private static final Duration SHAPE_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+  private final AppConfig config;
+  private final int frames;
+
+  public HeadlessRunner(AppConfig config, int frames) {
+    this.config = config;
+    this.frames = frames;
+  }
+
+  public void run() throws InterruptedException {
+    try (Simulation engine = Simulation.create(config.width(), config.height(), config)) {
+      if (!engine.awaitShape(SHAPE_LOAD_TIMEOUT)) {
+        log.warn("Shape '{}' not loaded, running without it", engine.getState().shapeName());
+      }
+      Preroll.run(engine, config.preroll());
+      int[] pixels = new int[config.width() * config.height()];
+      long start = System.nanoTime();
+      long last = start;
+      int rendered = 0;
+      for (int i = 0; i < frames; i++) {
+        long now = System.nanoTime();
+        if (engine.step((now - last) / 1_000_000_000.0) && engine.renderTo(pixels)) {
+          rendered++;
+        }
+        last = now;
+      }
+      double elapsedSec = (System.nanoTime() - start) / 1_000_000_000.0;
+      log.info("Rendered {} of {} frames at {}x{} in {} s ({} frames/s)", rendered, frames,
+        config.width(), config.height(), String.format("%.3f", elapsedSec),
+        String.format("%.1f", rendered / elapsedSec));
+      log.info("Last frame checksum: {}", String.format("%08x", checksum(pixels)));
+      log.info("Stages p50/p99/max: {}", StageTimings.format(engine.getStageTimings().snapshotAndReset()));
+    }
+  }
+
+  /**
+   * CRC32 of the RGB pixels.
+   */
+  static long checksum(int[] pixels) {
+    ByteBuffer bytes = ByteBuffer.allocate(pixels.length * Integer.BYTES);
+    bytes.asIntBuffer().put(pixels);
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+}
@@ -6,17 +6,17 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 
 /**
- * Translates raw UI events into semantic commands for the {@link SceneController}.
+ * Translates raw UI events into semantic commands for the {@link Simulation}, sent to each of its engines.
  * Decouples the UI layer from the application logic.
  */
 @Slf4j
 public class InputHandler {
 
-  private final SceneController controller;
+  private final Simulation simulation;
   private final Runnable onExit;
 
-  public InputHandler(SceneController controller, Runnable onExit) {
-    this.controller = controller;
+  public InputHandler(Simulation simulation, Runnable onExit) {
+    this.simulation = simulation;
     this.onExit = onExit;
     logShortcuts();
   }
@@ -43,77 +43,77 @@ public class InputHandler {
 
   public void onMouseWheel(int rotation) {
     if (rotation < 0) {
-      controller.nextPalette();
+      simulation.command(FireEngine::nextPalette);
     } else {
-      controller.previousPalette();
+      simulation.command(FireEngine::previousPalette);
     }
   }
 
   public void onMouseClicked(int button) {
     switch (button) {
       case MouseEvent.BUTTON1:
-        controller.nextShape();
+        simulation.command(FireEngine::nextShape);
         break;
       case MouseEvent.BUTTON3:
       default:
-        controller.previousShape();
+        simulation.command(FireEngine::previousShape);
         break;
     }
   }
 
   public void onMouseDragged(int dx, int dy) {
-    controller.rotateShape(dx, dy);
+    simulation.command(engine -> engine.rotateShape(dx, dy));
   }
 
   public void onKeyPressed(int keyCode) {
     switch (keyCode) {
       case KeyEvent.VK_ADD:
-        controller.increaseScale(50);
+        simulation.command(engine -> engine.increaseScale(50));
         break;
       case KeyEvent.VK_SUBTRACT:
-        controller.increaseScale(-50);
+        simulation.command(engine -> engine.increaseScale(-50));
         break;
       case KeyEvent.VK_MULTIPLY:
-        controller.increaseZ(1);
+        simulation.command(engine -> engine.increaseZ(1));
         break;
       case KeyEvent.VK_DIVIDE:
-        controller.increaseZ(-1);
+        simulation.command(engine -> engine.increaseZ(-1));
         break;
       case KeyEvent.VK_C:
-        controller.toggleStillShape();
+        simulation.command(FireEngine::toggleStillShape);
         break;
       case KeyEvent.VK_B:
-        controller.toggleStillFireBottom();
+        simulation.command(FireEngine::toggleStillFireBottom);
         break;
       case KeyEvent.VK_R:
-        controller.toggleAutoRotate();
+        simulation.command(FireEngine::toggleAutoRotate);
         break;
       case KeyEvent.VK_CONTROL:
-        controller.toggleAutomaticSceneSwitch();
+        simulation.command(FireEngine::toggleAutomaticSceneSwitch);
         break;
       case KeyEvent.VK_LEFT:
-        controller.previousShape();
+        simulation.command(FireEngine::previousShape);
         break;
       case KeyEvent.VK_RIGHT:
-        controller.nextShape();
+        simulation.command(FireEngine::nextShape);
         break;
       case KeyEvent.VK_UP:
-        controller.nextPalette();
+        simulation.command(FireEngine::nextPalette);
         break;
       case KeyEvent.VK_DOWN:
-        controller.previousPalette();
+        simulation.command(FireEngine::previousPalette);
         break;
       case KeyEvent.VK_PAGE_UP:
-        controller.increaseCooling();
+        simulation.command(FireEngine::increaseCooling);
         break;
       case KeyEvent.VK_PAGE_DOWN:
-        controller.decreaseCooling();
+        simulation.command(FireEngine::decreaseCooling);
         break;
       case KeyEvent.VK_W:
-        controller.toggleRenderer();
+        simulation.command(FireEngine::toggleRenderer);
         break;
       case KeyEvent.VK_SPACE:
-        controller.togglePause();
+        simulation.command(FireEngine::togglePause);
         break;
       case KeyEvent.VK_ESCAPE:
       case KeyEvent.VK_Q:
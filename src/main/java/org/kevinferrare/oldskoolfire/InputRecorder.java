@@ -0,0 +1,65 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the input applied to the {@link FireEngine} as an {@link InputScript}.
+ * Called by the stepping thread only. A write failure is logged once and stops the recording,
+ * it never interrupts the simulation.
+ */
+@Slf4j
+public class InputRecorder implements AutoCloseable {
+
+  private final Path file;
+  private BufferedWriter writer;
+
+  public InputRecorder(Path file) throws IOException {
+    this.file = file;
+    this.writer = Files.newBufferedWriter(file);
+    writer.write("# <tick> <COMMAND> [<argument>] | <tick> ROTATE <dx> <dy>");
+    writer.newLine();
+  }
+
+  public void command(long tick, SceneCommand command, double argument) {
+    write(new InputScript.Event(tick, command, argument, 0, 0));
+  }
+
+  public void rotation(long tick, int dx, int dy) {
+    write(new InputScript.Event(tick, null, 0, dx, dy));
+  }
+
+  private void write(InputScript.Event event) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.write(InputScript.format(event));
+      writer.newLine();
+    } catch (IOException e) {
+      log.error("Cannot record input to {}, recording stopped", file, e);
+      closeQuietly();
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      close();
+    } catch (IOException e) {
+      log.debug("Cannot close {}", file, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (writer != null) {
+      BufferedWriter closing = writer;
+      writer = null;
+      closing.close();
+    }
+  }
+}
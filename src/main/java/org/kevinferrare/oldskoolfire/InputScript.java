@@ -0,0 +1,111 @@
+package org.kevinferrare.oldskoolfire;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Input applied to the {@link FireEngine}, tick by tick, as written by {@link InputRecorder}.
+ * Replaying it in a deterministic engine (same seed) reproduces the recorded run frame for frame.
+ * <p>
+ * One event per line: {@code <tick> <COMMAND> [<argument>]} for a {@link SceneCommand},
+ * {@code <tick> ROTATE <dx> <dy>} for a mouse-drag rotation. Events of a tick are applied in file order,
+ * before the frame following that many frames is computed. Blank lines and lines starting with {@code #}
+ * are ignored.
+ */
+public final class InputScript {
+
+  static final String ROTATE = "ROTATE";
+
+  /**
+   * One scripted input.
+   *
+   * @param tick     number of frames computed before it applies
+   * @param command  command to apply, null for a rotation
+   * @param argument command argument
+   * @param dx       rotation drag along X
+   * @param dy       rotation drag along Y
+   */
+  public record Event(long tick, SceneCommand command, double argument, int dx, int dy) {
+
+    public boolean isRotation() {
+      return command == null;
+    }
+  }
+
+  /**
+   * Receives replayed events, avoids boxing the arguments.
+   */
+  @FunctionalInterface
+  public interface Handler {
+    void apply(Event event);
+  }
+
+  private final List<Event> events;
+  private int next;
+
+  public InputScript(List<Event> events) {
+    for (int i = 1; i < events.size(); i++) {
+      if (events.get(i).tick() < events.get(i - 1).tick()) {
+        throw new IllegalArgumentException("Events must be in tick order, " + events.get(i) + " follows " + events.get(i - 1));
+      }
+    }
+    this.events = List.copyOf(events);
+  }
+
+  public static InputScript load(Path file) throws IOException {
+    return parse(Files.readAllLines(file));
+  }
+
+  static InputScript parse(List<String> lines) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        events.add(parseEvent(line.split("\\s+")));
+      } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("Line " + (i + 1) + ": invalid event '" + line + "'", e);
+      }
+    }
+    return new InputScript(events);
+  }
+
+  private static Event parseEvent(String[] fields) {
+    long tick = Long.parseLong(fields[0]);
+    String action = fields[1].toUpperCase(Locale.ROOT);
+    if (action.equals(ROTATE)) {
+      return new Event(tick, null, 0, Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+    }
+    double argument = fields.length > 2 ? Double.parseDouble(fields[2]) : 0;
+    return new Event(tick, SceneCommand.valueOf(action), argument, 0, 0);
+  }
+
+  /**
+   * Formats an event as a script line.
+   */
+  static String format(Event event) {
+    if (event.isRotation()) {
+      return event.tick() + " " + ROTATE + " " + event.dx() + " " + event.dy();
+    }
+    return event.tick() + " " + event.command() + " " + event.argument();
+  }
+
+  /**
+   * Hands the events up to the given tick that were not replayed yet.
+   */
+  public void replayUpTo(long tick, Handler handler) {
+    while (next < events.size() && events.get(next).tick() <= tick) {
+      handler.apply(events.get(next++));
+    }
+  }
+
+  public List<Event> events() {
+    return events;
+  }
+}
@@ -0,0 +1,242 @@
+package org.kevinferrare.oldskoolfire;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.LineRasterizer;
+import org.kevinferrare.oldskoolfire.drawable.brush.Material;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Graphics3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Mesh;
+import org.kevinferrare.oldskoolfire.drawable.threed.Transform;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.MeshGenerator;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.palette.PaletteFactory;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the hot code of a tick and a frame on scratch surfaces before the window shows, until the JIT compiled it
+ * with C2: otherwise the first seconds stutter while the kernels are interpreted, then compiled by C1, then by C2.
+ * The kernels are the convolution of the chosen {@link org.kevinferrare.oldskoolfire.drawable.ConvolutionStrategy},
+ * {@link Palette#apply}, the {@link Graphics3D} projection and the {@link LineRasterizer}.
+ * <p>
+ * Each group of kernels runs on its own thread, alongside the shape loading, until its
+ * kernels are compiled, the JIT settles (nothing compiled for {@link #QUIET_MILLIS}, e.g. the kernels were compiled
+ * already) or the budget ({@link AppConfig#jitWarmupMs()}) is spent. Compilations are followed with the
+ * {@code jdk.Compilation} events of a JFR stream, which arrive about once a second; each C2 compilation of a kernel
+ * is logged with its duration. Without JFR the kernels run until the JIT settles.
+ * <p>
+ * The convolution is that of the engine, so that its strategy is not selected a second time. It is not warmed up
+ * with {@link AppConfig#gpu()} (TornadoVM compiles its kernels itself) nor when the fire is not simulated in this
+ * process.
+ */
+@Slf4j
+class JitWarmup {
+
+  /**
+   * Level of the C2 compilations in {@code jdk.Compilation} events.
+   */
+  private static final int C2_LEVEL = 4;
+  private static final int SCRATCH_ROWS = 32;
+  static final long QUIET_MILLIS = 1000;
+  private static final long POLL_MILLIS = 50;
+
+  /**
+   * A method to see compiled by C2.
+   */
+  private static final class Kernel {
+    private final String label;
+    private final String className;
+    private final String methodName;
+    private volatile boolean compiled;
+
+    private Kernel(String label, Class<?> type, String methodName) {
+      this.label = label;
+      this.className = type.getName();
+      this.methodName = methodName;
+    }
+  }
+
+  private final List<Kernel> kernels = new ArrayList<>();
+  private final List<Thread> threads = new ArrayList<>();
+  private final RecordingStream compilations; // null without JFR
+  private final long start = System.nanoTime();
+  private final Instant startTime = Instant.now();
+  private final long deadline;
+  private final long startCompilationMillis;
+  private volatile int compiledCount;
+  private volatile boolean settled;
+
+  private JitWarmup(int width, int height, AppConfig config, ConvolveAndRiseEffect convolution) {
+    this.deadline = start + config.jitWarmupMs() * 1_000_000L;
+    this.startCompilationMillis = compilationMillis();
+    if (!config.gpu() && convolution != null) {
+      addConvolution(width, convolution);
+    }
+    addPalette(width);
+    addShape(width, height);
+    this.compilations = openCompilationStream();
+  }
+
+  /**
+   * Starts warming up the kernels for frames of the given size, see {@link #await}.
+   *
+   * @param convolution the engine's, see {@link Simulation#getConvolution()}; run on scratch surfaces only
+   */
+  static JitWarmup start(int width, int height, AppConfig config, ConvolveAndRiseEffect convolution) {
+    JitWarmup warmup = new JitWarmup(width, height, config, convolution);
+    log.info("JIT warm-up of {} kernels, at most {} ms", warmup.kernels.size(), config.jitWarmupMs());
+    warmup.threads.forEach(Thread::start);
+    return warmup;
+  }
+
+  private void addConvolution(int width, ConvolveAndRiseEffect effect) {
+    Kernel convolve = new Kernel(effect.getStrategyName() + ".convolve", effect.getStrategyClass(), "convolve");
+    // Two rows more than the destination, like the fire surfaces
+    FixedIntSurface source = scratch(width, SCRATCH_ROWS + 2);
+    FixedIntSurface destination = new FixedIntSurface(new int[width * SCRATCH_ROWS], width, SCRATCH_ROWS);
+    addThread("convolution", () -> effect.draw(source, destination, 0, SCRATCH_ROWS), convolve);
+  }
+
+  private void addPalette(int width) {
+    Palette palette = PaletteFactory.createFire();
+    FixedIntSurface source = scratch(width, SCRATCH_ROWS);
+    int[] rgb = new int[width * SCRATCH_ROWS];
+    addThread("palette", () -> palette.apply(source, rgb), new Kernel("Palette.apply", Palette.class, "apply"));
+  }
+
+  private void addShape(int width, int height) {
+    FixedIntSurface surface = new FixedIntSurface(new int[width * (height + 1)], width, height);
+    LineRasterizer rasterizer = new LineRasterizer(surface);
+    Graphics3D graphics3D = new Graphics3D(width, height);
+    Mesh mesh = MeshGenerator.createSphere(16, 32);
+    Transform transform = new Transform();
+    transform.setScale(Math.min(width, height) * 1.2);
+    Material material = Material.forMesh("warm-up", mesh, RandomStreams.UNSEEDED);
+    Entity3D entity = new Entity3D("warm-up", mesh, transform, material);
+    addThread("shape", () -> {
+      transform.rotate(0.01, 0.02);
+      graphics3D.drawEntity(rasterizer, entity);
+    }, new Kernel("Graphics3D.drawMesh", Graphics3D.class, "drawMesh"),
+      new Kernel("LineRasterizer.drawLine", LineRasterizer.class, "drawLine"));
+  }
+
+  /**
+   * Returns a surface of varied intensities, so that the kernels see realistic values.
+   */
+  private static FixedIntSurface scratch(int width, int rows) {
+    int[] data = new int[width * rows];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919) & 0xFFFF;
+    }
+    return new FixedIntSurface(data, width, rows);
+  }
+
+  private void addThread(String name, Runnable iteration, Kernel... groupKernels) {
+    kernels.addAll(List.of(groupKernels));
+    Thread thread = Thread.ofPlatform().daemon().name("JitWarmup-" + name).unstarted(() -> {
+      while (!settled && System.nanoTime() < deadline && !allCompiled(groupKernels)) {
+        iteration.run();
+      }
+    });
+    threads.add(thread);
+  }
+
+  private static boolean allCompiled(Kernel[] group) {
+    for (Kernel kernel : group) {
+      if (!kernel.compiled) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private RecordingStream openCompilationStream() {
+    if (!FlightRecorder.isAvailable()) {
+      log.info("JFR not available, the JIT warm-up runs until the JIT settles");
+      return null;
+    }
+    try {
+      RecordingStream stream = new RecordingStream();
+      stream.enable("jdk.Compilation").withThreshold(Duration.ZERO);
+      stream.onEvent("jdk.Compilation", this::onCompilation);
+      stream.startAsync();
+      return stream;
+    } catch (RuntimeException e) {
+      log.info("Cannot follow the JIT compilations, the JIT warm-up runs until the JIT settles", e);
+      return null;
+    }
+  }
+
+  private void onCompilation(RecordedEvent event) {
+    // Only a standard C2 compilation serves the next calls, an OSR one only the running loop
+    if (event.getInt("compileLevel") != C2_LEVEL || event.getBoolean("isOsr")) {
+      return;
+    }
+    RecordedMethod method = event.getValue("method");
+    for (Kernel kernel : kernels) {
+      if (!kernel.compiled && kernel.methodName.equals(method.getName())
+        && kernel.className.equals(method.getType().getName())) {
+        kernel.compiled = true;
+        compiledCount++;
+        log.info("JIT warm-up: {} compiled by C2 in {} ms, {} ms after the start ({}/{})", kernel.label,
+          String.format("%.1f", event.getDuration().toNanos() / 1_000_000.0),
+          Duration.between(startTime, event.getStartTime()).toMillis(), compiledCount, kernels.size());
+      }
+    }
+  }
+
+  /**
+   * Waits for the kernels to be compiled, the JIT to settle or the budget to be spent, and logs the outcome.
+   *
+   * @return true if every kernel was seen compiled by C2
+   */
+  boolean await() throws InterruptedException {
+    try {
+      long lastCompilation = compilationMillis();
+      long quietSince = System.nanoTime();
+      for (Thread thread : threads) {
+        while (!thread.join(Duration.ofMillis(POLL_MILLIS))) {
+          long compilation = compilationMillis();
+          if (compilation != lastCompilation) {
+            lastCompilation = compilation;
+            quietSince = System.nanoTime();
+          } else if (compilation >= 0 && System.nanoTime() - quietSince >= QUIET_MILLIS * 1_000_000) {
+            settled = true;
+          }
+        }
+      }
+    } finally {
+      if (compilations != null) {
+        compilations.close();
+      }
+    }
+    List<String> pending = kernels.stream().filter(kernel -> !kernel.compiled).map(kernel -> kernel.label).toList();
+    Object compileMillis = startCompilationMillis >= 0 ? compilationMillis() - startCompilationMillis : "unknown";
+    log.info("JIT warm-up done in {} ms, {} ms of JIT compilation{}", (System.nanoTime() - start) / 1_000_000,
+      compileMillis,
+      pending.isEmpty() || compilations == null ? "" : ", not seen compiled by C2: " + String.join(", ", pending));
+    return pending.isEmpty();
+  }
+
+  /**
+   * Returns the total time the JIT spent compiling, -1 if unknown.
+   */
+  private static long compilationMillis() {
+    CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+    return compiler != null && compiler.isCompilationTimeMonitoringSupported()
+      ? compiler.getTotalCompilationTime()
+      : -1;
+  }
+}
@@ -1,22 +1,34 @@
 package org.kevinferrare.oldskoolfire;
 
+import org.kevinferrare.oldskoolfire.bench.BenchCase;
+import org.kevinferrare.oldskoolfire.bench.BenchCompareCommand;
+import org.kevinferrare.oldskoolfire.bench.BenchResult;
+import org.kevinferrare.oldskoolfire.bench.BenchResults;
+import org.kevinferrare.oldskoolfire.bench.BenchRunner;
+import org.kevinferrare.oldskoolfire.broadcast.FrameBroadcaster;
+import org.kevinferrare.oldskoolfire.export.FrameExporter;
+import org.kevinferrare.oldskoolfire.export.RawFrameWriter;
+import org.kevinferrare.oldskoolfire.export.RawPixelFormat;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Application entry point.
- * Responsible for parsing command line arguments and launching the UI.
+ * Responsible for parsing command line arguments and launching the UI, the headless run or the benchmark.
  */
 @Command(
   name = "oldskoolfire",
   mixinStandardHelpOptions = true,
   version = "1.0",
-  description = "Retro fire effect demo with 3D wireframe objects"
+  description = "Retro fire effect demo with 3D wireframe objects",
+  subcommands = BenchCompareCommand.class
 )
 public class Main implements Runnable {
 
@@ -44,6 +56,9 @@ public class Main implements Runnable {
   @Option(names = {"-m", "--mesh"}, description = "OBJ file(s) to load", arity = "1..*")
   private List<Path> meshFiles = new ArrayList<>();
 
+  @Option(names = {"--shape-cache-mb"}, description = "Memory budget for loaded meshes in MB, 0 for unlimited (default: ${DEFAULT-VALUE})")
+  private int shapeCacheMb = AppConfig.DEFAULT_SHAPE_CACHE_MB;
+
   // Animation settings
   @Option(names = {"--auto-rotate"}, description = "Start with auto-rotation enabled")
   private boolean autoRotate = true;
@@ -68,10 +83,130 @@ public class Main implements Runnable {
   @Option(names = {"--no-vector-api"}, description = "Disable SIMD Vector API for convolution (use scalar fallback)")
   private boolean noVectorApi = false;
 
+  @Option(names = {"--threads"}, description = "Worker threads for each simulation tick, 0 for the shared pool sized to the CPU count (default: ${DEFAULT-VALUE})")
+  private int threads = 0;
+
+  // Deterministic mode
+  @Option(names = {"--seed"}, description = "Master seed making runs reproducible: seeded randomness, fixed time step")
+  private Long seed;
+
+  @Option(names = {"--record-input"}, description = "Record the input applied to the simulation to a script file")
+  private Path recordInput;
+
+  @Option(names = {"--replay-input"}, description = "Replay the input of a script file recorded with --record-input")
+  private Path replayInput;
+
+  // Monitoring
+  @Option(names = {"--metrics-port"}, description = "Serve Prometheus metrics at http://127.0.0.1:PORT/metrics, 0 to disable (default: ${DEFAULT-VALUE})")
+  private int metricsPort = 0;
+
+  @Option(names = {"--spike-budget-ms"}, description = "Dump the timings of the last ticks to --spike-dir when a tick or frame takes longer than this, 0 to disable (default: ${DEFAULT-VALUE})")
+  private double spikeBudgetMs = 0;
+
+  @Option(names = {"--spike-dir"}, description = "Directory of the frame spike dumps (default: ${DEFAULT-VALUE})")
+  private Path spikeDir = Path.of(AppConfig.DEFAULT_SPIKE_DIR);
+
+  @Option(names = {"--spike-jfr"}, description = "Keep a JFR recording running and dump it with each frame spike")
+  private boolean spikeJfr = false;
+
+  // Frame export
+  @Option(names = {"--export"}, description = "Record the rendered frames: a directory of PNG files, or a .y4m or .rgb file")
+  private Path exportPath;
+
+  @Option(names = {"--export-format"}, description = "Export format: png, y4m or raw, guessed from --export by default")
+  private String exportFormat;
+
+  @Option(names = {"--export-policy"}, description = "When the encoders fall behind: drop frames or block the renderer (default: ${DEFAULT-VALUE})")
+  private String exportPolicy = "drop";
+
+  @Option(names = {"--export-fps"}, description = "Frame rate of Y4M exports, fire recordings and --pipe-out (default: ${DEFAULT-VALUE})")
+  private int exportFps = FrameExporter.DEFAULT_FPS;
+
+  // Fire recording
+  @Option(names = {"--record-fire"}, description = "Record the fire as palette indices, a fraction of the size of --export, for --play")
+  private Path recordFire;
+
+  @Option(names = {"--play"}, description = "Play a fire recording made with --record-fire instead of simulating the fire")
+  private Path playFire;
+
+  // Frame broadcast
+  @Option(names = {"--broadcast-port"}, description = "Stream the frames to local viewers at http://127.0.0.1:PORT/ (MJPEG and tile deltas), 0 to disable (default: ${DEFAULT-VALUE})")
+  private int broadcastPort = 0;
+
+  @Option(names = {"--broadcast-fps"}, description = "Highest frame rate of the broadcast (default: ${DEFAULT-VALUE})")
+  private int broadcastFps = FrameBroadcaster.DEFAULT_FPS;
+
+  // Shared framebuffer
+  @Option(names = {"--shared-frame"}, description = "Publish every frame into this memory-mapped file for other local processes")
+  private Path sharedFrame;
+
+  @Option(names = {"--shared-frame-content"}, description = "Pixels of the shared frame: rgb or index (palette indices) (default: ${DEFAULT-VALUE})")
+  private String sharedFrameContent = "rgb";
+
+  // Tile wall
+  @Option(names = {"--wall"}, description = "Show a grid of independent fires, COLUMNSxROWS, e.g. 3x2")
+  private String wall;
+
+  @Option(names = {"--wall-tile"}, description = "Settings of the next wall tile as shape:palette:cooling, any part may be empty (repeatable)")
+  private List<String> wallTiles = new ArrayList<>();
+
+  // Distributed bands
+  @Option(names = {"--bands"}, description = "Simulate the fire in horizontal bands, each in its own worker process, 0 to simulate it in this process (default: ${DEFAULT-VALUE})")
+  private int bands = 0;
+
+  // Warm start
+  @Option(names = {"--snapshot"}, description = "Resume the fire from this snapshot file if it exists, and save it there on exit")
+  private Path snapshot;
+
+  @Option(names = {"--preroll"}, description = "Ticks to fast-forward before the first frame is shown, so that the fire starts fully grown (default: ${DEFAULT-VALUE})")
+  private int preroll = 0;
+
+  @Option(names = {"--jit-warmup-ms"}, description = "Longest JIT warm-up of the fire kernels before the window is shown, 0 to skip it (default: ${DEFAULT-VALUE})")
+  private int jitWarmupMs = AppConfig.DEFAULT_JIT_WARMUP_MS;
+
   // Renderer settings
   @Option(names = {"-w", "--wireframe"}, description = "Start in wireframe mode (no fire effect)")
   private boolean wireframe = false;
 
+  // Headless mode
+  @Option(names = {"--headless"}, description = "Run without a window for --frames frames and log the frame rate")
+  private boolean headless = false;
+
+  @Option(names = {"--frames"}, description = "Number of frames to compute in headless mode, or to stream with --pipe-out where 0 streams until the reader exits (default: ${DEFAULT-VALUE})")
+  private int frames = 1000;
+
+  // Raw frame streaming
+  @Option(names = {"--pipe-out"}, description = "Stream raw frames headless to a file or named pipe, - for stdout, at --export-fps frames per simulated second")
+  private String pipeOut;
+
+  @Option(names = {"--pipe-format"}, description = "Pixel format of --pipe-out: rgb24 or bgra (default: ${DEFAULT-VALUE})")
+  private String pipeFormat = "rgb24";
+
+  // Benchmark mode
+  @Option(names = {"--bench"}, description = "Run the benchmark matrix headless and write the results to --bench-out")
+  private boolean bench = false;
+
+  @Option(names = {"--bench-strategies"}, split = ",", description = "Convolution strategies to benchmark: scalar, simd, gpu (default: ${DEFAULT-VALUE})")
+  private List<String> benchStrategies = List.of("scalar", "simd");
+
+  @Option(names = {"--bench-resolutions"}, split = ",", description = "Resolutions to benchmark (default: ${DEFAULT-VALUE})")
+  private List<String> benchResolutions = List.of("1280x720", "1920x1080");
+
+  @Option(names = {"--bench-shapes"}, split = ",", description = "Shapes to benchmark (default: ${DEFAULT-VALUE})")
+  private List<String> benchShapes = List.of("cube", "dragon");
+
+  @Option(names = {"--bench-threads"}, split = ",", description = "Thread counts to benchmark, 0 for the shared pool (default: ${DEFAULT-VALUE})")
+  private List<Integer> benchThreads = List.of(1, 0);
+
+  @Option(names = {"--bench-warmup"}, description = "Warm-up ticks per case (default: ${DEFAULT-VALUE})")
+  private int benchWarmup = 500;
+
+  @Option(names = {"--bench-ticks"}, description = "Measured ticks per case (default: ${DEFAULT-VALUE})")
+  private int benchTicks = 2000;
+
+  @Option(names = {"--bench-out"}, description = "Result file, JSON if it ends with .json, CSV otherwise (default: ${DEFAULT-VALUE})")
+  private Path benchOut = Path.of("bench-results.csv");
+
   public static void main(String[] args) {
     int exitCode = new CommandLine(new Main()).execute(args);
     if (exitCode != 0) {
@@ -81,23 +216,89 @@ public class Main implements Runnable {
 
   @Override
   public void run() {
-    AppConfig config = new AppConfig(
-      width,
-      height,
-      fullscreen,
-      palette,
-      shape,
-      cooling,
-      meshFiles,
-      autoRotate,
-      autoSwitch,
-      switchInterval,
-      paused,
-      stillFire,
-      gpu,
-      noVectorApi,
-      wireframe
-    );
+    AppConfig config = AppConfig.builder()
+      .width(width)
+      .height(height)
+      .fullscreen(fullscreen)
+      .palette(palette)
+      .shape(shape)
+      .cooling(cooling)
+      .meshFiles(meshFiles)
+      .shapeCacheMb(shapeCacheMb)
+      .autoRotate(autoRotate)
+      .autoSwitch(autoSwitch)
+      .switchInterval(switchInterval)
+      .paused(paused)
+      .stillFire(stillFire)
+      .gpu(gpu)
+      .noVectorApi(noVectorApi)
+      .threads(threads)
+      .seed(seed)
+      .recordInput(recordInput)
+      .replayInput(replayInput)
+      .metricsPort(metricsPort)
+      .spikeBudgetMs(spikeBudgetMs)
+      .spikeDir(spikeDir)
+      .spikeJfr(spikeJfr)
+      .exportPath(exportPath)
+      .exportFormat(exportFormat)
+      .exportPolicy(exportPolicy)
+      .exportFps(exportFps)
+      .recordFire(recordFire)
+      .playFire(playFire)
+      .broadcastPort(broadcastPort)
+      .broadcastFps(broadcastFps)
+      .sharedFrame(sharedFrame)
+      .sharedFrameContent(sharedFrameContent)
+      .wall(wall)
+      .wallTiles(wallTiles)
+      .bands(bands)
+      .snapshot(snapshot)
+      .preroll(preroll)
+      .jitWarmupMs(jitWarmupMs)
+      .wireframe(wireframe)
+      .build();
+    if (bench) {
+      runBenchmark(config);
+      return;
+    }
+    if (pipeOut != null) {
+      runPipeOut(config);
+      return;
+    }
+    if (headless) {
+      try {
+        new HeadlessRunner(config, frames).run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return;
+    }
     new AppFrame(config).setVisible(true);
   }
+
+  private void runPipeOut(AppConfig config) {
+    RawPixelFormat format = RawPixelFormat.parse(pipeFormat);
+    if (RawFrameWriter.STDOUT.equals(pipeOut)) {
+      // Stdout carries the frames, the console log goes to stderr instead
+      System.setOut(System.err);
+    }
+    try {
+      new PipeOutRunner(config, frames, pipeOut, format).run();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void runBenchmark(AppConfig config) {
+    List<BenchCase> cases = BenchCase.matrix(benchStrategies, benchResolutions, benchShapes, benchThreads);
+    try {
+      List<BenchResult> results = new BenchRunner(config, benchWarmup, benchTicks).runAll(cases);
+      BenchResults.write(benchOut, results);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write " + benchOut, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 }
@@ -0,0 +1,127 @@
+package org.kevinferrare.oldskoolfire;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.util.LatencyHistogram;
+import org.kevinferrare.oldskoolfire.util.Stage;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves the {@link SceneController}'s metrics at {@code http://127.0.0.1:<port>/metrics} in the Prometheus text
+ * exposition format: FPS, UPS, per-stage latency, allocation rate, convolution strategy, frame size and loaded
+ * mesh memory. Values are those of the last one-second period of the {@link PerformanceMonitor}.
+ * <p>
+ * Bound to the loopback interface only, a local agent or a tunnel does the scraping. Requests are handled on the
+ * server's own thread, they read published snapshots and never touch the simulation.
+ */
+@Slf4j
+public class MetricsServer implements AutoCloseable {
+
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final SceneController controller;
+  private final HttpServer server;
+
+  /**
+   * Starts serving on the given loopback port, 0 for any free port.
+   */
+  public MetricsServer(SceneController controller, int port) throws IOException {
+    this.controller = controller;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", this::handle);
+    server.start();
+    log.info("Metrics available at http://{}:{}/metrics", server.getAddress().getHostString(), getPort());
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = render().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  /**
+   * Formats the current metrics.
+   */
+  String render() {
+    PerformanceMonitor monitor = controller.getPerformanceMonitor();
+    Simulation engine = controller.getEngine();
+    SceneState state = engine.getState();
+    BufferedImage image = controller.getBufferedImage();
+    StringBuilder text = new StringBuilder(2048);
+
+    gauge(text, "oldskoolfire_fps", "Frames rendered per second", monitor.getFps());
+    gauge(text, "oldskoolfire_ups", "Simulation updates per second", monitor.getUps());
+    gauge(text, "oldskoolfire_allocated_bytes_per_second", "Heap allocation rate of all threads",
+      monitor.getAllocatedBytesPerSecond());
+
+    Map<Stage, LatencyHistogram.Snapshot> stages = monitor.getStageStats();
+    header(text, "oldskoolfire_stage_latency_seconds", "Frame stage duration percentiles");
+    stages.forEach((stage, snapshot) -> {
+      sample(text, "oldskoolfire_stage_latency_seconds{stage=\"" + stage.label() + "\",quantile=\"0.5\"}",
+        snapshot.p50() / 1e9);
+      sample(text, "oldskoolfire_stage_latency_seconds{stage=\"" + stage.label() + "\",quantile=\"0.99\"}",
+        snapshot.p99() / 1e9);
+    });
+    header(text, "oldskoolfire_stage_latency_max_seconds", "Frame stage maximum duration");
+    stages.forEach((stage, snapshot) ->
+      sample(text, "oldskoolfire_stage_latency_max_seconds{stage=\"" + stage.label() + "\"}", snapshot.max() / 1e9));
+    header(text, "oldskoolfire_stage_samples", "Frame stage durations measured");
+    stages.forEach((stage, snapshot) ->
+      sample(text, "oldskoolfire_stage_samples{stage=\"" + stage.label() + "\"}", snapshot.count()));
+
+    header(text, "oldskoolfire_convolution_strategy_info", "Convolution strategy in use");
+    sample(text, "oldskoolfire_convolution_strategy_info{strategy=\"" + escape(state.strategyName())
+      + "\",renderer=\"" + escape(state.renderer().getName()) + "\"}", 1);
+    gauge(text, "oldskoolfire_frame_width_pixels", "Width of the frames", image.getWidth());
+    gauge(text, "oldskoolfire_frame_height_pixels", "Height of the frames", image.getHeight());
+    gauge(text, "oldskoolfire_cooling", "Fire cooling factor", state.cooling());
+    gauge(text, "oldskoolfire_loaded_mesh_bytes", "Estimated memory held by the loaded meshes",
+      engine.getLoadedShapeBytes());
+    return text.toString();
+  }
+
+  private static void gauge(StringBuilder text, String name, String help, double value) {
+    header(text, name, help);
+    sample(text, name, value);
+  }
+
+  private static void header(StringBuilder text, String name, String help) {
+    text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(name).append(" gauge\n");
+  }
+
+  private static void sample(StringBuilder text, String series, double value) {
+    text.append(series).append(' ').append(String.format(Locale.ROOT, "%.9g", value)).append('\n');
+  }
+
+  private static String escape(String label) {
+    return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
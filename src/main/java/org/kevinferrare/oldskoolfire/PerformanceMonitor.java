@@ -1,16 +1,39 @@
 package org.kevinferrare.oldskoolfire;
 
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.util.Allocations;
+import org.kevinferrare.oldskoolfire.util.LatencyHistogram;
+import org.kevinferrare.oldskoolfire.util.Stage;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Monitors and calculates performance metrics (FPS and UPS) for the fire effect application.
+ * Monitors and calculates performance metrics (FPS and UPS) for the fire effect application,
+ * along with the p50/p99/max duration of each frame {@link Stage} and the allocation rate over the same period.
  * Thread-safe implementation using atomic operations.
  */
+@Slf4j
 public class PerformanceMonitor {
   private final AtomicInteger framesCount = new AtomicInteger(0);
   private final AtomicInteger updatesCount = new AtomicInteger(0);
   private final AtomicLong firstFrame = new AtomicLong(System.currentTimeMillis());
+  private final StageTimings stageTimings;
+  private volatile Map<Stage, LatencyHistogram.Snapshot> stageStats = new EnumMap<>(Stage.class);
+  private volatile double fps;
+  private volatile double ups;
+  private volatile double allocatedBytesPerSecond;
+  private volatile long allocatedAtPeriodStart = Allocations.totalAllocatedBytes();
+
+  /**
+   * @param stageTimings where the stages are recorded, the blit included (see {@link #beginStage})
+   */
+  public PerformanceMonitor(StageTimings stageTimings) {
+    this.stageTimings = stageTimings;
+  }
 
   /**
    * Records a frame render.
@@ -26,9 +49,54 @@ public class PerformanceMonitor {
     updatesCount.incrementAndGet();
   }
 
+  /**
+   * Starts timing a stage outside the engine (the blit).
+   *
+   * @return the start time to pass to {@link #recordStage}
+   */
+  public long beginStage(Stage stage) {
+    return stageTimings.begin(stage);
+  }
+
+  /**
+   * Records the time spent in a stage since {@code startNanos}, for stages outside the engine (the blit).
+   */
+  public void recordStage(Stage stage, long startNanos) {
+    stageTimings.record(stage, startNanos);
+  }
+
+  /**
+   * Returns the per-stage percentiles of the last completed period (see {@link #getStatsAndReset()}).
+   */
+  public Map<Stage, LatencyHistogram.Snapshot> getStageStats() {
+    return stageStats;
+  }
+
+  /**
+   * Returns the frames per second of the last completed period.
+   */
+  public double getFps() {
+    return fps;
+  }
+
+  /**
+   * Returns the updates per second of the last completed period.
+   */
+  public double getUps() {
+    return ups;
+  }
+
+  /**
+   * Returns the bytes allocated per second by all threads over the last completed period, -1 if unsupported.
+   */
+  public double getAllocatedBytesPerSecond() {
+    return allocatedBytesPerSecond;
+  }
+
   /**
    * Gets the current performance statistics as a formatted string.
-   * Resets counters if more than 1 second has elapsed.
+   * Resets counters and stage histograms if more than 1 second has elapsed, the stage percentiles
+   * are then logged and available from {@link #getStageStats()}.
    *
    * @return formatted string like "Fire: 60.0 FPS / 120.0 UPS", or null if not enough time has passed
    */
@@ -43,11 +111,21 @@ public class PerformanceMonitor {
 
       double fps = 1000.0 * frames / diff;
       double ups = 1000.0 * updates / diff;
+      this.fps = fps;
+      this.ups = ups;
+      long allocated = Allocations.totalAllocatedBytes();
+      // Threads that terminated during the period take their allocations with them, never report less than 0
+      this.allocatedBytesPerSecond = allocated < 0 ? -1 : Math.max(0, allocated - allocatedAtPeriodStart) * 1000.0 / diff;
+      allocatedAtPeriodStart = allocated;
 
       // Reset counters for next period
       firstFrame.set(current);
       framesCount.set(0);
       updatesCount.set(0);
+      stageStats = stageTimings.snapshotAndReset();
+      if (log.isDebugEnabled()) {
+        log.debug("Stages p50/p99/max: {}", StageTimings.format(stageStats));
+      }
 
       return String.format("Fire: %.1f FPS / %.1f UPS", fps, ups);
     }
@@ -62,5 +140,7 @@ public class PerformanceMonitor {
     firstFrame.set(System.currentTimeMillis());
     framesCount.set(0);
     updatesCount.set(0);
+    stageTimings.snapshotAndReset();
+    allocatedAtPeriodStart = Allocations.totalAllocatedBytes();
   }
 }
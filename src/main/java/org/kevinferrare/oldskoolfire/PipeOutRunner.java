@@ -0,0 +1,81 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.export.FrameExporter;
+import org.kevinferrare.oldskoolfire.export.RawFrameWriter;
+import org.kevinferrare.oldskoolfire.export.RawPixelFormat;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Runs the {@link Simulation} without any window and streams its frames as raw video to the standard output or
+ * a named pipe, for an external encoder such as ffmpeg.
+ * <p>
+ * The simulation runs at a fixed rate: every frame advances it by the ticks of 1 / fps seconds at
+ * {@link FireEngine#FIXED_DELTA_SEC} per tick, the pace it has in a window on a fast machine, however long the
+ * frame takes to compute or the reader takes to consume it. Frames go from {@link FireEngine#renderTo} to the
+ * {@link RawFrameWriter} buffer in one conversion pass, nothing is allocated per frame.
+ */
+@Slf4j
+public class PipeOutRunner {
+
+  private static final Duration SHAPE_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+  private final AppConfig config;
+  private final long frames;
+  private final String target;
+  private final RawPixelFormat format;
+
+  /**
+   * @param frames number of frames to write, 0 or less to run until the reader closes the pipe
+   * @param target {@link RawFrameWriter#STDOUT} or a file or named pipe
+   */
+  public PipeOutRunner(AppConfig config, long frames, String target, RawPixelFormat format) {
+    this.config = config;
+    this.frames = frames;
+    this.target = target;
+    this.format = format;
+  }
+
+  /**
+   * Returns the number of ticks simulated per frame at the given frame rate, at least one.
+   */
+  static int ticksPerFrame(int fps) {
+    return (int) Math.max(1, Math.round(1.0 / (FireEngine.FIXED_DELTA_SEC * fps)));
+  }
+
+  public void run() throws InterruptedException {
+    int fps = config.exportFps() > 0 ? config.exportFps() : FrameExporter.DEFAULT_FPS;
+    int ticksPerFrame = ticksPerFrame(fps);
+    try (Simulation engine = Simulation.create(config.width(), config.height(), config);
+         RawFrameWriter out = RawFrameWriter.open(target, format, config.width(), config.height())) {
+      if (!engine.awaitShape(SHAPE_LOAD_TIMEOUT)) {
+        log.warn("Shape '{}' not loaded, running without it", engine.getState().shapeName());
+      }
+      Preroll.run(engine, config.preroll());
+      log.info("Streaming {}x{} {} frames at {} fps ({} ticks each) to {}, read with: -f rawvideo -pix_fmt {} "
+          + "-s {}x{} -r {} -i {}", config.width(), config.height(), format.pixFmt(), fps, ticksPerFrame, target,
+        format.pixFmt(), config.width(), config.height(), fps, target);
+      int[] pixels = new int[config.width() * config.height()];
+      long start = System.nanoTime();
+      try {
+        while (frames <= 0 || out.getWrittenFrames() < frames) {
+          for (int i = 0; i < ticksPerFrame; i++) {
+            engine.step(FireEngine.FIXED_DELTA_SEC);
+          }
+          engine.renderTo(pixels);
+          out.write(pixels);
+        }
+      } catch (IOException e) {
+        // The usual end of an unlimited stream: the encoder exited
+        log.info("Output closed by the reader: {}", e.getMessage());
+      }
+      double elapsedSec = (System.nanoTime() - start) / 1_000_000_000.0;
+      log.info("Streamed {} frames in {} s ({} frames/s)", out.getWrittenFrames(), String.format("%.3f", elapsedSec),
+        String.format("%.1f", out.getWrittenFrames() / elapsedSec));
+    } catch (IOException e) {
+      log.error("Cannot stream frames to {}", target, e);
+    }
+  }
+}
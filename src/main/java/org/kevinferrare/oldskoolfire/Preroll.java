@@ -0,0 +1,40 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Fast-forwards a {@link Simulation} before its first frame is shown ({@link AppConfig#preroll()}), so that the fire
+ * starts fully grown rather than climbing from black. The ticks run back to back at
+ * {@link FireEngine#FIXED_DELTA_SEC} without any render, each spread across the cores like any other tick.
+ */
+@Slf4j
+final class Preroll {
+
+  private static final Duration SHAPE_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+  private Preroll() {
+  }
+
+  /**
+   * Runs the ticks once the shapes are loaded, so that their heat is part of the fire. A paused simulation is not
+   * fast-forwarded.
+   */
+  static void run(Simulation simulation, int ticks) throws InterruptedException {
+    if (ticks <= 0) {
+      return;
+    }
+    if (!simulation.awaitShape(SHAPE_LOAD_TIMEOUT)) {
+      log.warn("Shape '{}' not loaded, prerolling without it", simulation.getState().shapeName());
+    }
+    long start = System.nanoTime();
+    int stepped = 0;
+    for (int i = 0; i < ticks; i++) {
+      if (simulation.step(FireEngine.FIXED_DELTA_SEC)) {
+        stepped++;
+      }
+    }
+    log.info("Prerolled {} ticks in {} ms", stepped, (System.nanoTime() - start) / 1_000_000);
+  }
+}
@@ -0,0 +1,27 @@
+package org.kevinferrare.oldskoolfire;
+
+/**
+ * Commands that can be sent to the {@link FireEngine}.
+ * They are queued and applied by the simulation thread at the start of its next tick.
+ * Commands taking an amount (scale, Z offset) or a value (palette or shape index, cooling) receive it
+ * as a separate argument.
+ */
+public enum SceneCommand {
+  NEXT_PALETTE,
+  PREVIOUS_PALETTE,
+  SET_PALETTE,
+  NEXT_SHAPE,
+  PREVIOUS_SHAPE,
+  SET_SHAPE,
+  INCREASE_SCALE,
+  INCREASE_Z,
+  TOGGLE_STILL_SHAPE,
+  TOGGLE_STILL_FIRE_BOTTOM,
+  TOGGLE_AUTO_ROTATE,
+  TOGGLE_AUTOMATIC_SCENE_SWITCH,
+  INCREASE_COOLING,
+  DECREASE_COOLING,
+  SET_COOLING,
+  TOGGLE_RENDERER,
+  TOGGLE_PAUSE
+}
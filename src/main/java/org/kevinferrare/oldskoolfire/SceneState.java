@@ -0,0 +1,43 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.renderer.SceneRenderer;
+
+/**
+ * Immutable snapshot of the scene, published by the simulation thread for readers on other threads.
+ * The render thread and the title updates read it wait-free instead of touching the simulation's mutable state.
+ *
+ * @param palette         palette used to render the fire intensities
+ * @param shapeName       name of the selected shape (it may still be loading)
+ * @param renderer        active renderer
+ * @param strategyName    name of the convolution strategy in use
+ * @param cooling         fire cooling factor
+ * @param scale           scale of the displayed shape
+ * @param translateZ      Z offset of the displayed shape
+ * @param paused          whether the simulation is paused
+ * @param autoRotate      whether the shape rotates by itself
+ * @param autoSwitch      whether scenes switch automatically
+ * @param stillFireBottom whether the fire source has a fixed intensity
+ */
+public record SceneState(
+  Palette palette,
+  String shapeName,
+  SceneRenderer renderer,
+  String strategyName,
+  int cooling,
+  double scale,
+  double translateZ,
+  boolean paused,
+  boolean autoRotate,
+  boolean autoSwitch,
+  boolean stillFireBottom
+) {
+
+  /**
+   * Formats the window title from this snapshot and the latest performance statistics.
+   */
+  public String title(String stats) {
+    return String.format("%s | %s | %s | %s | %s",
+      renderer.getName(), strategyName, shapeName, palette.name(), stats);
+  }
+}
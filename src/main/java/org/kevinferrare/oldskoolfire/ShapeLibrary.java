@@ -0,0 +1,258 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.brush.Material;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3DFactory;
+import org.kevinferrare.oldskoolfire.drawable.threed.Mesh;
+import org.kevinferrare.oldskoolfire.drawable.threed.Transform;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.ShapeSource;
+import org.kevinferrare.oldskoolfire.jfr.ShapeLoadEvent;
+import org.kevinferrare.oldskoolfire.util.Named;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The list of shapes the {@link SceneController} can display.
+ * Shapes are loaded, normalized and turned into {@link Entity3D} instances on background virtual threads.
+ * The simulation thread only picks up shapes that are already built and never waits for a load:
+ * {@link #getIfReady(int)} returns null until the background work is done.
+ * <p>
+ * Loaded meshes are cached within a memory budget. When the budget is exceeded the least recently
+ * shown (or requested) meshes are evicted, their {@link Transform} and {@link Material} are kept so that
+ * a reload through the {@link ShapeSource} brings the shape back exactly as it was left.
+ */
+@Slf4j
+public class ShapeLibrary implements AutoCloseable {
+
+  /**
+   * A shape, its (possibly still running) background load and the state surviving evictions.
+   */
+  private static final class Slot implements Named {
+    private final ShapeSource source;
+    private volatile CompletableFuture<Entity3D> entity;
+    private volatile long lastUsed;
+    private long residentBytes;       // guarded by the library
+    private Transform transform;      // kept across evictions, set once first built
+    private Material material;
+
+    Slot(ShapeSource source) {
+      this.source = source;
+    }
+
+    @Override
+    public String name() {
+      return source.name();
+    }
+  }
+
+  private final Slot[] slots;
+  private final Entity3DFactory factory;
+  private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+  private final double initialScale;
+  private final long budgetBytes;
+  private final AtomicLong clock = new AtomicLong();
+  private long residentBytes;         // guarded by this
+  private volatile int shownIndex = -1;
+
+  /**
+   * @param sources      shapes to offer, in display order
+   * @param initialScale scale applied to shapes the first time they are built
+   * @param budgetBytes  memory budget for loaded meshes, 0 or less for unlimited
+   * @param streams      random streams of the engine showing the shapes, seed their materials
+   */
+  public ShapeLibrary(List<ShapeSource> sources, double initialScale, long budgetBytes, RandomStreams streams) {
+    this.slots = sources.stream().map(Slot::new).toArray(Slot[]::new);
+    this.factory = new Entity3DFactory(streams);
+    this.initialScale = initialScale;
+    this.budgetBytes = budgetBytes;
+  }
+
+  public int size() {
+    return slots.length;
+  }
+
+  public String name(int index) {
+    return slots[index].name();
+  }
+
+  /**
+   * Find the index of a shape by name (case-insensitive).
+   *
+   * @return index if found, 0 otherwise
+   */
+  public int findIndex(String name) {
+    return Named.findIndex(slots, name);
+  }
+
+  /**
+   * Returns the estimated heap memory held by the currently loaded meshes.
+   */
+  public synchronized long residentBytes() {
+    return residentBytes;
+  }
+
+  /**
+   * Starts loading the given shape in the background if not already loaded or loading.
+   * Counts as a use for the eviction order.
+   */
+  public void prefetch(int index) {
+    Slot slot = slots[index];
+    slot.lastUsed = clock.incrementAndGet();
+    if (slot.entity != null) {
+      return;
+    }
+    CompletableFuture<Entity3D> entity;
+    synchronized (slot) {
+      if (slot.entity != null) {
+        return;
+      }
+      entity = CompletableFuture.supplyAsync(() -> build(slot), loader);
+      slot.entity = entity;
+    }
+    // Outside the slot lock: the callback may run right here and takes the library lock
+    entity.whenComplete((built, e) -> {
+      if (e != null) {
+        log.error("Failed to load shape '{}'", slot.name(), e);
+      } else {
+        onLoaded(slot, entity, built.mesh());
+      }
+    });
+  }
+
+  /**
+   * Prefetches the given shape along with the previous and next ones, so that stepping through shapes
+   * finds them already built.
+   */
+  public void prefetchAround(int index) {
+    prefetch(wrap(index + 1));
+    prefetch(wrap(index - 1));
+    prefetch(index);
+  }
+
+  /**
+   * Prefetches every shape coming from a user supplied mesh file.
+   */
+  public void prefetchExternal() {
+    for (int i = 0; i < slots.length; i++) {
+      if (slots[i].source.external()) {
+        prefetch(i);
+      }
+    }
+  }
+
+  /**
+   * Returns the built shape, or null if it is still loading (or failed to load). Never blocks.
+   * Triggers a background load if the shape was not prefetched or was evicted.
+   * The returned shape is considered shown and is never evicted while it stays the last one requested.
+   */
+  public Entity3D getIfReady(int index) {
+    if (index != shownIndex) {
+      shownIndex = index;
+      prefetch(index);
+    }
+    CompletableFuture<Entity3D> entity = slots[index].entity;
+    if (entity == null) {
+      prefetch(index);
+      return null;
+    }
+    if (!entity.isDone() || entity.isCompletedExceptionally()) {
+      return null;
+    }
+    return entity.join();
+  }
+
+  /**
+   * Waits for the given shape to be built, loading it if needed. For callers that can afford to block,
+   * like headless runs that want the shape on their first frame.
+   *
+   * @return true if the shape is ready, false if it failed to load or the timeout elapsed
+   */
+  public boolean awaitLoaded(int index, Duration timeout) throws InterruptedException {
+    prefetch(index);
+    CompletableFuture<Entity3D> entity = slots[index].entity;
+    if (entity == null) {
+      return false; // Evicted right away, the budget is too small for it
+    }
+    try {
+      entity.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (ExecutionException | TimeoutException e) {
+      return false;
+    }
+  }
+
+  private Entity3D build(Slot slot) {
+    ShapeLoadEvent event = ShapeLoadEvent.start(slot.name());
+    Mesh mesh = slot.source.load();
+    Entity3D entity;
+    boolean reload;
+    synchronized (slot) {
+      reload = slot.transform != null;
+      if (!reload) {
+        entity = factory.createScaled(slot.name(), mesh, initialScale);
+        slot.transform = entity.transform();
+        slot.material = entity.material();
+      } else {
+        entity = factory.recreate(slot.name(), mesh, slot.transform, slot.material);
+      }
+    }
+    if (event.shouldCommit()) {
+      Mesh normalized = entity.mesh();
+      event.end(reload, normalized.vertices().length, normalized.lines().length / 2, normalized.estimatedBytes());
+    }
+    return entity;
+  }
+
+  private synchronized void onLoaded(Slot slot, CompletableFuture<Entity3D> entity, Mesh mesh) {
+    if (slot.entity != entity) {
+      return; // Evicted or closed while loading
+    }
+    slot.residentBytes = mesh.estimatedBytes();
+    residentBytes += slot.residentBytes;
+    evictOverBudget();
+  }
+
+  /**
+   * Drops least recently used meshes until the resident size fits the budget. The shown shape is kept.
+   */
+  private void evictOverBudget() {
+    while (budgetBytes > 0 && residentBytes > budgetBytes) {
+      Slot victim = null;
+      for (int i = 0; i < slots.length; i++) {
+        Slot slot = slots[i];
+        if (i != shownIndex && slot.residentBytes > 0 && (victim == null || slot.lastUsed < victim.lastUsed)) {
+          victim = slot;
+        }
+      }
+      if (victim == null) {
+        return;
+      }
+      synchronized (victim) {
+        victim.entity = null;
+      }
+      residentBytes -= victim.residentBytes;
+      log.info("Evicted shape '{}' ({} KiB), {} KiB resident", victim.name(),
+        victim.residentBytes / 1024, residentBytes / 1024);
+      victim.residentBytes = 0;
+    }
+  }
+
+  private int wrap(int index) {
+    return (index % slots.length + slots.length) % slots.length;
+  }
+
+  @Override
+  public void close() {
+    loader.shutdownNow();
+  }
+}
@@ -0,0 +1,75 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * What the window, headless and streaming runs drive: a single {@link FireEngine}, or a {@link TileWall} of them.
+ * See {@link FireEngine} for the threading rules.
+ */
+public interface Simulation extends AutoCloseable {
+
+  /**
+   * Creates the simulation the configuration asks for: a tile wall if {@link AppConfig#wall()} is set.
+   */
+  static Simulation create(int width, int height, AppConfig config) {
+    return config.wall() != null ? new TileWall(width, height, config) : new FireEngine(width, height, config);
+  }
+
+  /**
+   * Advances the simulation by one tick.
+   *
+   * @return false if paused, no frame was produced
+   */
+  boolean step(double deltaSec);
+
+  /**
+   * Converts the latest completed frame to RGB pixels.
+   *
+   * @return false if the frame was skipped because it does not match the target size (resize in progress)
+   */
+  boolean renderTo(int[] target);
+
+  /**
+   * Changes the size of the frames. Called by the stepping thread.
+   */
+  void resize(int width, int height);
+
+  /**
+   * Waits for the selected shapes to be loaded.
+   *
+   * @return false if one failed to load or is not ready within the timeout
+   */
+  boolean awaitShape(Duration timeout) throws InterruptedException;
+
+  /**
+   * Returns the latest scene snapshot, safe to call from any thread.
+   */
+  SceneState getState();
+
+  /**
+   * Returns the durations of the stages of {@link #step} and {@link #renderTo}.
+   */
+  StageTimings getStageTimings();
+
+  /**
+   * Returns the estimated memory held by the loaded meshes. Safe to call from any thread.
+   */
+  long getLoadedShapeBytes();
+
+  /**
+   * Returns the convolution the ticks run, null if the fire is played back or simulated in other processes.
+   */
+  ConvolveAndRiseEffect getConvolution();
+
+  /**
+   * Sends a command to every engine, e.g. {@code simulation.command(FireEngine::nextPalette)}.
+   */
+  void command(Consumer<FireEngine> command);
+
+  @Override
+  void close();
+}
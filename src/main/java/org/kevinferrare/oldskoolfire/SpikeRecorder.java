@@ -0,0 +1,304 @@
+package org.kevinferrare.oldskoolfire;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.util.Stage;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Flight recorder for rare hitches: keeps the stage timings, GC activity and scene of the last ticks in a ring
+ * of preallocated arrays, and when a tick or a frame exceeds the budget, dumps the ring around it to a CSV file
+ * in the spike directory (plus a JFR snapshot when enabled). Per-second averages hide such spikes, and this
+ * does not need a profiler attached.
+ * <p>
+ * A dump is written once {@link #DEFAULT_TICKS_AFTER} more ticks are recorded, so that it shows what happened
+ * after the spike too, on a background thread so that writing it does not cause the next hitch. Spikes during
+ * the first ring's worth of ticks (start-up, JIT warm-up) are ignored, and at most one dump is written every
+ * {@link #MIN_DUMP_INTERVAL}.
+ * <p>
+ * <b>Thread safety:</b> {@link #recordTick} from the stepping thread, {@link #recordFrame} from the rendering one.
+ * Recording allocates nothing.
+ */
+@Slf4j
+public class SpikeRecorder implements AutoCloseable {
+
+  static final int DEFAULT_CAPACITY = 4096;
+  static final int DEFAULT_TICKS_AFTER = 256;
+  static final Duration MIN_DUMP_INTERVAL = Duration.ofSeconds(10);
+  private static final Duration JFR_MAX_AGE = Duration.ofMinutes(2);
+  private static final Stage[] STAGES = Stage.values();
+  private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private final StageTimings timings;
+  private final long budgetNanos;
+  private final Path directory;
+  private final Recording jfr;                // null unless JFR snapshots are enabled
+  private final GarbageCollectorMXBean[] collectors;
+  private final int capacity;
+  private final int ticksAfter;
+  private final ExecutorService writer;
+
+  // The ring, stepping thread only
+  private final long[] ticks;
+  private final long[] epochMillis;
+  private final long[] tickNanos;
+  private final long[] frameNanos;
+  private final long[] stageNanos;            // STAGES.length per tick
+  private final long[] gcCounts;
+  private final long[] gcMillis;
+  private final SceneState[] states;
+  private final boolean[] spikes;
+  private long written;
+  private long dumpAt = -1;                   // value of written at which the pending dump is taken, -1 if none
+  private long spikeTick;
+  private long lastDumpNanos;
+
+  // Written by the rendering thread
+  private volatile long latestFrameNanos;
+  private final AtomicBoolean frameSpike = new AtomicBoolean();
+
+  /**
+   * @param timings     where the stage durations are read after each tick
+   * @param budgetNanos longest acceptable tick or frame
+   * @param directory   where dumps are written, created when needed
+   * @param jfrSnapshot whether to keep a JFR recording running and dump it next to each spike
+   */
+  public SpikeRecorder(StageTimings timings, long budgetNanos, Path directory, boolean jfrSnapshot) {
+    this(timings, budgetNanos, directory, jfrSnapshot, DEFAULT_CAPACITY, DEFAULT_TICKS_AFTER);
+  }
+
+  SpikeRecorder(StageTimings timings, long budgetNanos, Path directory, boolean jfrSnapshot,
+                int capacity, int ticksAfter) {
+    if (ticksAfter >= capacity) {
+      throw new IllegalArgumentException("The ring must hold the ticks after the spike and the spike itself");
+    }
+    this.timings = timings;
+    this.budgetNanos = budgetNanos;
+    this.directory = directory;
+    this.capacity = capacity;
+    this.ticksAfter = ticksAfter;
+    this.collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+    this.ticks = new long[capacity];
+    this.epochMillis = new long[capacity];
+    this.tickNanos = new long[capacity];
+    this.frameNanos = new long[capacity];
+    this.stageNanos = new long[capacity * STAGES.length];
+    this.gcCounts = new long[capacity];
+    this.gcMillis = new long[capacity];
+    this.states = new SceneState[capacity];
+    this.spikes = new boolean[capacity];
+    this.lastDumpNanos = System.nanoTime() - MIN_DUMP_INTERVAL.toNanos();
+    this.writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("SpikeWriter").daemon().factory());
+    this.jfr = jfrSnapshot ? startRecording() : null;
+  }
+
+  private static Recording startRecording() {
+    try {
+      Recording recording = new Recording(Configuration.getConfiguration("default"));
+      recording.setName("spike-capture");
+      recording.setToDisk(true);
+      recording.setMaxAge(JFR_MAX_AGE);
+      recording.start();
+      return recording;
+    } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+      log.warn("Cannot start the JFR recording, spikes are dumped without it", e);
+      return null;
+    }
+  }
+
+  /**
+   * Records the duration of a frame conversion, a frame over budget marks the next tick as a spike.
+   */
+  public void recordFrame(long nanos) {
+    latestFrameNanos = nanos;
+    if (nanos > budgetNanos) {
+      frameSpike.set(true);
+    }
+  }
+
+  /**
+   * Records a completed tick, with the latest stage durations and the scene it ran with.
+   */
+  public void recordTick(long tick, long nanos, SceneState state) {
+    int i = (int) (written % capacity);
+    ticks[i] = tick;
+    epochMillis[i] = System.currentTimeMillis();
+    tickNanos[i] = nanos;
+    frameNanos[i] = latestFrameNanos;
+    for (int s = 0; s < STAGES.length; s++) {
+      stageNanos[i * STAGES.length + s] = timings.latestNanos(STAGES[s]);
+    }
+    long count = 0;
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : collectors) {
+      // -1 when undefined for this collector
+      count += Math.max(0, collector.getCollectionCount());
+      millis += Math.max(0, collector.getCollectionTime());
+    }
+    gcCounts[i] = count;
+    gcMillis[i] = millis;
+    states[i] = state;
+    // Not short-circuited, a frame spike is consumed even when the tick is one too
+    boolean spike = nanos > budgetNanos | frameSpike.getAndSet(false);
+    spikes[i] = spike;
+    written++;
+
+    if (spike && dumpAt < 0 && written > capacity) {
+      long now = System.nanoTime();
+      if (now - lastDumpNanos >= MIN_DUMP_INTERVAL.toNanos()) {
+        dumpAt = written + ticksAfter;
+        spikeTick = tick;
+      }
+    }
+    if (written == dumpAt) {
+      dump();
+    }
+  }
+
+  /**
+   * Copies the ring, oldest tick first, and hands it to the writer thread.
+   */
+  private void dump() {
+    dumpAt = -1;
+    lastDumpNanos = System.nanoTime();
+    int size = (int) Math.min(written, capacity);
+    Window window = new Window(spikeTick, size);
+    for (int row = 0; row < size; row++) {
+      int i = (int) ((written - size + row) % capacity);
+      window.ticks[row] = ticks[i];
+      window.epochMillis[row] = epochMillis[i];
+      window.tickNanos[row] = tickNanos[i];
+      window.frameNanos[row] = frameNanos[i];
+      System.arraycopy(stageNanos, i * STAGES.length, window.stageNanos, row * STAGES.length, STAGES.length);
+      window.gcCounts[row] = gcCounts[i];
+      window.gcMillis[row] = gcMillis[i];
+      window.states[row] = states[i];
+      window.spikes[row] = spikes[i];
+    }
+    writer.execute(() -> write(window));
+  }
+
+  private void write(Window window) {
+    String name = "spike-" + LocalDateTime.now().format(FILE_TIME) + "-tick" + window.spikeTick;
+    Path csv = directory.resolve(name + ".csv");
+    try {
+      Files.createDirectories(directory);
+      try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+        window.writeCsv(out, budgetNanos);
+      }
+      if (jfr != null) {
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+          snapshot.dump(directory.resolve(name + ".jfr"));
+        }
+      }
+      log.info("Frame spike at tick {}, {} ticks around it dumped to {}", window.spikeTick, window.size, csv);
+    } catch (IOException e) {
+      log.warn("Cannot dump the frame spike at tick {} to {}", window.spikeTick, csv, e);
+    }
+  }
+
+  /**
+   * Dumps a spike still waiting for its following ticks, then waits for the dumps to be written.
+   */
+  @Override
+  public void close() {
+    if (dumpAt >= 0) {
+      dump();
+    }
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Frame spike dumps still being written");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (jfr != null) {
+      jfr.close();
+    }
+  }
+
+  /**
+   * A copy of the ring, oldest tick first.
+   */
+  private static final class Window {
+    private final long spikeTick;
+    private final int size;
+    private final long[] ticks;
+    private final long[] epochMillis;
+    private final long[] tickNanos;
+    private final long[] frameNanos;
+    private final long[] stageNanos;
+    private final long[] gcCounts;
+    private final long[] gcMillis;
+    private final SceneState[] states;
+    private final boolean[] spikes;
+
+    Window(long spikeTick, int size) {
+      this.spikeTick = spikeTick;
+      this.size = size;
+      this.ticks = new long[size];
+      this.epochMillis = new long[size];
+      this.tickNanos = new long[size];
+      this.frameNanos = new long[size];
+      this.stageNanos = new long[size * STAGES.length];
+      this.gcCounts = new long[size];
+      this.gcMillis = new long[size];
+      this.states = new SceneState[size];
+      this.spikes = new boolean[size];
+    }
+
+    /**
+     * Durations in microseconds, GC columns are the collections (and their time) since the previous row.
+     */
+    void writeCsv(BufferedWriter out, long budgetNanos) throws IOException {
+      out.write("# spike at tick " + spikeTick + ", budget " + budgetNanos / 1000 + " us");
+      out.newLine();
+      StringBuilder header = new StringBuilder("tick,epoch_ms,tick_us,frame_us");
+      for (Stage stage : STAGES) {
+        header.append(',').append(stage.label()).append("_us");
+      }
+      header.append(",gc_count,gc_ms,renderer,strategy,shape,palette,cooling,spike");
+      out.write(header.toString());
+      out.newLine();
+      for (int row = 0; row < size; row++) {
+        StringBuilder line = new StringBuilder();
+        line.append(ticks[row]).append(',').append(epochMillis[row])
+          .append(',').append(tickNanos[row] / 1000).append(',').append(frameNanos[row] / 1000);
+        for (int s = 0; s < STAGES.length; s++) {
+          line.append(',').append(stageNanos[row * STAGES.length + s] / 1000);
+        }
+        line.append(',').append(row > 0 ? gcCounts[row] - gcCounts[row - 1] : 0)
+          .append(',').append(row > 0 ? gcMillis[row] - gcMillis[row - 1] : 0);
+        SceneState state = states[row];
+        if (state != null) {
+          line.append(',').append(state.renderer().getName()).append(',').append(state.strategyName())
+            .append(',').append(state.shapeName()).append(',').append(state.palette().name())
+            .append(',').append(state.cooling());
+        } else {
+          line.append(",,,,,");
+        }
+        line.append(',').append(spikes[row] ? 1 : 0);
+        out.write(line.toString());
+        out.newLine();
+      }
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package org.kevinferrare.oldskoolfire;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.ShapeSource;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.util.FrameTaskGraph;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * A grid of independent fire simulations in one frame, each {@link FireEngine} with its own shape, palette,
+ * cooling and seed: {@link AppConfig#wall()} gives the grid ("COLUMNSxROWS"), {@link AppConfig#wallTiles()} the
+ * settings of the first tiles ("shape:palette:cooling", any part may be left empty), the other tiles cycle
+ * through the shapes and palettes.
+ * <p>
+ * A step runs the engines' ticks as the tasks of one {@link FrameTaskGraph} on a fixed pool (the shared one, or
+ * {@link AppConfig#threads()} workers), each tick on a single worker: throughput scales with the cores up to one
+ * core per tile, without any thread per simulation. A render converts each tile in turn into its own buffer,
+ * then copies it to its place in the frame; pixels left over by the division in tiles stay black.
+ * <p>
+ * Commands go to every tile. The scene state shown in the title and the stage timings are those of the first
+ * tile. Frame export, broadcast, fire recording, spike capture and snapshots only apply to single engines.
+ * <p>
+ * <b>Thread safety:</b> same as {@link FireEngine}.
+ */
+@Slf4j
+public class TileWall implements Simulation {
+
+  /**
+   * Buffers of one frame size, replaced as a whole on resize so that the render thread never sees a mix.
+   */
+  private record Layout(int width, int height, int tileWidth, int tileHeight, int[][] tilePixels) {
+  }
+
+  private final int columns;
+  private final int rows;
+  private final FireEngine[] tiles;
+  private final ForkJoinPool pool;            // runs the step graph
+  private final boolean ownsPool;
+  private final ForkJoinPool inlinePool = new ForkJoinPool(1); // tile ticks run on the worker stepping them
+  private final FrameTaskGraph stepGraph;
+  private final boolean[] stepped;
+  private double deltaSec;                    // of the running step, read by the tile tasks
+  private volatile Layout layout;
+
+  public TileWall(int width, int height, AppConfig config) {
+    int separator = config.wall().toLowerCase(Locale.ROOT).indexOf('x');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Invalid wall '" + config.wall() + "', expected COLUMNSxROWS");
+    }
+    this.columns = Integer.parseInt(config.wall().substring(0, separator).trim());
+    this.rows = Integer.parseInt(config.wall().substring(separator + 1).trim());
+    if (columns < 1 || rows < 1 || width / columns < 1 || height / rows < 1) {
+      throw new IllegalArgumentException("Invalid wall " + columns + "x" + rows + " for " + width + "x" + height);
+    }
+
+    this.ownsPool = config.threads() > 0;
+    this.pool = ownsPool ? new ForkJoinPool(config.threads()) : ForkJoinPool.commonPool();
+    this.tiles = new FireEngine[columns * rows];
+    this.stepped = new boolean[tiles.length];
+    this.stepGraph = new FrameTaskGraph(pool);
+    List<String> shapes = ShapeSource.builtIns().stream()
+      .map(ShapeSource::name)
+      .filter(name -> !name.equals("none"))
+      .toList();
+    List<String> palettes = FireEngine.createBuiltInPalettes().stream().map(Palette::name).toList();
+    int tileWidth = width / columns;
+    int tileHeight = height / rows;
+    for (int i = 0; i < tiles.length; i++) {
+      String[] spec = i < config.wallTiles().size() ? config.wallTiles().get(i).split(":", -1) : new String[0];
+      String shape = part(spec, 0, shapes.get(i % shapes.size()));
+      String palette = part(spec, 1, palettes.get(i % palettes.size()));
+      int cooling = Integer.parseInt(part(spec, 2, Integer.toString(config.cooling())));
+      Long seed = config.seed() != null ? config.seed() + i : null;
+      tiles[i] = new FireEngine(tileWidth, tileHeight, tileConfig(config, tileWidth, tileHeight, shape, palette,
+        cooling, seed), inlinePool);
+      int tile = i;
+      stepGraph.add(() -> stepped[tile] = tiles[tile].step(deltaSec));
+    }
+    this.layout = createLayout(width, height);
+    log.info("Tile wall of {}x{} fires of {}x{} on {} workers", columns, rows, tileWidth, tileHeight,
+      pool.getParallelism());
+    if (config.snapshot() != null) {
+      log.warn("Snapshots only apply to single engines, ignoring {}", config.snapshot());
+    }
+  }
+
+  private static String part(String[] spec, int index, String fallback) {
+    return index < spec.length && !spec[index].isBlank() ? spec[index].trim() : fallback;
+  }
+
+  /**
+   * Returns the configuration of a tile: the wall's with the tile's size and settings, one thread, and without
+   * the outputs and input scripts, which apply to the whole wall.
+   */
+  private static AppConfig tileConfig(AppConfig wall, int width, int height, String shape, String palette,
+                                      int cooling, Long seed) {
+    return wall.toBuilder()
+      .width(width)
+      .height(height)
+      .fullscreen(false)
+      .palette(palette)
+      .shape(shape)
+      .cooling(cooling)
+      .threads(1)
+      .seed(seed)
+      .recordInput(null)
+      .replayInput(null)
+      .metricsPort(0)
+      .spikeBudgetMs(0)
+      .spikeJfr(false)
+      .exportPath(null)
+      .recordFire(null)
+      .playFire(null)
+      .broadcastPort(0)
+      .sharedFrame(null)
+      .wall(null)
+      .wallTiles(List.of())
+      .bands(0)
+      .snapshot(null)
+      .preroll(0)
+      .jitWarmupMs(0)
+      .build();
+  }
+
+  private Layout createLayout(int width, int height) {
+    // At least a pixel, a window smaller than the grid renders nothing
+    int tileWidth = Math.max(1, width / columns);
+    int tileHeight = Math.max(1, height / rows);
+    int[][] tilePixels = new int[tiles.length][tileWidth * tileHeight];
+    return new Layout(width, height, tileWidth, tileHeight, tilePixels);
+  }
+
+  @Override
+  public boolean step(double deltaSec) {
+    this.deltaSec = deltaSec;
+    stepGraph.run();
+    boolean any = false;
+    for (boolean tileStepped : stepped) {
+      any |= tileStepped;
+    }
+    return any;
+  }
+
+  @Override
+  public boolean renderTo(int[] target) {
+    Layout current = layout;
+    if (target.length != current.width() * current.height()
+      || current.tileWidth() * columns > current.width() || current.tileHeight() * rows > current.height()) {
+      return false;
+    }
+    boolean rendered = true;
+    int tileWidth = current.tileWidth();
+    int tileHeight = current.tileHeight();
+    for (int i = 0; i < tiles.length; i++) {
+      int[] pixels = current.tilePixels()[i];
+      if (!tiles[i].renderTo(pixels)) {
+        rendered = false;
+        continue;
+      }
+      int x = (i % columns) * tileWidth;
+      int y = (i / columns) * tileHeight;
+      for (int row = 0; row < tileHeight; row++) {
+        System.arraycopy(pixels, row * tileWidth, target, (y + row) * current.width() + x, tileWidth);
+      }
+    }
+    return rendered;
+  }
+
+  @Override
+  public void resize(int width, int height) {
+    Layout resized = createLayout(width, height);
+    for (FireEngine tile : tiles) {
+      tile.resize(resized.tileWidth(), resized.tileHeight());
+    }
+    this.layout = resized;
+  }
+
+  @Override
+  public boolean awaitShape(Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    boolean loaded = true;
+    for (FireEngine tile : tiles) {
+      loaded &= tile.awaitShape(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+    }
+    return loaded;
+  }
+
+  @Override
+  public SceneState getState() {
+    return tiles[0].getState();
+  }
+
+  @Override
+  public StageTimings getStageTimings() {
+    return tiles[0].getStageTimings();
+  }
+
+  @Override
+  public long getLoadedShapeBytes() {
+    long bytes = 0;
+    for (FireEngine tile : tiles) {
+      bytes += tile.getLoadedShapeBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public ConvolveAndRiseEffect getConvolution() {
+    // The same strategy for every tile
+    return tiles[0].getConvolution();
+  }
+
+  @Override
+  public void command(Consumer<FireEngine> command) {
+    for (FireEngine tile : tiles) {
+      command.accept(tile);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (FireEngine tile : tiles) {
+      tile.close();
+    }
+    inlinePool.shutdown();
+    if (ownsPool) {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package org.kevinferrare.oldskoolfire.band;
+
+/**
+ * The rows of the fire surface simulated by one worker.
+ * <p>
+ * A worker's surface holds its visible rows followed by two more: the first two rows of the band below (the
+ * halo the convolution reads), or for the lowest band the last visible row and the seed line, as on a single
+ * surface. The convolution writes every visible row except, for the lowest band, the last one.
+ *
+ * @param firstRow first visible row in the frame
+ * @param rows     number of visible rows, 0 for an idle band
+ * @param bottom   whether this is the lowest band, which draws the seed line
+ */
+record Band(int firstRow, int rows, boolean bottom) {
+
+  /**
+   * Returns the height of the worker's surface, not counting the extra row of the seed line.
+   */
+  int surfaceHeight() {
+    return bottom ? rows : rows + 1;
+  }
+
+  /**
+   * Splits the rows of a frame in bands from top to bottom. A band of less than two rows would pass on its halo
+   * instead of its own rows, so when the frame is too small for every band the upper ones are left idle.
+   */
+  static Band[] split(int height, int count) {
+    int active = Math.clamp(height / 2, 1, count);
+    int idle = count - active;
+    Band[] bands = new Band[count];
+    for (int i = 0; i < count; i++) {
+      if (i < idle) {
+        bands[i] = new Band(0, 0, false);
+        continue;
+      }
+      int firstRow = height * (i - idle) / active;
+      int endRow = height * (i - idle + 1) / active;
+      bands[i] = new Band(firstRow, endRow - firstRow, i == count - 1);
+    }
+    return bands;
+  }
+}
@@ -0,0 +1,321 @@
+package org.kevinferrare.oldskoolfire.band;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.ShapeLayer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Splits the fire surface in horizontal {@link Band}s, each simulated by a {@link BandWorker} process, for frames
+ * too large for the memory bandwidth of one machine. The workers exchange the halo rows the convolution needs
+ * directly with their neighbours, over loopback sockets: the coordinator only sends the shape pixels of each tick
+ * and assembles a frame when one is rendered.
+ * <p>
+ * Workers run on this host, started with the same Java runtime and class path, each with its share of the cores
+ * for its common pool. They exit when the coordinator closes or dies.
+ * <p>
+ * One tick is in flight: {@link #tick} sends the next tick, then waits for the previous one, so the caller
+ * rasterizes the next shape while the workers convolve. {@link #gather} waits for the last tick, so the frame is
+ * always the latest one.
+ * <p>
+ * <b>Thread safety:</b> {@link #tick} and {@link #resize} from one thread, {@link #gather} from one thread
+ * (possibly another one); they are serialized by a fair lock.
+ */
+@Slf4j
+public class BandCoordinator implements AutoCloseable {
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+  private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(30);
+  private static final Duration EXIT_TIMEOUT = Duration.ofSeconds(5);
+
+  private final Process[] processes;
+  private final Socket[] sockets;
+  private final DataInputStream[] inputs;
+  private final DataOutputStream[] outputs;
+  private final String strategyName;
+  // Fair: the gathering thread gets its turn between two ticks instead of waiting for a pause
+  private final ReentrantLock lock = new ReentrantLock(true);
+
+  // Guarded by lock
+  private Band[] bands;
+  private int width;
+  private int height;
+  private int[] bandOfRow = new int[0];
+  private boolean tickInFlight;
+  private long completedTickNanos;            // of the last tick awaited, until reported by tick()
+  private ByteBuffer[] ticks;
+  private byte[] frameBytes = new byte[0];
+
+  /**
+   * Starts the workers and waits until they are connected to each other.
+   *
+   * @param count number of bands
+   * @param seed  master seed of the workers' random streams, null to seed them from the clock
+   */
+  public BandCoordinator(int count, boolean gpu, boolean noVectorApi, Long seed) throws IOException {
+    if (count < 1) {
+      throw new IllegalArgumentException("Invalid band count " + count);
+    }
+    this.processes = new Process[count];
+    this.sockets = new Socket[count];
+    this.inputs = new DataInputStream[count];
+    this.outputs = new DataOutputStream[count];
+    this.ticks = new ByteBuffer[count];
+    try (ServerSocket server = new ServerSocket(0, count, InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout((int) STARTUP_TIMEOUT.toMillis());
+      for (int i = 0; i < count; i++) {
+        processes[i] = new ProcessBuilder(workerCommand(server.getLocalPort(), i, count)).inheritIO().start();
+      }
+      int[] haloPorts = new int[count];
+      for (int i = 0; i < count; i++) {
+        Socket socket = BandProtocol.configure(accept(server));
+        DataInputStream in = BandProtocol.input(socket);
+        int index = in.readInt();
+        haloPorts[index] = in.readInt();
+        sockets[index] = socket;
+        inputs[index] = in;
+        outputs[index] = BandProtocol.output(socket);
+        socket.setSoTimeout((int) REPLY_TIMEOUT.toMillis());
+      }
+      for (int i = 0; i < count; i++) {
+        DataOutputStream out = outputs[i];
+        out.writeInt(count);
+        out.writeInt(i > 0 ? haloPorts[i - 1] : -1);
+        out.writeBoolean(gpu);
+        out.writeBoolean(noVectorApi);
+        out.writeBoolean(seed != null);
+        out.writeLong(seed != null ? seed : 0);
+        out.flush();
+      }
+      String strategy = null;
+      for (DataInputStream in : inputs) {
+        strategy = in.readUTF();
+      }
+      this.strategyName = strategy;
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+    log.info("{} band workers started ({} convolution)", count, strategyName);
+  }
+
+  private Socket accept(ServerSocket server) throws IOException {
+    try {
+      return server.accept();
+    } catch (SocketTimeoutException e) {
+      throw new IOException("Band workers not connected within " + STARTUP_TIMEOUT.toSeconds() + " s", e);
+    }
+  }
+
+  /**
+   * Returns the command starting a worker: this runtime and class path, with the Vector API if this runtime has
+   * it, and the cores shared between the workers.
+   */
+  private static List<String> workerCommand(int port, int index, int count) {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      command.add("--add-modules=jdk.incubator.vector");
+    }
+    int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / count);
+    command.add("-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + parallelism);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(BandWorker.class.getName());
+    command.add(Integer.toString(port));
+    command.add(Integer.toString(index));
+    return command;
+  }
+
+  public int getBandCount() {
+    return processes.length;
+  }
+
+  /**
+   * Returns the name of the workers' convolution strategy.
+   */
+  public String getStrategyName() {
+    return strategyName;
+  }
+
+  /**
+   * Splits frames of the given size between the workers. The fire restarts from black.
+   */
+  public void resize(int width, int height) throws IOException {
+    lock.lock();
+    try {
+      awaitTick();
+      this.width = width;
+      this.height = height;
+      this.bands = Band.split(height, processes.length);
+      this.bandOfRow = new int[height];
+      for (int i = 0; i < bands.length; i++) {
+        Band band = bands[i];
+        for (int row = band.firstRow(); row < band.firstRow() + band.rows(); row++) {
+          bandOfRow[row] = i;
+        }
+        DataOutputStream out = outputs[i];
+        out.writeByte(BandProtocol.RESIZE);
+        out.writeInt(width);
+        out.writeInt(band.firstRow());
+        out.writeInt(band.rows());
+        out.writeBoolean(band.bottom());
+        out.flush();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sends a tick to the workers, then waits for the previous one.
+   *
+   * @param shape pixels to draw after the convolution, indexed in a surface of the frame size
+   * @return the duration of the previous tick in the slowest worker, 0 if already reported or there was none
+   */
+  public long tick(int cooling, boolean stillFire, ShapeLayer shape) throws IOException {
+    lock.lock();
+    try {
+      // Sized for the whole shape, so that they are only reallocated until the largest one was seen
+      int bytes = BandProtocol.TICK_HEADER_BYTES + 2 * Integer.BYTES * shape.size();
+      for (int i = 0; i < ticks.length; i++) {
+        ByteBuffer buffer = ticks[i];
+        if (buffer == null || buffer.capacity() < bytes) {
+          buffer = ByteBuffer.allocate(bytes);
+          ticks[i] = buffer;
+        }
+        buffer.clear();
+        buffer.position(BandProtocol.TICK_HEADER_BYTES);
+      }
+      for (int i = 0; i < shape.size(); i++) {
+        int index = shape.indexAt(i);
+        int row = index / width;
+        if (row >= height) {
+          continue;
+        }
+        Band band = bands[bandOfRow[row]];
+        ticks[bandOfRow[row]].putInt(index - band.firstRow() * width).putInt(shape.valueAt(i));
+      }
+      for (int i = 0; i < ticks.length; i++) {
+        ByteBuffer buffer = ticks[i];
+        int pixels = (buffer.position() - BandProtocol.TICK_HEADER_BYTES) / (2 * Integer.BYTES);
+        buffer.put(0, BandProtocol.TICK).putInt(1, cooling).put(5, (byte) (stillFire ? 1 : 0)).putInt(6, pixels);
+        outputs[i].write(buffer.array(), 0, buffer.position());
+        outputs[i].flush();
+      }
+      awaitTick();
+      tickInFlight = true;
+      long previous = completedTickNanos;
+      completedTickNanos = 0;
+      return previous;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the tick in flight, if any, and keeps its duration in the slowest worker.
+   */
+  private void awaitTick() throws IOException {
+    if (!tickInFlight) {
+      return;
+    }
+    tickInFlight = false;
+    long slowest = 0;
+    for (DataInputStream in : inputs) {
+      slowest = Math.max(slowest, in.readLong());
+    }
+    completedTickNanos = slowest;
+  }
+
+  /**
+   * Assembles the intensities of the last tick. They travel as palette indices, exactly what the palettes use.
+   *
+   * @param reuse surface to fill if it has the current size, may be null
+   * @return the filled surface, a new one if the size changed
+   */
+  public FixedIntSurface gather(FixedIntSurface reuse) throws IOException {
+    lock.lock();
+    try {
+      awaitTick();
+      FixedIntSurface frame = reuse != null && reuse.width() == width && reuse.height() == height
+        ? reuse
+        : new FixedIntSurface(new int[width * height], width, height);
+      for (DataOutputStream out : outputs) {
+        out.writeByte(BandProtocol.FRAME);
+        out.flush();
+      }
+      int[] data = frame.data();
+      for (int i = 0; i < bands.length; i++) {
+        Band band = bands[i];
+        int length = band.rows() * width;
+        if (frameBytes.length < length) {
+          frameBytes = new byte[length];
+        }
+        inputs[i].readFully(frameBytes, 0, length);
+        int offset = band.firstRow() * width;
+        for (int j = 0; j < length; j++) {
+          data[offset + j] = (frameBytes[j] & 0xFF) << FixedIntSurface.SCALING_SHIFT;
+        }
+      }
+      return frame;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops the workers.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      try {
+        awaitTick();
+      } catch (IOException | RuntimeException e) {
+        log.debug("Last tick not completed: {}", e.getMessage());
+      }
+      for (int i = 0; i < processes.length; i++) {
+        if (outputs[i] != null) {
+          try {
+            outputs[i].writeByte(BandProtocol.CLOSE);
+            outputs[i].flush();
+            sockets[i].close();
+          } catch (IOException e) {
+            log.debug("Band worker {} already gone: {}", i, e.getMessage());
+          }
+        }
+      }
+      for (Process process : processes) {
+        if (process != null && !process.waitFor(EXIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+          log.warn("Band worker {} did not exit, killing it", process.pid());
+          process.destroyForcibly();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (Process process : processes) {
+        if (process != null) {
+          process.destroyForcibly();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
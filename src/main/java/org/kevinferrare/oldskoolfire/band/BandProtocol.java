@@ -0,0 +1,64 @@
+package org.kevinferrare.oldskoolfire.band;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * The messages between the {@link BandCoordinator} and its {@link BandWorker}s, and between neighbouring workers.
+ * Numbers are big-endian.
+ * <p>
+ * Start-up: the worker connects to the coordinator and sends {@code int index} and {@code int haloPort}, the port
+ * it accepts the band below on. Once every worker is connected the coordinator sends {@code int count},
+ * {@code int upperPort} (-1 for the top band), {@code boolean gpu}, {@code boolean noVectorApi},
+ * {@code boolean seeded} and {@code long seed}. The worker connects to the band above, accepts the band below,
+ * and answers with the name of its convolution strategy ({@code writeUTF}).
+ * <p>
+ * Commands, a byte followed by their arguments:
+ * <ul>
+ *   <li>{@link #RESIZE}: {@code int width}, {@code int firstRow}, {@code int rows}, {@code boolean bottom}, see
+ *   {@link Band}. The fire restarts from black.</li>
+ *   <li>{@link #TICK}: {@code int cooling}, {@code boolean stillFire}, {@code int pixelCount}, then for each
+ *   pixel of the shape in the band its {@code int index} in the worker's surface and its {@code int value}.
+ *   Answered with {@code long tickNanos} once done.</li>
+ *   <li>{@link #FRAME}: answered with the palette index (see {@code Palette.toIndices}) of each visible pixel
+ *   of the last tick, one byte each, row by row.</li>
+ *   <li>{@link #CLOSE}: the worker exits.</li>
+ * </ul>
+ * Halo: at the start of each tick, a worker sends the first two rows of its surface to the band above,
+ * {@code 2 * width} ints.
+ */
+final class BandProtocol {
+
+  static final byte RESIZE = 1;
+  static final byte TICK = 2;
+  static final byte FRAME = 3;
+  static final byte CLOSE = 4;
+
+  /**
+   * Bytes of a {@link #TICK} before its pixels.
+   */
+  static final int TICK_HEADER_BYTES = 1 + Integer.BYTES + 1 + Integer.BYTES;
+
+  private BandProtocol() {
+  }
+
+  /**
+   * Sets up a connection: small messages are sent at once instead of being delayed for coalescing.
+   */
+  static Socket configure(Socket socket) throws IOException {
+    socket.setTcpNoDelay(true);
+    return socket;
+  }
+
+  static DataInputStream input(Socket socket) throws IOException {
+    return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+  }
+
+  static DataOutputStream output(Socket socket) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+}
@@ -0,0 +1,234 @@
+package org.kevinferrare.oldskoolfire.band;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.FireSeedLine;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.util.FrameTaskGraph;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A worker process simulating one {@link Band} of the fire for a {@link BandCoordinator}, started by it with
+ * the coordinator's port and the index of the band as arguments.
+ * <p>
+ * Each tick sends the first two rows of the band to the band above, receives the two halo rows of the band
+ * below, convolves the band in parallel on the common pool, draws the seed line if it is the lowest band, then
+ * the shape pixels the coordinator rasterized. See {@link BandProtocol} for the messages.
+ * <p>
+ * The worker exits when the coordinator closes the connection.
+ */
+@Slf4j
+public class BandWorker implements AutoCloseable {
+
+  /**
+   * Parts of the band smaller than this are not worth a task.
+   */
+  private static final int MIN_TASK_ROWS = 32;
+
+  private final Socket coordinatorSocket;
+  private final DataInputStream coordinatorIn;
+  private final DataOutputStream coordinatorOut;
+  private final Socket upperSocket;            // null for the top band
+  private final DataOutputStream upperOut;
+  private final Socket lowerSocket;            // null for the bottom band
+  private final DataInputStream lowerIn;
+  private final ConvolveAndRiseEffect convolveAndRiseEffect;
+  private final FireSeedLine fireSeed;
+  private boolean stillFire;
+
+  // Surfaces of the band, replaced on resize
+  private Band band;
+  private int width;
+  private FixedIntSurface front;
+  private FixedIntSurface back;
+  private FrameTaskGraph tickGraph;
+  private ByteBuffer halo;
+  private byte[] frame;
+  private ByteBuffer shapeBytes = ByteBuffer.allocate(0);
+  private int[] shape = new int[0];            // index and value of each pixel
+  private int shapeCount;
+
+  public static void main(String[] args) throws IOException {
+    // The coordinator may be streaming frames on its standard output, keep it clean
+    System.setOut(System.err);
+    int port = Integer.parseInt(args[0]);
+    int index = Integer.parseInt(args[1]);
+    try (BandWorker worker = new BandWorker(port, index)) {
+      worker.run();
+    }
+  }
+
+  BandWorker(int coordinatorPort, int index) throws IOException {
+    this.coordinatorSocket = BandProtocol.configure(new Socket(InetAddress.getLoopbackAddress(), coordinatorPort));
+    this.coordinatorIn = BandProtocol.input(coordinatorSocket);
+    this.coordinatorOut = BandProtocol.output(coordinatorSocket);
+    try (ServerSocket haloServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      coordinatorOut.writeInt(index);
+      coordinatorOut.writeInt(haloServer.getLocalPort());
+      coordinatorOut.flush();
+
+      int count = coordinatorIn.readInt();
+      int upperPort = coordinatorIn.readInt();
+      boolean gpu = coordinatorIn.readBoolean();
+      boolean noVectorApi = coordinatorIn.readBoolean();
+      boolean seeded = coordinatorIn.readBoolean();
+      long seed = coordinatorIn.readLong();
+      this.convolveAndRiseEffect = new ConvolveAndRiseEffect(3, gpu, noVectorApi);
+      this.fireSeed = new FireSeedLine(new RandomStreams(seeded ? seed : null));
+      setStillFire(false);
+
+      // Connecting first cannot deadlock: the connection is queued until the band above accepts it
+      this.upperSocket = upperPort >= 0
+        ? BandProtocol.configure(new Socket(InetAddress.getLoopbackAddress(), upperPort))
+        : null;
+      this.upperOut = upperSocket != null ? BandProtocol.output(upperSocket) : null;
+      this.lowerSocket = index < count - 1 ? BandProtocol.configure(haloServer.accept()) : null;
+      this.lowerIn = lowerSocket != null ? BandProtocol.input(lowerSocket) : null;
+    }
+    coordinatorOut.writeUTF(convolveAndRiseEffect.getStrategyName());
+    coordinatorOut.flush();
+    log.info("Band worker {} ready", index);
+  }
+
+  /**
+   * Runs the commands of the coordinator until it closes the connection.
+   */
+  void run() throws IOException {
+    while (true) {
+      byte command;
+      try {
+        command = coordinatorIn.readByte();
+      } catch (EOFException e) {
+        return;
+      }
+      switch (command) {
+        case BandProtocol.RESIZE -> resize(coordinatorIn.readInt(),
+          new Band(coordinatorIn.readInt(), coordinatorIn.readInt(), coordinatorIn.readBoolean()));
+        case BandProtocol.TICK -> tick();
+        case BandProtocol.FRAME -> sendFrame();
+        case BandProtocol.CLOSE -> {
+          return;
+        }
+        default -> throw new IOException("Unknown command " + command);
+      }
+    }
+  }
+
+  private void resize(int width, Band band) {
+    this.width = width;
+    this.band = band;
+    int height = band.surfaceHeight();
+    // One extra row for the seed line or the second halo row
+    this.front = new FixedIntSurface(new int[width * (height + 1)], width, height);
+    this.back = new FixedIntSurface(new int[width * (height + 1)], width, height);
+    this.tickGraph = createTickGraph(convolveAndRiseEffect.rows(front));
+    this.halo = ByteBuffer.allocate(2 * width * Integer.BYTES);
+    this.frame = new byte[width * band.rows()];
+  }
+
+  private FrameTaskGraph createTickGraph(int rows) {
+    FrameTaskGraph graph = new FrameTaskGraph(ForkJoinPool.commonPool());
+    int tasks = 1;
+    if (graph.isParallel() && convolveAndRiseEffect.supportsBands()) {
+      tasks = Math.clamp(rows / MIN_TASK_ROWS, 1, ForkJoinPool.getCommonPoolParallelism());
+    }
+    for (int task = 0; task < tasks; task++) {
+      int firstRow = rows * task / tasks;
+      int endRow = rows * (task + 1) / tasks;
+      graph.add(() -> convolveAndRiseEffect.draw(front, back, firstRow, endRow));
+    }
+    return graph;
+  }
+
+  private void tick() throws IOException {
+    int cooling = coordinatorIn.readInt();
+    boolean still = coordinatorIn.readBoolean();
+    readShape();
+    long start = System.nanoTime();
+    exchangeHalo();
+    if (cooling != convolveAndRiseEffect.getCooling()) {
+      convolveAndRiseEffect.setCooling(cooling);
+    }
+    tickGraph.run();
+    if (band.bottom()) {
+      if (still != stillFire) {
+        setStillFire(still);
+      }
+      fireSeed.draw(back);
+    }
+    int[] data = back.data();
+    for (int i = 0; i < 2 * shapeCount; i += 2) {
+      data[shape[i]] = shape[i + 1];
+    }
+    FixedIntSurface previous = front;
+    front = back;
+    back = previous;
+    coordinatorOut.writeLong(System.nanoTime() - start);
+    coordinatorOut.flush();
+  }
+
+  private void setStillFire(boolean still) {
+    stillFire = still;
+    fireSeed.getMaterial().setRandomPixel(!still);
+  }
+
+  private void readShape() throws IOException {
+    shapeCount = coordinatorIn.readInt();
+    int bytes = 2 * shapeCount * Integer.BYTES;
+    if (shapeBytes.capacity() < bytes) {
+      shapeBytes = ByteBuffer.allocate(bytes);
+      shape = new int[2 * shapeCount];
+    }
+    coordinatorIn.readFully(shapeBytes.array(), 0, bytes);
+    shapeBytes.clear();
+    shapeBytes.asIntBuffer().get(shape, 0, 2 * shapeCount);
+  }
+
+  /**
+   * Sends the first two rows to the band above, then replaces the last two rows with those of the band below.
+   * Cannot deadlock: the top band only receives, and every other band sends before it receives.
+   */
+  private void exchangeHalo() throws IOException {
+    int[] data = front.data();
+    if (upperOut != null) {
+      halo.clear();
+      halo.asIntBuffer().put(data, 0, 2 * width);
+      upperOut.write(halo.array());
+      upperOut.flush();
+    }
+    if (lowerIn != null) {
+      lowerIn.readFully(halo.array());
+      halo.clear();
+      halo.asIntBuffer().get(data, data.length - 2 * width, 2 * width);
+    }
+  }
+
+  private void sendFrame() throws IOException {
+    // The coordinator holds the palette, a byte holds the index of any built-in one
+    Palette.toIndices(front, frame, 256);
+    coordinatorOut.write(frame);
+    coordinatorOut.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (upperSocket != null) {
+      upperSocket.close();
+    }
+    if (lowerSocket != null) {
+      lowerSocket.close();
+    }
+    coordinatorSocket.close();
+  }
+}
@@ -0,0 +1,101 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+import org.kevinferrare.oldskoolfire.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One point of the benchmark matrix.
+ *
+ * @param strategy convolution strategy: scalar, simd or gpu (falls back to the CPU if unavailable)
+ * @param width    frame width
+ * @param height   frame height
+ * @param shape    name of the shape drawn in the fire
+ * @param threads  tick worker threads, 0 for the shared pool
+ */
+public record BenchCase(String strategy, int width, int height, String shape, int threads) {
+
+  public static final List<String> STRATEGIES = List.of("scalar", "simd", "gpu");
+
+  public BenchCase {
+    strategy = strategy.toLowerCase(Locale.ROOT);
+    if (!STRATEGIES.contains(strategy)) {
+      throw new IllegalArgumentException("Unknown strategy '" + strategy + "', expected one of " + STRATEGIES);
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid resolution " + width + "x" + height);
+    }
+    if (threads < 0) {
+      throw new IllegalArgumentException("Invalid thread count " + threads);
+    }
+  }
+
+  public String resolution() {
+    return width + "x" + height;
+  }
+
+  /**
+   * Returns the base configuration with this case's strategy, size, shape and threads, animated
+   * (auto-rotate) but never paused nor switching scenes, and without input recording or replay, metrics,
+   * spike capture nor frame export.
+   */
+  public AppConfig config(AppConfig base) {
+    return base.toBuilder()
+      .width(width)
+      .height(height)
+      .fullscreen(false)
+      .shape(shape)
+      .autoRotate(true)
+      .autoSwitch(false)
+      .paused(false)
+      .gpu(strategy.equals("gpu"))
+      .noVectorApi(strategy.equals("scalar"))
+      .threads(threads)
+      .recordInput(null)
+      .replayInput(null)
+      .metricsPort(0)
+      .spikeBudgetMs(0)
+      .spikeJfr(false)
+      .exportPath(null)
+      .recordFire(null)
+      .playFire(null)
+      .broadcastPort(0)
+      .sharedFrame(null)
+      .wall(null)
+      .wallTiles(List.of())
+      .bands(0)
+      .snapshot(null)
+      .preroll(0)
+      .jitWarmupMs(0)
+      .wireframe(false)
+      .build();
+  }
+
+  /**
+   * Returns every combination of the given values, strategies varying slowest and threads fastest.
+   *
+   * @param resolutions "WIDTHxHEIGHT" strings
+   */
+  public static List<BenchCase> matrix(List<String> strategies, List<String> resolutions, List<String> shapes,
+                                       List<Integer> threads) {
+    List<BenchCase> cases = new ArrayList<>();
+    for (String strategy : strategies) {
+      for (String resolution : resolutions) {
+        int separator = resolution.toLowerCase(Locale.ROOT).indexOf('x');
+        if (separator < 0) {
+          throw new IllegalArgumentException("Invalid resolution '" + resolution + "', expected WIDTHxHEIGHT");
+        }
+        int width = Integer.parseInt(resolution.substring(0, separator).trim());
+        int height = Integer.parseInt(resolution.substring(separator + 1).trim());
+        for (String shape : shapes) {
+          for (int threadCount : threads) {
+            cases.add(new BenchCase(strategy, width, height, shape, threadCount));
+          }
+        }
+      }
+    }
+    return cases;
+  }
+}
@@ -0,0 +1,48 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * {@code compare} subcommand: flags the regressions between two {@code --bench} result files.
+ * Exits with 1 if any metric got worse by more than the threshold, so it can gate a build.
+ */
+@Slf4j
+@Command(
+  name = "compare",
+  mixinStandardHelpOptions = true,
+  description = "Compare two --bench result files (CSV or JSON) and flag regressions"
+)
+public class BenchCompareCommand implements Callable<Integer> {
+
+  @Parameters(index = "0", description = "Baseline result file")
+  private Path baseline;
+
+  @Parameters(index = "1", description = "Current result file")
+  private Path current;
+
+  @Option(names = {"-t", "--threshold"}, description = "Worsening in percent tolerated before flagging (default: ${DEFAULT-VALUE})")
+  private double thresholdPercent = 5.0;
+
+  @Override
+  public Integer call() throws Exception {
+    List<BenchResult> before = BenchResults.read(baseline);
+    List<BenchResult> after = BenchResults.read(current);
+    List<BenchComparison.Regression> regressions = BenchComparison.regressions(before, after, thresholdPercent);
+    if (regressions.isEmpty()) {
+      log.info("No regression above {}% ({} baseline, {} current cases)", thresholdPercent, before.size(), after.size());
+      return 0;
+    }
+    log.warn("{} regression(s) above {}%:", regressions.size(), thresholdPercent);
+    for (BenchComparison.Regression regression : regressions) {
+      log.warn("  {}", regression);
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,67 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two benchmark runs case by case and reports the metrics that got worse by more than a threshold:
+ * mean and p99 tick time going up, UPS going down. Cases present in only one run are ignored.
+ */
+public final class BenchComparison {
+
+  /**
+   * A metric of one case that got worse.
+   *
+   * @param key           {@link BenchResult#key()} of the case
+   * @param metric        name of the metric
+   * @param baseline      value in the baseline run
+   * @param current       value in the current run
+   * @param changePercent relative change, positive when worse
+   */
+  public record Regression(String key, String metric, double baseline, double current, double changePercent) {
+
+    @Override
+    public String toString() {
+      return String.format("%s %s: %.3f -> %.3f (%+.1f%%)", key, metric, baseline, current, changePercent);
+    }
+  }
+
+  private BenchComparison() {
+  }
+
+  /**
+   * @param thresholdPercent worsening tolerated before reporting, e.g. 5 for 5%
+   */
+  public static List<Regression> regressions(List<BenchResult> baseline, List<BenchResult> current,
+                                             double thresholdPercent) {
+    Map<String, BenchResult> baselineByKey = new LinkedHashMap<>();
+    for (BenchResult result : baseline) {
+      baselineByKey.put(result.key(), result);
+    }
+    List<Regression> regressions = new ArrayList<>();
+    for (BenchResult now : current) {
+      BenchResult before = baselineByKey.get(now.key());
+      if (before == null) {
+        continue;
+      }
+      check(regressions, now.key(), "meanMs", before.meanMs(), now.meanMs(), false, thresholdPercent);
+      check(regressions, now.key(), "p99Ms", before.p99Ms(), now.p99Ms(), false, thresholdPercent);
+      check(regressions, now.key(), "ups", before.ups(), now.ups(), true, thresholdPercent);
+    }
+    return regressions;
+  }
+
+  private static void check(List<Regression> regressions, String key, String metric, double before, double now,
+                            boolean higherIsBetter, double thresholdPercent) {
+    if (before <= 0) {
+      return;
+    }
+    double change = (now - before) * 100.0 / before;
+    double worsening = higherIsBetter ? -change : change;
+    if (worsening > thresholdPercent) {
+      regressions.add(new Regression(key, metric, before, now, worsening));
+    }
+  }
+}
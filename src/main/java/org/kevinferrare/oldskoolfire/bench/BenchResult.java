@@ -0,0 +1,39 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+/**
+ * Measurements of one {@link BenchCase}. A tick is one headless frame: a simulation step and its conversion
+ * to RGB pixels.
+ *
+ * @param strategy          requested convolution strategy
+ * @param implementation    strategy actually used (the GPU one falls back to the CPU when unavailable)
+ * @param resolution        frame size, "WIDTHxHEIGHT"
+ * @param shape             shape drawn in the fire
+ * @param threads           tick worker threads, 0 for the shared pool
+ * @param ticks             number of measured ticks
+ * @param meanMs            mean tick time
+ * @param p50Ms             median tick time
+ * @param p99Ms             99th percentile tick time
+ * @param ups               ticks per second over the whole measurement
+ * @param allocBytesPerTick bytes allocated by all threads per tick, -1 if the JVM cannot measure it
+ */
+public record BenchResult(
+  String strategy,
+  String implementation,
+  String resolution,
+  String shape,
+  int threads,
+  int ticks,
+  double meanMs,
+  double p50Ms,
+  double p99Ms,
+  double ups,
+  long allocBytesPerTick
+) {
+
+  /**
+   * Identifies the matrix point, to match results of two runs.
+   */
+  public String key() {
+    return strategy + "/" + resolution + "/" + shape + "/" + threads;
+  }
+}
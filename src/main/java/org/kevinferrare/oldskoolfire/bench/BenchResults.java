@@ -0,0 +1,165 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and writes {@link BenchResult} files, as CSV or JSON depending on the file extension.
+ * Only the files written here are expected back: one header line and one line per result for CSV,
+ * an array of flat objects for JSON.
+ */
+public final class BenchResults {
+
+  private static final String[] COLUMNS = {
+    "strategy", "implementation", "resolution", "shape", "threads", "ticks",
+    "meanMs", "p50Ms", "p99Ms", "ups", "allocBytesPerTick"
+  };
+  private static final String JSON_STRING = "\"((?:[^\"\\\\]|\\\\.)*)\"";
+  private static final Pattern JSON_OBJECT = Pattern.compile("\\{((?:[^}\"]|" + JSON_STRING + ")*)}");
+  private static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*(?:" + JSON_STRING
+    + "|([-+0-9.eE]+))");
+
+  private BenchResults() {
+  }
+
+  public static void write(Path file, List<BenchResult> results) throws IOException {
+    Files.writeString(file, isJson(file) ? toJson(results) : toCsv(results));
+  }
+
+  public static List<BenchResult> read(Path file) throws IOException {
+    String content = Files.readString(file);
+    return isJson(file) ? fromJson(content) : fromCsv(content);
+  }
+
+  private static boolean isJson(Path file) {
+    return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+  }
+
+  static String toCsv(List<BenchResult> results) {
+    StringBuilder csv = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+    for (BenchResult r : results) {
+      csv.append(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%.6f,%.6f,%.6f,%.3f,%d%n",
+        r.strategy(), r.implementation().replace(',', ' '), r.resolution(), r.shape().replace(',', ' '),
+        r.threads(), r.ticks(), r.meanMs(), r.p50Ms(), r.p99Ms(), r.ups(), r.allocBytesPerTick()));
+    }
+    return csv.toString();
+  }
+
+  static List<BenchResult> fromCsv(String csv) {
+    List<BenchResult> results = new ArrayList<>();
+    String[] lines = csv.split("\\R");
+    for (int i = 1; i < lines.length; i++) {
+      if (lines[i].isBlank()) {
+        continue;
+      }
+      String[] values = lines[i].split(",", -1);
+      if (values.length != COLUMNS.length) {
+        throw new IllegalArgumentException("Line " + (i + 1) + ": expected " + COLUMNS.length + " columns, got " + values.length);
+      }
+      Map<String, String> fields = new HashMap<>();
+      for (int c = 0; c < COLUMNS.length; c++) {
+        fields.put(COLUMNS[c], values[c].trim());
+      }
+      results.add(fromFields(fields));
+    }
+    return results;
+  }
+
+  static String toJson(List<BenchResult> results) {
+    StringBuilder json = new StringBuilder("[\n");
+    for (int i = 0; i < results.size(); i++) {
+      BenchResult r = results.get(i);
+      json.append(String.format(Locale.ROOT,
+        "  {\"strategy\": \"%s\", \"implementation\": \"%s\", \"resolution\": \"%s\", \"shape\": \"%s\", "
+          + "\"threads\": %d, \"ticks\": %d, \"meanMs\": %.6f, \"p50Ms\": %.6f, \"p99Ms\": %.6f, "
+          + "\"ups\": %.3f, \"allocBytesPerTick\": %d}",
+        jsonEscape(r.strategy()), jsonEscape(r.implementation()), jsonEscape(r.resolution()), jsonEscape(r.shape()),
+        r.threads(), r.ticks(), r.meanMs(), r.p50Ms(), r.p99Ms(), r.ups(), r.allocBytesPerTick()));
+      json.append(i < results.size() - 1 ? ",\n" : "\n");
+    }
+    return json.append("]\n").toString();
+  }
+
+  static List<BenchResult> fromJson(String json) {
+    List<BenchResult> results = new ArrayList<>();
+    Matcher object = JSON_OBJECT.matcher(json);
+    while (object.find()) {
+      Map<String, String> fields = new HashMap<>();
+      Matcher field = JSON_FIELD.matcher(object.group(1));
+      while (field.find()) {
+        fields.put(field.group(1), field.group(2) != null ? jsonUnescape(field.group(2)) : field.group(3));
+      }
+      results.add(fromFields(fields));
+    }
+    return results;
+  }
+
+  private static String jsonEscape(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < 0x20) {
+        escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  private static String jsonUnescape(String value) {
+    StringBuilder unescaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '\\') {
+        unescaped.append(c);
+        continue;
+      }
+      char escape = value.charAt(++i);
+      switch (escape) {
+        case 'b' -> unescaped.append('\b');
+        case 'f' -> unescaped.append('\f');
+        case 'n' -> unescaped.append('\n');
+        case 'r' -> unescaped.append('\r');
+        case 't' -> unescaped.append('\t');
+        case 'u' -> {
+          unescaped.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+          i += 4;
+        }
+        default -> unescaped.append(escape);
+      }
+    }
+    return unescaped.toString();
+  }
+
+  private static BenchResult fromFields(Map<String, String> fields) {
+    for (String column : COLUMNS) {
+      if (!fields.containsKey(column)) {
+        throw new IllegalArgumentException("Missing field '" + column + "' in " + fields);
+      }
+    }
+    return new BenchResult(
+      fields.get("strategy"),
+      fields.get("implementation"),
+      fields.get("resolution"),
+      fields.get("shape"),
+      Integer.parseInt(fields.get("threads")),
+      Integer.parseInt(fields.get("ticks")),
+      Double.parseDouble(fields.get("meanMs")),
+      Double.parseDouble(fields.get("p50Ms")),
+      Double.parseDouble(fields.get("p99Ms")),
+      Double.parseDouble(fields.get("ups")),
+      Long.parseLong(fields.get("allocBytesPerTick"))
+    );
+  }
+}
@@ -0,0 +1,118 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.AppConfig;
+import org.kevinferrare.oldskoolfire.FireEngine;
+import org.kevinferrare.oldskoolfire.util.Allocations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs benchmark cases end to end on a headless {@link FireEngine}: a fixed number of warm-up ticks,
+ * then measured ticks timed one by one.
+ * <p>
+ * Ticks use a fixed time step so every run draws the same rotation sequence. The allocation is the total of
+ * all live threads (the tick pool included), shapes being loaded before the measurement starts.
+ */
+@Slf4j
+public class BenchRunner {
+
+  private static final Duration SHAPE_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+  private final AppConfig base;
+  private final int warmupTicks;
+  private final int measuredTicks;
+
+  /**
+   * @param base configuration for everything a {@link BenchCase} does not set (palette, cooling, meshes, ...)
+   */
+  public BenchRunner(AppConfig base, int warmupTicks, int measuredTicks) {
+    if (warmupTicks < 0 || measuredTicks <= 0) {
+      throw new IllegalArgumentException("Invalid tick counts: " + warmupTicks + " warm-up, " + measuredTicks + " measured");
+    }
+    this.base = base;
+    this.warmupTicks = warmupTicks;
+    this.measuredTicks = measuredTicks;
+  }
+
+  public List<BenchResult> runAll(List<BenchCase> cases) throws InterruptedException {
+    List<BenchResult> results = new ArrayList<>(cases.size());
+    for (int i = 0; i < cases.size(); i++) {
+      BenchCase benchCase = cases.get(i);
+      log.info("[{}/{}] {} {} {} threads={}", i + 1, cases.size(), benchCase.strategy(), benchCase.resolution(),
+        benchCase.shape(), benchCase.threads());
+      BenchResult result = run(benchCase);
+      log.info("  mean={} ms p50={} ms p99={} ms {} UPS {} B/tick", format(result.meanMs()), format(result.p50Ms()),
+        format(result.p99Ms()), format(result.ups()), result.allocBytesPerTick());
+      results.add(result);
+    }
+    return results;
+  }
+
+  public BenchResult run(BenchCase benchCase) throws InterruptedException {
+    try (FireEngine engine = new FireEngine(benchCase.width(), benchCase.height(), benchCase.config(base))) {
+      if (!engine.awaitShape(SHAPE_LOAD_TIMEOUT)) {
+        log.warn("Shape '{}' not loaded, measuring without it", benchCase.shape());
+      }
+      int[] pixels = new int[benchCase.width() * benchCase.height()];
+      for (int i = 0; i < warmupTicks; i++) {
+        tick(engine, pixels);
+      }
+
+      long[] tickNanos = new long[measuredTicks];
+      long allocatedBefore = Allocations.totalAllocatedBytes();
+      long start = System.nanoTime();
+      long previous = start;
+      for (int i = 0; i < measuredTicks; i++) {
+        tick(engine, pixels);
+        long now = System.nanoTime();
+        tickNanos[i] = now - previous;
+        previous = now;
+      }
+      long elapsed = previous - start;
+      long allocatedAfter = Allocations.totalAllocatedBytes();
+
+      Arrays.sort(tickNanos);
+      long allocPerTick = allocatedBefore < 0 || allocatedAfter < 0
+        ? -1
+        : (allocatedAfter - allocatedBefore) / measuredTicks;
+      return new BenchResult(
+        benchCase.strategy(),
+        engine.getState().strategyName(),
+        benchCase.resolution(),
+        benchCase.shape(),
+        benchCase.threads(),
+        measuredTicks,
+        toMillis(elapsed / (double) measuredTicks),
+        toMillis(percentile(tickNanos, 0.50)),
+        toMillis(percentile(tickNanos, 0.99)),
+        measuredTicks * 1_000_000_000.0 / elapsed,
+        allocPerTick
+      );
+    }
+  }
+
+  private static void tick(FireEngine engine, int[] pixels) {
+    engine.step(FireEngine.FIXED_DELTA_SEC);
+    engine.renderTo(pixels);
+  }
+
+  /**
+   * Nearest-rank percentile of sorted values.
+   */
+  static long percentile(long[] sorted, double fraction) {
+    int rank = (int) Math.ceil(fraction * sorted.length);
+    return sorted[Math.clamp(rank - 1, 0, sorted.length - 1)];
+  }
+
+  private static double toMillis(double nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static String format(double value) {
+    return String.format("%.3f", value);
+  }
+}
@@ -0,0 +1,254 @@
+package org.kevinferrare.oldskoolfire.broadcast;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.export.FrameSink;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams the rendered frames to any number of local viewers, so that one simulation feeds many displays:
+ * <ul>
+ *   <li>{@code /mjpeg}: MJPEG over HTTP ({@code multipart/x-mixed-replace}), for browsers and players,
+ *   {@code /} being a page showing it;</li>
+ *   <li>{@code /tiles}: the {@link TileDeltaCodec} binary stream, only the tiles that changed, for our clients.</li>
+ * </ul>
+ * {@link #offer} copies at most {@code fps} frames per second, and only while someone is watching. Each frame
+ * is encoded at most once per format, by the first connection needing it (see {@link SharedFrame}), and every
+ * connection sends the latest frame when done with the previous one: a slow viewer skips frames instead of
+ * queuing them or slowing the others down.
+ * <p>
+ * Bound to the loopback interface only, like the {@code MetricsServer}. Each connection runs on its own virtual
+ * thread, blocked in socket writes or waiting for the next frame.
+ * <p>
+ * <b>Thread safety:</b> {@link #offer} from one thread, the rest from any.
+ */
+@Slf4j
+public class FrameBroadcaster implements FrameSink {
+
+  public static final int DEFAULT_FPS = 30;
+  static final float JPEG_QUALITY = 0.8f;
+  static final String BOUNDARY = "fireframe";
+  private static final byte[] PAGE = """
+    <!DOCTYPE html>
+    <html><head><title>OldSkool Fire</title></head>
+    <body style="margin:0;background:#000"><img src="/mjpeg" style="width:100vw;height:100vh;object-fit:contain">
+    </body></html>
+    """.getBytes(StandardCharsets.UTF_8);
+
+  private final long intervalNanos;
+  private final HttpServer server;
+  private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition published = lock.newCondition();
+  private final AtomicInteger viewers = new AtomicInteger();
+  private final LongAdder skipped = new LongAdder();
+  private SharedFrame latest;                 // guarded by lock
+  private volatile boolean closed;
+  private long lastOfferNanos;                // offering thread only
+  private int width;                          // offering thread only, of the previous frame
+  private int height;                         // offering thread only, of the previous frame
+  private int[] previousPixels;               // offering thread only
+
+  /**
+   * Starts serving frames on a loopback port, 0 for any free port.
+   *
+   * @param width  width of the first frames, see {@link #offer} for the next ones
+   * @param height height of the first frames
+   * @param fps highest rate frames are published at
+   */
+  public FrameBroadcaster(int port, int width, int height, int fps) throws IOException {
+    this.width = width;
+    this.height = height;
+    this.intervalNanos = 1_000_000_000L / Math.max(1, fps);
+    this.lastOfferNanos = System.nanoTime() - intervalNanos;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.setExecutor(connections);
+    server.createContext("/", this::handlePage);
+    server.createContext("/mjpeg", this::handleMjpeg);
+    server.createContext("/tiles", this::handleTiles);
+    server.start();
+    log.info("Broadcasting frames at http://{}:{}/ (MJPEG at /mjpeg, tile deltas at /tiles)",
+      server.getAddress().getHostString(), getPort());
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Returns the number of connected viewers.
+   */
+  public int getViewerCount() {
+    return viewers.get();
+  }
+
+  /**
+   * Returns the number of frames viewers skipped because they were still sending an older one.
+   */
+  public long getSkippedFrames() {
+    return skipped.sum();
+  }
+
+  @Override
+  public void offer(FixedIntSurface intensities, int[] rgb, Palette palette) {
+    offer(rgb, intensities.width(), intensities.height());
+  }
+
+  /**
+   * Publishes a copy of the frame to the viewers, unless nobody is watching or the previous frame was published
+   * less than 1 / fps ago.
+   * <p>
+   * The size may change from a frame to the next (window resized): JPEG images and key tile messages carry their
+   * size, so the first frame of a new size is sent to every viewer as a key message.
+   *
+   * @param rgb 0xRRGGBB pixels, row by row, at least width * height long
+   * @return true if published
+   */
+  public boolean offer(int[] rgb, int width, int height) {
+    long now = System.nanoTime();
+    if (closed || viewers.get() == 0 || now - lastOfferNanos < intervalNanos) {
+      return false;
+    }
+    lastOfferNanos = now;
+    if (width != this.width || height != this.height) {
+      log.info("Broadcasting frames of {}x{} instead of {}x{}", width, height, this.width, this.height);
+      this.width = width;
+      this.height = height;
+      // Not comparable with the new frames, the next messages are key ones
+      previousPixels = null;
+    }
+    // A fresh array per published frame: viewers may still be encoding or sending the previous ones
+    int[] pixels = Arrays.copyOf(rgb, width * height);
+    lock.lock();
+    try {
+      long sequence = latest != null ? latest.sequence() + 1 : 0;
+      latest = new SharedFrame(sequence, width, height, pixels, previousPixels, JPEG_QUALITY);
+      published.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    previousPixels = pixels;
+    return true;
+  }
+
+  /**
+   * Waits for a frame newer than the given one.
+   *
+   * @return null once closed
+   */
+  private SharedFrame awaitNewer(long sequence) throws InterruptedException {
+    lock.lock();
+    try {
+      while (!closed && (latest == null || latest.sequence() <= sequence)) {
+        published.await();
+      }
+      return closed ? null : latest;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void handlePage(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"/".equals(exchange.getRequestURI().getPath())) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+      exchange.sendResponseHeaders(200, PAGE.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(PAGE);
+      }
+    }
+  }
+
+  private void handleMjpeg(HttpExchange exchange) throws IOException {
+    stream(exchange, "multipart/x-mixed-replace; boundary=" + BOUNDARY, (frame, sent, out) -> {
+      byte[] jpeg = frame.jpeg();
+      out.write(("--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: " + jpeg.length + "\r\n\r\n")
+        .getBytes(StandardCharsets.US_ASCII));
+      out.write(jpeg);
+      out.write('\r');
+      out.write('\n');
+    });
+  }
+
+  private void handleTiles(HttpExchange exchange) throws IOException {
+    stream(exchange, "application/octet-stream", (frame, sent, out) -> out.write(frame.tiles(sent)));
+  }
+
+  @FunctionalInterface
+  private interface FrameWriter {
+    /**
+     * Writes a frame to a viewer which last received the frame of sequence {@code sent}, -1 if none.
+     */
+    void write(SharedFrame frame, long sent, OutputStream out) throws IOException;
+  }
+
+  /**
+   * Sends the latest frame each time the previous one is sent, until the viewer disconnects or the server closes.
+   */
+  private void stream(HttpExchange exchange, String contentType, FrameWriter writer) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", contentType);
+      exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+      exchange.sendResponseHeaders(200, 0);
+      int count = viewers.incrementAndGet();
+      log.info("Viewer {} connected to {}, {} watching", exchange.getRemoteAddress(), exchange.getRequestURI(), count);
+      OutputStream out = exchange.getResponseBody();
+      long sent = -1;
+      try {
+        for (SharedFrame frame = awaitNewer(sent); frame != null; frame = awaitNewer(sent)) {
+          if (sent >= 0) {
+            skipped.add(frame.sequence() - sent - 1);
+          }
+          writer.write(frame, sent, out);
+          out.flush();
+          sent = frame.sequence();
+        }
+      } catch (IOException e) {
+        // The usual end of a stream: the viewer went away
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        count = viewers.decrementAndGet();
+        log.info("Viewer {} disconnected, {} watching", exchange.getRemoteAddress(), count);
+      }
+    }
+  }
+
+  /**
+   * Ends every stream and stops the server.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    lock.lock();
+    try {
+      published.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    server.stop(1);
+    connections.shutdownNow();
+  }
+}
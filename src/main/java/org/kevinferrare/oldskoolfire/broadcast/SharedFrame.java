@@ -0,0 +1,105 @@
+package org.kevinferrare.oldskoolfire.broadcast;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A frame published by the {@link FrameBroadcaster} and its encodings, shared by every connection.
+ * <p>
+ * Each encoding is computed by the first connection needing it and cached, the others wait for it and send
+ * the same bytes: however many viewers, a frame is encoded at most once per format. Locks rather than
+ * {@code synchronized}, the connections run on virtual threads.
+ */
+final class SharedFrame {
+
+  private final long sequence;
+  private final int width;
+  private final int height;
+  private final int[] pixels;
+  private final int[] previous;               // pixels of the frame published before, null for the first one
+  private final float jpegQuality;
+  private final ReentrantLock lock = new ReentrantLock();
+  private byte[] jpeg;
+  private byte[] keyTiles;
+  private byte[] deltaTiles;
+
+  SharedFrame(long sequence, int width, int height, int[] pixels, int[] previous, float jpegQuality) {
+    this.sequence = sequence;
+    this.width = width;
+    this.height = height;
+    this.pixels = pixels;
+    this.previous = previous;
+    this.jpegQuality = jpegQuality;
+  }
+
+  long sequence() {
+    return sequence;
+  }
+
+  int[] pixels() {
+    return pixels;
+  }
+
+  byte[] jpeg() {
+    lock.lock();
+    try {
+      if (jpeg == null) {
+        jpeg = encodeJpeg();
+      }
+      return jpeg;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the {@link TileDeltaCodec} message for a client whose last frame has the given sequence number:
+   * the changed tiles if it is the previous frame, every tile otherwise.
+   */
+  byte[] tiles(long clientSequence) {
+    boolean delta = previous != null && clientSequence == sequence - 1;
+    lock.lock();
+    try {
+      if (delta) {
+        if (deltaTiles == null) {
+          deltaTiles = TileDeltaCodec.encode(sequence, pixels, previous, width, height);
+        }
+        return deltaTiles;
+      }
+      if (keyTiles == null) {
+        keyTiles = TileDeltaCodec.encode(sequence, pixels, null, width, height);
+      }
+      return keyTiles;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private byte[] encodeJpeg() {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    image.getRaster().setDataElements(0, 0, width, height, pixels);
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(width * height / 8);
+    try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(jpegQuality);
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } catch (IOException e) {
+      // In-memory streams do not fail
+      throw new UncheckedIOException(e);
+    } finally {
+      writer.dispose();
+    }
+    return bytes.toByteArray();
+  }
+}
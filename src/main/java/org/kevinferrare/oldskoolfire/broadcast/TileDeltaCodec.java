@@ -0,0 +1,170 @@
+package org.kevinferrare.oldskoolfire.broadcast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The binary protocol of the {@link FrameBroadcaster}'s {@code /tiles} stream: a sequence of messages, each
+ * carrying the tiles of the frame that differ from the frame the client last received. A client that just
+ * connected or skipped frames receives a key message instead, carrying every tile, as does every client when the
+ * frame size changes.
+ * <p>
+ * A message is a header, {@code byte kind} ({@link #KEY} or {@link #DELTA}), {@code long sequence},
+ * {@code int width}, {@code int height}, {@code int tileSize}, {@code int tileCount} and {@code int dataBytes},
+ * followed by {@code dataBytes} of Deflate data: for each tile its {@code int} index in the row-major grid of
+ * tiles, then its RGB24 pixels row by row, clipped at the right and bottom edges. Numbers are big-endian.
+ */
+public final class TileDeltaCodec {
+
+  public static final byte KEY = 0;
+  public static final byte DELTA = 1;
+  public static final int TILE_SIZE = 32;
+
+  private TileDeltaCodec() {
+  }
+
+  /**
+   * Encodes a message.
+   *
+   * @param previous the frame the client has, null for a key message
+   */
+  static byte[] encode(long sequence, int[] pixels, int[] previous, int width, int height) {
+    int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+    // Room for every tile
+    ByteBuffer raw = ByteBuffer.allocate(tilesX * tilesY * Integer.BYTES + width * height * 3);
+    int tileCount = 0;
+    for (int tile = 0; tile < tilesX * tilesY; tile++) {
+      int x0 = (tile % tilesX) * TILE_SIZE;
+      int y0 = (tile / tilesX) * TILE_SIZE;
+      int x1 = Math.min(x0 + TILE_SIZE, width);
+      int y1 = Math.min(y0 + TILE_SIZE, height);
+      if (previous != null && !changed(pixels, previous, width, x0, y0, x1, y1)) {
+        continue;
+      }
+      raw.putInt(tile);
+      for (int y = y0; y < y1; y++) {
+        for (int i = y * width + x0, end = y * width + x1; i < end; i++) {
+          int pixel = pixels[i];
+          raw.put((byte) (pixel >> 16));
+          raw.put((byte) (pixel >> 8));
+          raw.put((byte) pixel);
+        }
+      }
+      tileCount++;
+    }
+
+    byte[] data = deflate(raw.array(), raw.position());
+    try {
+      ByteArrayOutputStream message = new ByteArrayOutputStream(data.length + 32);
+      DataOutputStream out = new DataOutputStream(message);
+      out.writeByte(previous == null ? KEY : DELTA);
+      out.writeLong(sequence);
+      out.writeInt(width);
+      out.writeInt(height);
+      out.writeInt(TILE_SIZE);
+      out.writeInt(tileCount);
+      out.writeInt(data.length);
+      out.write(data);
+      return message.toByteArray();
+    } catch (IOException e) {
+      // In-memory streams do not fail
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean changed(int[] pixels, int[] previous, int width, int x0, int y0, int x1, int y1) {
+    for (int y = y0; y < y1; y++) {
+      int row = y * width;
+      if (Arrays.mismatch(pixels, row + x0, row + x1, previous, row + x0, row + x1) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] deflate(byte[] raw, int length) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(raw, 0, length);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+      byte[] chunk = new byte[16 * 1024];
+      while (!deflater.finished()) {
+        out.write(chunk, 0, deflater.deflate(chunk));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Reads the next message and applies its tiles, for clients of the stream.
+   *
+   * @param pixels the client's frame, 0xRRGGBB row by row, width * height long
+   * @return the sequence number of the message
+   * @throws IOException if the stream ends or is corrupt, or the message is for frames of another size
+   */
+  public static long decode(DataInputStream in, int[] pixels, int width, int height) throws IOException {
+    in.readByte(); // Kind, tiles are applied the same way
+    long sequence = in.readLong();
+    int messageWidth = in.readInt();
+    int messageHeight = in.readInt();
+    int tileSize = in.readInt();
+    int tileCount = in.readInt();
+    byte[] data = new byte[in.readInt()];
+    in.readFully(data);
+    if (messageWidth != width || messageHeight != height) {
+      throw new IOException("Frame of " + messageWidth + "x" + messageHeight + ", expected " + width + "x" + height);
+    }
+    DataInputStream tiles = new DataInputStream(new ByteArrayInputStream(inflate(data)));
+    int tilesX = (width + tileSize - 1) / tileSize;
+    for (int t = 0; t < tileCount; t++) {
+      int tile = tiles.readInt();
+      int x0 = (tile % tilesX) * tileSize;
+      int y0 = (tile / tilesX) * tileSize;
+      int x1 = Math.min(x0 + tileSize, width);
+      int y1 = Math.min(y0 + tileSize, height);
+      if (y0 >= height) {
+        throw new IOException("Tile " + tile + " outside of the frame");
+      }
+      for (int y = y0; y < y1; y++) {
+        for (int i = y * width + x0, end = y * width + x1; i < end; i++) {
+          pixels[i] = tiles.readUnsignedByte() << 16 | tiles.readUnsignedByte() << 8 | tiles.readUnsignedByte();
+        }
+      }
+    }
+    return sequence;
+  }
+
+  private static byte[] inflate(byte[] data) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+      byte[] chunk = new byte[16 * 1024];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(chunk);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated tile data");
+        }
+        out.write(chunk, 0, n);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt tile data", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
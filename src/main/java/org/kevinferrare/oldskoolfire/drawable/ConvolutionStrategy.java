@@ -12,17 +12,26 @@ public interface ConvolutionStrategy {
    *
    * @param srcData     source pixel array (previous frame)
    * @param dstData     destination pixel array (current frame)
-   * @param end         number of pixels to process
+   * @param start       index of the first pixel to process
+   * @param end         index after the last pixel to process
    * @param width       surface width
    * @param widthMinus1 width - 1
    * @param widthPlus1  width + 1
    * @param widthTimes2 width * 2
    * @param reciprocal  pre-computed reciprocal for fast division
    */
-  void convolve(int[] srcData, int[] dstData, int end,
+  void convolve(int[] srcData, int[] dstData, int start, int end,
                 int width, int widthMinus1, int widthPlus1,
                 int widthTimes2, int reciprocal);
 
+  /**
+   * Whether the pixels can be processed in independent bands (called concurrently on disjoint ranges).
+   * Strategies that always process the whole frame at once return false and are only called with start = 0.
+   */
+  default boolean supportsBands() {
+    return true;
+  }
+
   /**
    * Human-readable name of the algorithm used.
    */
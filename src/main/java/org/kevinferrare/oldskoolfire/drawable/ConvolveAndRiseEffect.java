@@ -2,6 +2,7 @@ package org.kevinferrare.oldskoolfire.drawable;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.jfr.StrategySelectionEvent;
 
 /**
  * Applies a convolution filter that makes the fire rise and cool/grow.
@@ -27,6 +28,25 @@ public class ConvolveAndRiseEffect {
     return strategy.name();
   }
 
+  /**
+   * Returns the class of the strategy, whose {@code convolve} method runs the inner loop.
+   */
+  public Class<? extends ConvolutionStrategy> getStrategyClass() {
+    return strategy.getClass();
+  }
+
+  public boolean supportsBands() {
+    return strategy.supportsBands();
+  }
+
+  /**
+   * Returns the number of destination rows written when convolving the given source.
+   */
+  public int rows(FixedIntSurface source) {
+    int width = source.width();
+    return width == 0 ? 0 : Math.max(0, (source.data().length - 2 * width) / width);
+  }
+
   public ConvolveAndRiseEffect(int cooling, boolean gpu, boolean noVectorApi) {
     this(cooling, detectStrategy(gpu, noVectorApi));
   }
@@ -38,6 +58,13 @@ public class ConvolveAndRiseEffect {
   }
 
   static ConvolutionStrategy detectStrategy(boolean gpu, boolean noVectorApi) {
+    StrategySelectionEvent event = StrategySelectionEvent.start(gpu, !noVectorApi);
+    ConvolutionStrategy strategy = probeStrategy(gpu, noVectorApi);
+    event.end(strategy.name());
+    return strategy;
+  }
+
+  private static ConvolutionStrategy probeStrategy(boolean gpu, boolean noVectorApi) {
     if (gpu) {
       try {
         return new TornadoConvolutionStrategy();
@@ -77,6 +104,19 @@ public class ConvolveAndRiseEffect {
    * @param dest   the surface to write to (current frame)
    */
   public void draw(FixedIntSurface source, FixedIntSurface dest) {
+    draw(source, dest, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Applies the convolution filter to a band of rows only. Each destination row depends on the source alone,
+   * so disjoint bands can be drawn concurrently when {@link #supportsBands()} is true.
+   *
+   * @param source   the surface to read from (previous frame)
+   * @param dest     the surface to write to (current frame)
+   * @param firstRow first destination row to write
+   * @param endRow   row after the last destination row to write, clamped to {@link #rows(FixedIntSurface)}
+   */
+  public void draw(FixedIntSurface source, FixedIntSurface dest, int firstRow, int endRow) {
     int width = source.width();
     int widthPlus1 = width + 1;
     int widthMinus1 = width - 1;
@@ -95,6 +135,14 @@ public class ConvolveAndRiseEffect {
       return;
     }
 
-    strategy.convolve(srcData, dstData, end, width, widthMinus1, widthPlus1, widthTimes2, recip);
+    if (endRow < end / width) {
+      end = endRow * width;
+    }
+    int start = firstRow * width;
+    if (end <= start) {
+      return;
+    }
+
+    strategy.convolve(srcData, dstData, start, end, width, widthMinus1, widthPlus1, widthTimes2, recip);
   }
 }
@@ -1,6 +1,7 @@
 package org.kevinferrare.oldskoolfire.drawable;
 
 import org.kevinferrare.oldskoolfire.drawable.brush.Material;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
 
 /**
  * Draws random fire seed pixels at the bottom of the surface.
@@ -10,9 +11,12 @@ public class FireSeedLine {
 
   private final Material material;
 
-  public FireSeedLine() {
+  /**
+   * @param streams random streams of the engine the fire belongs to
+   */
+  public FireSeedLine(RandomStreams streams) {
     // Create material with fixed value 127 and flicker value 255
-    this.material = new Material(127, 255);
+    this.material = new Material("fire seed", 127, 255, streams);
     this.material.setRandomPixel(true);
   }
 
@@ -32,6 +36,21 @@ public class FireSeedLine {
     }
   }
 
+  /**
+   * Records random pixels along the bottom line into the given layer, to be applied later.
+   *
+   * @param layer the layer to record into
+   */
+  public void draw(ShapeLayer layer) {
+    int width = layer.width();
+    int bottomLine = width * layer.height();
+    PixelSource pixelSource = material.getPixelSource();
+
+    for (int x = 0; x < width; x++) {
+      layer.add(x + bottomLine, pixelSource.getPixel());
+    }
+  }
+
   /**
    * Returns the material used for pixel generation.
    * Allows external configuration of pixel values and flicker mode.
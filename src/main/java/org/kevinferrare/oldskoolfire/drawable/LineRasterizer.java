@@ -15,7 +15,8 @@ public class LineRasterizer implements LineDrawer {
   private static final int BELOW = 1 << 2;  // bit 2
   private static final int ABOVE = 1 << 3;  // bit 3
 
-  private final FixedIntSurface surface;
+  private FixedIntSurface surface;             // null when recording to a layer
+  private final ShapeLayer layer;              // null when drawing to a surface
   private final int width;
   private final int yMin;
   private final int yMax;
@@ -29,6 +30,7 @@ public class LineRasterizer implements LineDrawer {
    */
   public LineRasterizer(FixedIntSurface surface, int yMin, int yMax) {
     this.surface = surface;
+    this.layer = null;
     this.width = surface.width();
     this.yMin = yMin;
     this.yMax = yMax;
@@ -42,6 +44,36 @@ public class LineRasterizer implements LineDrawer {
     this(surface, 1, surface.height() - 2);
   }
 
+  /**
+   * Creates a line rasterizer recording its pixels into the given layer instead of writing them to a surface.
+   * Uses the same default guard lines as {@link #LineRasterizer(FixedIntSurface)}.
+   */
+  public LineRasterizer(ShapeLayer layer) {
+    this.surface = null;
+    this.layer = layer;
+    this.width = layer.width();
+    this.yMin = 1;
+    this.yMax = layer.height() - 2;
+  }
+
+  /**
+   * Points this rasterizer at another surface of the same dimensions, so that a triple-buffered renderer
+   * can keep one rasterizer instead of creating one per frame.
+   *
+   * @throws IllegalArgumentException if the surface does not have the current dimensions
+   * @throws IllegalStateException    if this rasterizer records to a layer
+   */
+  public void retarget(FixedIntSurface surface) {
+    if (this.surface == null) {
+      throw new IllegalStateException("Recording to a layer");
+    }
+    if (surface.width() != this.surface.width() || surface.height() != this.surface.height()) {
+      throw new IllegalArgumentException("Surface is " + surface.width() + "x" + surface.height()
+        + ", expected " + this.surface.width() + "x" + this.surface.height());
+    }
+    this.surface = surface;
+  }
+
   /**
    * Draws a line from (startX, startY) to (endX, endY) using the given pixel source. The line is clipped to the
    * viewport bounds before rasterization.
@@ -124,13 +156,17 @@ public class LineRasterizer implements LineDrawer {
     // Initialized to favor the major axis (larger delta)
     int error = absDeltaX - absDeltaY;
 
-    int[] pixelData = surface.data();
+    int[] pixelData = surface != null ? surface.data() : null;
     int currentX = startX;
     int currentY = startY;
 
     while (true) {
-      // Draw pixel at current position
-      pixelData[currentY * width + currentX] = source.getPixel();
+      // Draw pixel at current position (loop-invariant branch, unswitched by the JIT)
+      if (pixelData != null) {
+        pixelData[currentY * width + currentX] = source.getPixel();
+      } else {
+        layer.add(currentY * width + currentX, source.getPixel());
+      }
 
       // Check if we've reached the end
       if (currentX == endX && currentY == endY) {
@@ -13,10 +13,10 @@ public class ScalarConvolutionStrategy implements ConvolutionStrategy {
   }
 
   @Override
-  public void convolve(int[] srcData, int[] dstData, int end,
+  public void convolve(int[] srcData, int[] dstData, int start, int end,
                        int width, int widthMinus1, int widthPlus1,
                        int widthTimes2, int reciprocal) {
-    int i = 0;
+    int i = start;
     int unrolledEnd = end - 3;
     while (i < unrolledEnd) {
       dstData[i] = convolvePixel(srcData, i, width, widthMinus1, widthPlus1, widthTimes2, reciprocal);
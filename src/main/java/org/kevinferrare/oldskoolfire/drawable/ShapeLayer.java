@@ -0,0 +1,83 @@
+package org.kevinferrare.oldskoolfire.drawable;
+
+import java.util.Arrays;
+
+/**
+ * A sparse list of pixel writes for a surface of a given size, recorded now and replayed later.
+ * Lets shapes be rasterized on another thread while the convolution that must precede them runs,
+ * then be copied onto the surface at a cost proportional to the number of pixels drawn.
+ */
+public class ShapeLayer {
+
+  private static final int INITIAL_CAPACITY = 4096;
+
+  private final int width;
+  private final int height;
+  private int[] indexes = new int[INITIAL_CAPACITY];
+  private int[] values = new int[INITIAL_CAPACITY];
+  private int count;
+
+  /**
+   * @param width  width of the target surfaces
+   * @param height height of the target surfaces
+   */
+  public ShapeLayer(int width, int height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int height() {
+    return height;
+  }
+
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Returns the surface index of the i-th recorded write.
+   */
+  public int indexAt(int i) {
+    return indexes[i];
+  }
+
+  /**
+   * Returns the value of the i-th recorded write.
+   */
+  public int valueAt(int i) {
+    return values[i];
+  }
+
+  public void clear() {
+    count = 0;
+  }
+
+  /**
+   * Records a pixel write. Grows the buffers when needed, which only happens until the largest shape was seen.
+   */
+  public void add(int index, int value) {
+    if (count == indexes.length) {
+      indexes = Arrays.copyOf(indexes, count * 2);
+      values = Arrays.copyOf(values, count * 2);
+    }
+    indexes[count] = index;
+    values[count] = value;
+    count++;
+  }
+
+  /**
+   * Replays the recorded writes, in order, onto the given surface.
+   */
+  public void applyTo(FixedIntSurface surface) {
+    int[] data = surface.data();
+    int[] localIndexes = this.indexes;
+    int[] localValues = this.values;
+    for (int i = 0; i < count; i++) {
+      data[localIndexes[i]] = localValues[i];
+    }
+  }
+}
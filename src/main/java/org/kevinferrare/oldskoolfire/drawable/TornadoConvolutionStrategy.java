@@ -96,7 +96,13 @@ public class TornadoConvolutionStrategy implements ConvolutionStrategy {
   }
 
   @Override
-  public void convolve(int[] srcData, int[] dstData, int end,
+  public boolean supportsBands() {
+    // The whole frame is copied to and from the GPU on each call
+    return false;
+  }
+
+  @Override
+  public void convolve(int[] srcData, int[] dstData, int start, int end,
                        int width, int widthMinus1, int widthPlus1,
                        int widthTimes2, int reciprocal) {
     if (end <= 0) {
@@ -6,6 +6,10 @@ import jdk.incubator.vector.VectorSpecies;
 
 /**
  * SIMD convolution using the Java Vector API.
+ * <p>
+ * Uses the preferred species of the platform unless another one is given (to compare vector widths).
+ * The Vector API is only intrinsified when the species is a constant, so the standard widths dispatch
+ * to the kernel with a static final species that the JIT folds once the kernel is inlined.
  */
 public class VectorConvolutionStrategy implements ConvolutionStrategy {
 
@@ -15,22 +19,51 @@ public class VectorConvolutionStrategy implements ConvolutionStrategy {
   }
 
   private static final int INT_SHIFT = ConvolveAndRiseEffect.RECIPROCAL_SHIFT;
-  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
-  private static final int LANE_COUNT = SPECIES.length();
+  private static final VectorSpecies<Integer> SPECIES_64 = IntVector.SPECIES_64;
+  private static final VectorSpecies<Integer> SPECIES_128 = IntVector.SPECIES_128;
+  private static final VectorSpecies<Integer> SPECIES_256 = IntVector.SPECIES_256;
+  private static final VectorSpecies<Integer> SPECIES_512 = IntVector.SPECIES_512;
+
+  private final VectorSpecies<Integer> species;
+
+  public VectorConvolutionStrategy() {
+    this(IntVector.SPECIES_PREFERRED);
+  }
+
+  public VectorConvolutionStrategy(VectorSpecies<Integer> species) {
+    this.species = species;
+  }
+
+  public VectorSpecies<Integer> getSpecies() {
+    return species;
+  }
 
   @Override
-  public void convolve(int[] srcData, int[] dstData, int end,
+  public void convolve(int[] srcData, int[] dstData, int start, int end,
                        int width, int widthMinus1, int widthPlus1,
                        int widthTimes2, int reciprocal) {
-    IntVector recipVec = IntVector.broadcast(SPECIES, reciprocal);
-    int vectorEnd = end - (end % LANE_COUNT);
-
-    for (int i = 0; i < vectorEnd; i += LANE_COUNT) {
-      IntVector v0 = IntVector.fromArray(SPECIES, srcData, i);
-      IntVector v1 = IntVector.fromArray(SPECIES, srcData, i + width);
-      IntVector v2 = IntVector.fromArray(SPECIES, srcData, i + widthMinus1);
-      IntVector v3 = IntVector.fromArray(SPECIES, srcData, i + widthPlus1);
-      IntVector v4 = IntVector.fromArray(SPECIES, srcData, i + widthTimes2);
+    switch (species.vectorBitSize()) {
+      case 64 -> convolve(SPECIES_64, srcData, dstData, start, end, width, widthMinus1, widthPlus1, widthTimes2, reciprocal);
+      case 128 -> convolve(SPECIES_128, srcData, dstData, start, end, width, widthMinus1, widthPlus1, widthTimes2, reciprocal);
+      case 256 -> convolve(SPECIES_256, srcData, dstData, start, end, width, widthMinus1, widthPlus1, widthTimes2, reciprocal);
+      case 512 -> convolve(SPECIES_512, srcData, dstData, start, end, width, widthMinus1, widthPlus1, widthTimes2, reciprocal);
+      default -> convolve(species, srcData, dstData, start, end, width, widthMinus1, widthPlus1, widthTimes2, reciprocal);
+    }
+  }
+
+  private static void convolve(VectorSpecies<Integer> species, int[] srcData, int[] dstData, int start, int end,
+                               int width, int widthMinus1, int widthPlus1,
+                               int widthTimes2, int reciprocal) {
+    int laneCount = species.length();
+    IntVector recipVec = IntVector.broadcast(species, reciprocal);
+    int vectorEnd = end - ((end - start) % laneCount);
+
+    for (int i = start; i < vectorEnd; i += laneCount) {
+      IntVector v0 = IntVector.fromArray(species, srcData, i);
+      IntVector v1 = IntVector.fromArray(species, srcData, i + width);
+      IntVector v2 = IntVector.fromArray(species, srcData, i + widthMinus1);
+      IntVector v3 = IntVector.fromArray(species, srcData, i + widthPlus1);
+      IntVector v4 = IntVector.fromArray(species, srcData, i + widthTimes2);
 
       v0.add(v1).add(v2).add(v3).add(v4)
         .mul(recipVec)
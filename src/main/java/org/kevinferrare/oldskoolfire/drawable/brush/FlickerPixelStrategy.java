@@ -13,7 +13,7 @@ import org.kevinferrare.oldskoolfire.util.FastRandom;
 public class FlickerPixelStrategy implements PixelStrategy {
   private final int flickerValue;
   private final int updateFrequency;
-  private final FastRandom random = new FastRandom();
+  private final FastRandom random;
 
   private int counter = 0;
   private int currentValue = 0;
@@ -23,19 +23,22 @@ public class FlickerPixelStrategy implements PixelStrategy {
    *
    * @param flickerValue    the maximum pixel value when "on"
    * @param updateFrequency how often to recalculate (every N calls)
+   * @param random          generator deciding whether each update is "on", used by this instance only
    */
-  public FlickerPixelStrategy(int flickerValue, int updateFrequency) {
+  public FlickerPixelStrategy(int flickerValue, int updateFrequency, FastRandom random) {
     this.flickerValue = flickerValue;
     this.updateFrequency = updateFrequency;
+    this.random = random;
   }
 
   /**
    * Creates a flicker strategy with default parameters (update every 3 calls, 50% threshold).
    *
    * @param flickerValue the maximum pixel value when "on"
+   * @param random       generator deciding whether each update is "on", used by this instance only
    */
-  public FlickerPixelStrategy(int flickerValue) {
-    this(flickerValue, 3);
+  public FlickerPixelStrategy(int flickerValue, FastRandom random) {
+    this(flickerValue, 3, random);
   }
 
   @Override
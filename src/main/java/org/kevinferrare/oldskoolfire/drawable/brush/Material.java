@@ -4,6 +4,7 @@ import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
 import org.kevinferrare.oldskoolfire.drawable.PixelSource;
 import org.kevinferrare.oldskoolfire.drawable.threed.Mesh;
 import org.kevinferrare.oldskoolfire.drawable.threed.Vec3;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
 
 /**
  * Encapsulates the visual appearance (pixel intensity and behavior) of an object.
@@ -18,17 +19,20 @@ public class Material {
 
   private final PixelStrategy fixedStrategy;
   private final PixelStrategy flickerStrategy;
-  private PixelStrategy currentStrategy;
+  private volatile PixelStrategy currentStrategy;  // toggled by the simulation, read by the shape stage
 
   /**
    * Creates a material with both fixed and flicker pixel modes.
    *
+   * @param name         name of the object using it, names its flicker's random stream
    * @param pixelValue   the constant pixel value for fixed mode
    * @param flickerValue the maximum pixel value for flicker mode
+   * @param streams      random streams of the engine the object belongs to
    */
-  public Material(int pixelValue, int flickerValue) {
+  public Material(String name, int pixelValue, int flickerValue, RandomStreams streams) {
     this.fixedStrategy = new FixedPixelStrategy(pixelValue << FixedIntSurface.SCALING_SHIFT);
-    this.flickerStrategy = new FlickerPixelStrategy(flickerValue << FixedIntSurface.SCALING_SHIFT);
+    this.flickerStrategy = new FlickerPixelStrategy(flickerValue << FixedIntSurface.SCALING_SHIFT,
+      streams.create(name));
     this.currentStrategy = fixedStrategy;  // default to fixed mode
   }
 
@@ -36,16 +40,18 @@ public class Material {
    * Creates a material with intensity automatically computed from mesh geometry.
    * Shapes with more total line length get lower intensity to maintain consistent visual brightness.
    *
-   * @param mesh the mesh to compute intensity for
+   * @param name    name of the object using it
+   * @param mesh    the mesh to compute intensity for
+   * @param streams random streams of the engine the object belongs to
    * @return material with appropriate intensity values
    */
-  public static Material forMesh(Mesh mesh) {
+  public static Material forMesh(String name, Mesh mesh, RandomStreams streams) {
     double totalLength = computeTotalLineLength(mesh);
     // Scale intensity inversely with total line length
     double ratio = Math.sqrt(REFERENCE_TOTAL_LENGTH / Math.max(1.0, totalLength));
     int fixedValue = clamp((int) (BASE_FIXED_VALUE * ratio), 32, 255);
     int flickerValue = clamp((int) (BASE_FLICKER_VALUE * ratio), 48, 255);
-    return new Material(fixedValue, flickerValue);
+    return new Material(name, fixedValue, flickerValue, streams);
   }
 
   private static double computeTotalLineLength(Mesh mesh) {
@@ -88,9 +94,9 @@ public class Material {
   /**
    * Returns the pixel source for rendering.
    *
-   * @return a PixelSource that delegates to the current strategy
+   * @return the current strategy, not wrapped so that drawing a frame allocates nothing
    */
   public PixelSource getPixelSource() {
-    return currentStrategy::getPixel;
+    return currentStrategy;
   }
 }
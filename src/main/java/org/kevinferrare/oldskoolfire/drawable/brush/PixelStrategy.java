@@ -1,15 +1,19 @@
 package org.kevinferrare.oldskoolfire.drawable.brush;
 
+import org.kevinferrare.oldskoolfire.drawable.PixelSource;
+
 /**
  * Strategy interface for pixel value generation.
  * Implementations define different pixel rendering behaviors (fixed, flickering, pulsing, etc.).
+ * A strategy is itself a {@link PixelSource}, so it can be handed to the rasterizer without wrapping.
  */
 @FunctionalInterface
-public interface PixelStrategy {
+public interface PixelStrategy extends PixelSource {
   /**
    * Gets the next pixel value according to this strategy.
    *
    * @return the pixel intensity value
    */
+  @Override
   int getPixel();
 }
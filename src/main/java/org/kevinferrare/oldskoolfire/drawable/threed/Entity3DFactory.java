@@ -3,6 +3,7 @@ package org.kevinferrare.oldskoolfire.drawable.threed;
 import lombok.extern.slf4j.Slf4j;
 import org.kevinferrare.oldskoolfire.drawable.brush.Material;
 import org.kevinferrare.oldskoolfire.drawable.threed.objects.MeshNormalizer;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
 
 /**
  * Factory for creating Entity3D instances with normalization and logging.
@@ -11,6 +12,14 @@ import org.kevinferrare.oldskoolfire.drawable.threed.objects.MeshNormalizer;
 public class Entity3DFactory {
 
   private final MeshNormalizer normalizer = new MeshNormalizer();
+  private final RandomStreams streams;
+
+  /**
+   * @param streams random streams of the engine the entities belong to, seed their materials
+   */
+  public Entity3DFactory(RandomStreams streams) {
+    this.streams = streams;
+  }
 
   /**
    * Creates an Entity3D from a mesh, normalizing it to fit -1..1 on all axes.
@@ -20,7 +29,7 @@ public class Entity3DFactory {
     Mesh normalized = normalizer.normalize(mesh);
     log.info("Loaded entity '{}': {} vertices, {} lines",
       name, normalized.vertices().length, normalized.lines().length / 2);
-    return new Entity3D(name, normalized, new Transform(), Material.forMesh(normalized));
+    return new Entity3D(name, normalized, new Transform(), Material.forMesh(name, normalized, streams));
   }
 
   /**
@@ -31,4 +40,12 @@ public class Entity3DFactory {
     entity.transform().setScale(initialScale);
     return entity;
   }
+
+  /**
+   * Rebuilds an entity around a freshly reloaded mesh, keeping the transform and material of its previous instance.
+   */
+  public Entity3D recreate(String name, Mesh mesh, Transform transform, Material material) {
+    log.debug("Reloading '{}'...", name);
+    return new Entity3D(name, normalizer.normalize(mesh), transform, material);
+  }
 }
@@ -28,54 +28,68 @@ public class Graphics3D {
     drawMesh(lineDrawer, entity.mesh(), entity.transform(), entity.material().getPixelSource());
   }
 
+  /**
+   * Projects and draws every line of the mesh. Runs every tick, so it works on scalars only: no point is allocated.
+   */
   public void drawMesh(LineDrawer lineDrawer, Mesh mesh, Transform transform, PixelSource source) {
     Quaternion orientation = transform.getOrientation();
+    double qw = orientation.w();
+    double qx = orientation.x();
+    double qy = orientation.y();
+    double qz = orientation.z();
     double scale = transform.getScale();
     Vec3 translation = transform.getTranslation();
+    double tx = translation.x();
+    double ty = translation.y();
+    double tz = translation.z();
 
     Vec3[] vertices = mesh.vertices();
     int[] lines = mesh.lines();
 
     for (int i = 0; i < lines.length; i += 2) {
-      drawProjectedLine(lineDrawer, vertices[lines[i]], vertices[lines[i + 1]],
-        orientation, scale, translation, source);
-    }
-  }
+      Vec3 v0 = vertices[lines[i]];
+      Vec3 v1 = vertices[lines[i + 1]];
 
-  private void drawProjectedLine(LineDrawer lineDrawer, Vec3 v0, Vec3 v1, Quaternion orientation,
-                                 double scale, Vec3 translation, PixelSource source) {
+      // Rotate then translate, same formula as Quaternion.rotate: v' = v + w*t + (q_xyz × t), t = 2 * (q_xyz × v)
+      double t0x = 2.0 * (qy * v0.z() - qz * v0.y());
+      double t0y = 2.0 * (qz * v0.x() - qx * v0.z());
+      double t0z = 2.0 * (qx * v0.y() - qy * v0.x());
+      double x0 = v0.x() + qw * t0x + (qy * t0z - qz * t0y) + tx;
+      double y0 = v0.y() + qw * t0y + (qz * t0x - qx * t0z) + ty;
+      double z0 = v0.z() + qw * t0z + (qx * t0y - qy * t0x) + tz;
+      double t1x = 2.0 * (qy * v1.z() - qz * v1.y());
+      double t1y = 2.0 * (qz * v1.x() - qx * v1.z());
+      double t1z = 2.0 * (qx * v1.y() - qy * v1.x());
+      double x1 = v1.x() + qw * t1x + (qy * t1z - qz * t1y) + tx;
+      double y1 = v1.y() + qw * t1y + (qz * t1x - qx * t1z) + ty;
+      double z1 = v1.z() + qw * t1z + (qx * t1y - qy * t1x) + tz;
 
-    // Rotate then translate
-    Vec3 p0 = orientation.rotate(v0).add(translation);
-    Vec3 p1 = orientation.rotate(v1).add(translation);
+      // Near-plane clipping
+      boolean p0Behind = z0 <= NEAR_PLANE;
+      boolean p1Behind = z1 <= NEAR_PLANE;
+      if (p0Behind && p1Behind) {
+        continue;
+      }
+      if (p0Behind) {
+        double t = (NEAR_PLANE - z0) / (z1 - z0);
+        x0 = x0 + t * (x1 - x0);
+        y0 = y0 + t * (y1 - y0);
+        z0 = NEAR_PLANE;
+      }
+      if (p1Behind) {
+        double t = (NEAR_PLANE - z1) / (z0 - z1);
+        x1 = x1 + t * (x0 - x1);
+        y1 = y1 + t * (y0 - y1);
+        z1 = NEAR_PLANE;
+      }
 
-    // Near-plane clipping
-    boolean p0Behind = p0.z() <= NEAR_PLANE;
-    boolean p1Behind = p1.z() <= NEAR_PLANE;
-    if (p0Behind && p1Behind) {
-      return;
-    }
-    if (p0Behind) {
-      p0 = clipToNearPlane(p0, p1);
-    }
-    if (p1Behind) {
-      p1 = clipToNearPlane(p1, p0);
-    }
-
-    // Perspective projection: scale controls apparent size
-    int x0Screen = (int) round(scale * p0.x() / p0.z()) + xCenter;
-    int y0Screen = (int) round(scale * p0.y() / p0.z()) + yCenter;
-    int x1Screen = (int) round(scale * p1.x() / p1.z()) + xCenter;
-    int y1Screen = (int) round(scale * p1.y() / p1.z()) + yCenter;
+      // Perspective projection: scale controls apparent size
+      int x0Screen = (int) round(scale * x0 / z0) + xCenter;
+      int y0Screen = (int) round(scale * y0 / z0) + yCenter;
+      int x1Screen = (int) round(scale * x1 / z1) + xCenter;
+      int y1Screen = (int) round(scale * y1 / z1) + yCenter;
 
-    lineDrawer.drawLine(x0Screen, y0Screen, x1Screen, y1Screen, source);
-  }
-
-  private static Vec3 clipToNearPlane(Vec3 behind, Vec3 inFront) {
-    double t = (NEAR_PLANE - behind.z()) / (inFront.z() - behind.z());
-    return new Vec3(
-      behind.x() + t * (inFront.x() - behind.x()),
-      behind.y() + t * (inFront.y() - behind.y()),
-      NEAR_PLANE);
+      lineDrawer.drawLine(x0Screen, y0Screen, x1Screen, y1Screen, source);
+    }
   }
 }
@@ -10,6 +10,11 @@ package org.kevinferrare.oldskoolfire.drawable.threed;
  */
 public record Mesh(Vec3[] vertices, int[] lines) {
 
+  // Rough heap footprint on a 64-bit JVM with compressed oops
+  private static final long ARRAY_HEADER_BYTES = 16;
+  private static final long VEC3_BYTES = 16 + 3 * Double.BYTES;
+  private static final long REFERENCE_BYTES = 4;
+
   /**
    * Creates a Mesh from a flat double array of coordinates.
    *
@@ -26,4 +31,12 @@ public record Mesh(Vec3[] vertices, int[] lines) {
     return new Mesh(vertices, lines);
   }
 
+  /**
+   * Estimates the heap memory held by this mesh (vertex objects plus both arrays).
+   */
+  public long estimatedBytes() {
+    return 2 * ARRAY_HEADER_BYTES
+      + vertices.length * (REFERENCE_BYTES + VEC3_BYTES)
+      + (long) lines.length * Integer.BYTES;
+  }
 }
@@ -116,6 +116,42 @@ public class Quaternion {
     this.z = nz;
   }
 
+  /**
+   * Pre-multiply in place by the rotation {@link #fromEulerXY} would create: this = qy * qx * this.
+   * Same result without allocating the three intermediate quaternions.
+   */
+  public void preRotateEulerXYInPlace(double angleX, double angleY) {
+    double halfX = angleX * 0.5;
+    double halfY = angleY * 0.5;
+    double sx = Math.sin(halfX);
+    double cx = Math.cos(halfX);
+    double sy = Math.sin(halfY);
+    double cy = Math.cos(halfY);
+    // qy * qx with qx = (cx, sx, 0, 0) and qy = (cy, 0, sy, 0)
+    double qw = cy * cx;
+    double qx = cy * sx;
+    double qy = sy * cx;
+    double qz = -sy * sx;
+    double nw = qw * w - qx * x - qy * y - qz * z;
+    double nx = qw * x + qx * w + qy * z - qz * y;
+    double ny = qw * y - qx * z + qy * w + qz * x;
+    double nz = qw * z + qx * y - qy * x + qz * w;
+    this.w = nw;
+    this.x = nx;
+    this.y = ny;
+    this.z = nz;
+  }
+
+  /**
+   * Copy the components of another quaternion into this one.
+   */
+  public void set(Quaternion q) {
+    this.w = q.w;
+    this.x = q.x;
+    this.y = q.y;
+    this.z = q.z;
+  }
+
   /**
    * Rotate a 3D point by this quaternion.
    */
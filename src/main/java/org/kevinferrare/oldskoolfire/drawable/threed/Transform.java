@@ -32,9 +32,8 @@ public class Transform {
    * This matches the original Euler behavior for automatic animation.
    */
   public void rotate(double dx, double dy) {
-    Quaternion delta = Quaternion.fromEulerXY(dx, dy);
-    // Apply delta in world space (pre-multiply)
-    orientation.preMultiplyInPlace(delta);
+    // Apply delta in world space (pre-multiply), in place as this runs every tick
+    orientation.preRotateEulerXYInPlace(dx, dy);
     // Normalize periodically to prevent drift
     orientation.normalizeInPlace();
   }
@@ -50,4 +49,13 @@ public class Transform {
   public void incTranslateZ(double value) {
     setTranslateZ(translation.z() + value);
   }
+
+  /**
+   * Copies the state of another transform into this one, to hand a snapshot to another thread.
+   */
+  public void copyFrom(Transform other) {
+    this.scale = other.scale;
+    this.orientation.set(other.orientation);
+    this.translation = other.translation;
+  }
 }
@@ -0,0 +1,63 @@
+package org.kevinferrare.oldskoolfire.drawable.threed.objects;
+
+import org.kevinferrare.oldskoolfire.drawable.threed.Mesh;
+import org.kevinferrare.oldskoolfire.util.Named;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Pairs a display name with the code that produces its raw (not yet normalized) mesh.
+ * Calling {@link #load()} always rebuilds the mesh, callers decide when and where to cache it.
+ *
+ * @param name     display name of the shape
+ * @param loader   produces the raw mesh, either procedurally or by parsing an OBJ file
+ * @param external true for meshes loaded from user supplied files
+ */
+public record ShapeSource(String name, Supplier<Mesh> loader, boolean external) implements Named {
+
+  public Mesh load() {
+    return loader.get();
+  }
+
+  /**
+   * Returns the shapes bundled with the application, "none" being always last.
+   */
+  public static List<ShapeSource> builtIns() {
+    ObjLoader objLoader = new ObjLoader();
+    List<ShapeSource> list = new ArrayList<>();
+    list.add(builtIn("cube", MeshGenerator::createCube));
+    list.add(builtIn("dragon", () -> objLoader.loadResource("/meshes/dragon.obj")));
+    list.add(builtIn("plane", () -> objLoader.loadResource("/meshes/plane.obj")));
+    list.add(builtIn("teapot", () -> objLoader.loadResource("/meshes/teapot.obj")));
+    list.add(builtIn("teaspoon", () -> objLoader.loadResource("/meshes/teaspoon.obj")));
+    list.add(builtIn("teacup", () -> objLoader.loadResource("/meshes/teacup.obj")));
+    list.add(builtIn("pyramid", () -> MeshGenerator.createPyramid(1.5)));
+    list.add(builtIn("torus", () -> MeshGenerator.createTorus(0.4, 24, 12)));
+    list.add(builtIn("sphere", () -> MeshGenerator.createSphere(12, 16)));
+    list.add(builtIn("octahedron", MeshGenerator::createOctahedron));
+    list.add(builtIn("icosahedron", MeshGenerator::createIcosahedron));
+    list.add(builtIn("trefoil-knot", () -> MeshGenerator.createTrefoilKnot(120)));
+    list.add(builtIn("mobius-strip", () -> MeshGenerator.createMobiusStrip(0.5, 32, 4)));
+    list.add(builtIn("helix", () -> MeshGenerator.createHelix(3, 4.0, 80)));
+    list.add(builtIn("lissajous", () -> MeshGenerator.createLissajous(3, 2, 5, Math.PI / 2, 0, 150)));
+    list.add(builtIn("star", () -> MeshGenerator.createStar(5, 0.4, 0.3)));
+    list.add(builtIn("none", MeshGenerator::createNone));
+    return list;
+  }
+
+  /**
+   * Returns a source reading the given OBJ file, named after the file without its extension.
+   */
+  public static ShapeSource fromFile(Path path) {
+    ObjLoader objLoader = new ObjLoader();
+    String name = path.getFileName().toString().replaceFirst("\\.[^.]+$", "");
+    return new ShapeSource(name, () -> objLoader.loadFile(path), true);
+  }
+
+  private static ShapeSource builtIn(String name, Supplier<Mesh> loader) {
+    return new ShapeSource(name, loader, false);
+  }
+}
@@ -0,0 +1,19 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.io.IOException;
+
+/**
+ * Writes frames in one {@link FrameFormat}. Each encoder thread of the {@link FrameExporter} has its own
+ * instance and reuses its buffers from frame to frame.
+ */
+interface FrameEncoder {
+
+  /**
+   * Writes a frame. Frames may arrive out of order from the different encoder threads, the index says where
+   * the frame goes.
+   *
+   * @param rgb   0xRRGGBB pixels, row by row
+   * @param index position of the frame in the sequence, from 0
+   */
+  void encode(int[] rgb, long index) throws IOException;
+}
@@ -0,0 +1,267 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the rendered frames to disk without slowing down the thread producing them.
+ * <p>
+ * {@link #offer} copies the frame into a recycled buffer and queues it, a pool of encoder threads writes
+ * the queued frames in the chosen {@link FrameFormat}. When every buffer is in use the frame is dropped
+ * ({@link Policy#DROP}, for live capture) or the caller waits for a free buffer ({@link Policy#BLOCK},
+ * for offline capture where every frame counts). Frames of another size than the export's (after a resize)
+ * are dropped, which is logged once: the formats have a single frame size.
+ * <p>
+ * <b>Thread safety:</b> {@link #offer} from one thread, {@link #close} once it stopped offering frames.
+ */
+@Slf4j
+public class FrameExporter implements FrameSink {
+
+  /**
+   * What {@link #offer} does when all frame buffers are waiting to be encoded.
+   */
+  public enum Policy {
+    /**
+     * Drop the frame, the caller never waits.
+     */
+    DROP,
+    /**
+     * Wait for an encoder to free a buffer, no frame is lost.
+     */
+    BLOCK;
+
+    /**
+     * Parses a policy name, case-insensitive.
+     *
+     * @throws IllegalArgumentException if the name is not a policy
+     */
+    public static Policy parse(String name) {
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown export policy '" + name + "', expected one of "
+          + Arrays.toString(values()).toLowerCase(Locale.ROOT), e);
+      }
+    }
+  }
+
+  public static final int DEFAULT_FPS = 60;
+  static final int DEFAULT_BUFFERS = 8;
+  static final int DEFAULT_ENCODERS = Math.clamp(Runtime.getRuntime().availableProcessors() / 2, 1, 4);
+
+  /**
+   * A recycled frame buffer.
+   */
+  private static final class Frame {
+    private final int[] pixels;
+    private long index;
+
+    Frame(int[] pixels) {
+      this.pixels = pixels;
+    }
+  }
+
+  /**
+   * Queued once per encoder thread by {@link #close}, after the last frame.
+   */
+  private static final Frame END = new Frame(new int[0]);
+
+  private final Path output;
+  private final int width;
+  private final int height;
+  private final Policy policy;
+  private final FileChannel channel;          // null for PNG, one file per frame
+  private final BlockingQueue<Frame> free;
+  private final BlockingQueue<Frame> pending;
+  private final Thread[] encoders;
+  private final LongAdder written = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final AtomicLong failed = new AtomicLong();
+  private long nextIndex;                     // offering thread only
+  private boolean closed;                     // offering thread only
+  private boolean sizeMismatchLogged;         // offering thread only
+
+  /**
+   * Exports with {@link #DEFAULT_BUFFERS} buffers and one encoder thread per two cores (at most 4).
+   *
+   * @param output a directory for {@link FrameFormat#PNG}, the file to write otherwise
+   * @param fps    frame rate written in the {@link FrameFormat#Y4M} header
+   */
+  public FrameExporter(Path output, FrameFormat format, int width, int height, Policy policy, int fps)
+    throws IOException {
+    this(output, format, width, height, policy, fps, DEFAULT_BUFFERS, DEFAULT_ENCODERS);
+  }
+
+  FrameExporter(Path output, FrameFormat format, int width, int height, Policy policy, int fps,
+                int buffers, int encoderCount) throws IOException {
+    this.output = output;
+    this.width = width;
+    this.height = height;
+    this.policy = policy;
+    this.free = new ArrayBlockingQueue<>(buffers);
+    this.pending = new ArrayBlockingQueue<>(buffers + encoderCount);
+    for (int i = 0; i < buffers; i++) {
+      free.add(new Frame(new int[width * height]));
+    }
+
+    long headerBytes = 0;
+    if (format == FrameFormat.PNG) {
+      Files.createDirectories(output);
+      this.channel = null;
+    } else {
+      this.channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+      if (format == FrameFormat.Y4M) {
+        ByteBuffer header = ByteBuffer.wrap(Y4mEncoder.header(width, height, fps));
+        headerBytes = header.remaining();
+        writeFully(channel, header, 0);
+      }
+    }
+
+    this.encoders = new Thread[encoderCount];
+    for (int i = 0; i < encoderCount; i++) {
+      FrameEncoder encoder = switch (format) {
+        case PNG -> new PngEncoder(output, width, height);
+        case Y4M -> new Y4mEncoder(channel, width, height, headerBytes);
+        case RAW -> new RawRgbEncoder(channel, width, height);
+      };
+      encoders[i] = Thread.ofPlatform().name("FrameEncoder-" + i).daemon().start(() -> encodeLoop(encoder));
+    }
+    log.info("Exporting {}x{} frames as {} to {} ({} policy)", width, height, format, output, policy);
+  }
+
+  @Override
+  public void offer(FixedIntSurface intensities, int[] rgb, Palette palette) {
+    offer(rgb, intensities.width(), intensities.height());
+  }
+
+  /**
+   * Queues a copy of the frame for encoding.
+   *
+   * @param rgb 0xRRGGBB pixels, row by row, at least width * height long
+   * @return false if the frame was dropped
+   */
+  public boolean offer(int[] rgb, int width, int height) {
+    if (closed) {
+      dropped.increment();
+      return false;
+    }
+    if (width != this.width || height != this.height) {
+      if (!sizeMismatchLogged) {
+        sizeMismatchLogged = true;
+        log.warn("Frames of {}x{} are not exported to {}, only frames of {}x{}", width, height, output,
+          this.width, this.height);
+      }
+      dropped.increment();
+      return false;
+    }
+    Frame frame = free.poll();
+    if (frame == null && policy == Policy.BLOCK) {
+      try {
+        frame = free.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (frame == null) {
+      dropped.increment();
+      return false;
+    }
+    System.arraycopy(rgb, 0, frame.pixels, 0, frame.pixels.length);
+    frame.index = nextIndex++;
+    // Never full, it has room for every buffer and end marker
+    pending.add(frame);
+    return true;
+  }
+
+  private void encodeLoop(FrameEncoder encoder) {
+    while (true) {
+      Frame frame;
+      try {
+        frame = pending.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (frame == END) {
+        return;
+      }
+      try {
+        encoder.encode(frame.pixels, frame.index);
+        written.increment();
+      } catch (IOException e) {
+        // Most likely the disk is full, every following frame fails the same way
+        if (failed.getAndIncrement() == 0) {
+          log.error("Cannot export frame {} to {}", frame.index, output, e);
+        }
+      } finally {
+        free.add(frame);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of frames written so far.
+   */
+  public long getWrittenFrames() {
+    return written.sum();
+  }
+
+  /**
+   * Returns the number of frames dropped so far, full queue or wrong size.
+   */
+  public long getDroppedFrames() {
+    return dropped.sum();
+  }
+
+  /**
+   * Writes the whole buffer at the given position of the channel.
+   */
+  static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * Encodes the frames still queued, then closes the output.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (int i = 0; i < encoders.length; i++) {
+      pending.add(END);
+    }
+    try {
+      for (Thread encoder : encoders) {
+        encoder.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.warn("Cannot close the frame export {}", output, e);
+      }
+    }
+    log.info("Exported {} frames to {}, {} dropped, {} failed", written.sum(), output, dropped.sum(), failed.get());
+  }
+}
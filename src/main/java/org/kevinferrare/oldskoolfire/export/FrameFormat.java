@@ -0,0 +1,52 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * File formats written by the {@link FrameExporter}.
+ */
+public enum FrameFormat {
+  /**
+   * One PNG file per frame in the output directory, frame-000000.png, frame-000001.png...
+   */
+  PNG,
+  /**
+   * YUV4MPEG2 stream, 4:4:4 so that the fire keeps its colors, readable by ffmpeg and most players.
+   */
+  Y4M,
+  /**
+   * Headerless RGB24 stream, 3 bytes per pixel, ffmpeg {@code -f rawvideo -pix_fmt rgb24}.
+   */
+  RAW;
+
+  /**
+   * Parses a format name, case-insensitive.
+   *
+   * @throws IllegalArgumentException if the name is not a format
+   */
+  public static FrameFormat parse(String name) {
+    try {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown export format '" + name + "', expected one of "
+        + Arrays.toString(values()).toLowerCase(Locale.ROOT), e);
+    }
+  }
+
+  /**
+   * Guesses the format from the output path: .y4m files are {@link #Y4M}, .rgb and .raw files {@link #RAW},
+   * anything else is a {@link #PNG} directory.
+   */
+  public static FrameFormat forPath(Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (name.endsWith(".y4m")) {
+      return Y4M;
+    }
+    if (name.endsWith(".rgb") || name.endsWith(".raw")) {
+      return RAW;
+    }
+    return PNG;
+  }
+}
@@ -0,0 +1,31 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+
+/**
+ * Takes every frame the engine renders, to send it somewhere else than the screen: a file, viewers, other
+ * processes.
+ * <p>
+ * A sink never fails the frame: when it cannot go on (disk full, file that cannot grow) it logs why once and
+ * ignores the next frames.
+ * <p>
+ * <b>Thread safety:</b> {@link #offer} from one thread, {@link #close} once it stopped offering frames.
+ */
+public interface FrameSink extends AutoCloseable {
+
+  /**
+   * Takes a rendered frame. The arguments are only valid during the call, a sink keeping them copies them.
+   *
+   * @param intensities fixed-point intensities of the frame, as given to {@link Palette#apply}
+   * @param rgb         the frame converted with the palette, 0xRRGGBB pixels row by row
+   * @param palette     palette the frame is shown with
+   */
+  void offer(FixedIntSurface intensities, int[] rgb, Palette palette);
+
+  /**
+   * Stops taking frames and releases the output, logging any failure.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,226 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Publishes the rendered frames into a memory-mapped file, for other local processes (an overlay compositor, a
+ * watchdog) to map and read without any copy through a socket or pipe.
+ * <p>
+ * The file is a header of {@link #HEADER_BYTES}, then the pixels of the latest frame row by row. Numbers are
+ * little-endian: {@code int magic} ({@link #MAGIC}), {@code int version}, {@code long sequence},
+ * {@code int width}, {@code int height}, {@code int content} ({@link Content} ordinal), {@code int paletteId}
+ * (index of the palette among the built-in ones), {@code long capacity} (bytes mapped for the pixels) and
+ * {@code long publishedMillis} (epoch milliseconds of the frame, for watchdogs).
+ * <p>
+ * Frames are published as a seqlock: the sequence is made odd, the header and pixels are written, then the
+ * sequence is made even again with release semantics. A reader copies what it needs between two acquiring reads
+ * of the sequence and retries if the first one was odd or they differ, see {@link MappedFrameReader}. The writer
+ * never waits for readers. The sequence carries on from the file's previous value, so it never goes back for a
+ * reader that outlives a restart.
+ * <p>
+ * The pixels are mapped for the first frame size; a larger frame grows the file and the mapping, readers remap
+ * when {@code capacity} exceeds theirs. As a {@link FrameSink}, publishing stops at the first frame the file cannot
+ * grow for, readers keep the last one.
+ * <p>
+ * <b>Thread safety:</b> one thread.
+ */
+@Slf4j
+public class MappedFrameBuffer implements FrameSink {
+
+  /**
+   * What the pixels of the file are.
+   */
+  public enum Content {
+    /**
+     * 0xRRGGBB ints, stored as B, G, R, 0 bytes.
+     */
+    RGB(4),
+    /**
+     * Palette indices, one byte each, to be colored with the palette {@code paletteId}.
+     */
+    INDEX(1);
+
+    private final int bytesPerPixel;
+
+    Content(int bytesPerPixel) {
+      this.bytesPerPixel = bytesPerPixel;
+    }
+
+    public int bytesPerPixel() {
+      return bytesPerPixel;
+    }
+
+    /**
+     * Parses a content name, case-insensitive.
+     *
+     * @throws IllegalArgumentException if the name is not a content
+     */
+    public static Content parse(String name) {
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown shared frame content '" + name + "', expected one of "
+          + Arrays.toString(values()).toLowerCase(Locale.ROOT), e);
+      }
+    }
+  }
+
+  /**
+   * "OSFB" read as a little-endian int.
+   */
+  public static final int MAGIC = 0x4246534F;
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 64;
+
+  // Header offsets
+  static final int VERSION_OFFSET = 4;
+  static final int SEQUENCE_OFFSET = 8;
+  static final int WIDTH_OFFSET = 16;
+  static final int HEIGHT_OFFSET = 20;
+  static final int CONTENT_OFFSET = 24;
+  static final int PALETTE_OFFSET = 28;
+  static final int CAPACITY_OFFSET = 32;
+  static final int PUBLISHED_OFFSET = 40;
+
+  static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final Path path;
+  private final FileChannel channel;
+  private final Content content;
+  private final List<Palette> palettes;
+  private MappedByteBuffer buffer;
+  private IntBuffer pixelInts;                // view of the pixels for RGB content
+  private long capacity;
+  private long sequence;
+  private byte[] indices = new byte[0];
+  private boolean failed;
+
+  /**
+   * Creates or reuses the file, mapped for frames of the given size.
+   */
+  public MappedFrameBuffer(Path path, Content content, int width, int height) throws IOException {
+    this(path, content, width, height, List.of());
+  }
+
+  /**
+   * @param palettes the built-in palettes, whose index {@link #offer} publishes as {@code paletteId}
+   */
+  public MappedFrameBuffer(Path path, Content content, int width, int height, List<Palette> palettes)
+    throws IOException {
+    this.path = path;
+    this.content = content;
+    this.palettes = palettes;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    map((long) width * height * content.bytesPerPixel());
+    if (buffer.getInt(0) == MAGIC) {
+      // Even, the previous writer may have stopped in the middle of a frame
+      sequence = ((long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET) + 1) & ~1L;
+    }
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(VERSION_OFFSET, VERSION);
+    LONGS.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    log.info("Publishing {} frames to {}", content.name().toLowerCase(Locale.ROOT), path);
+  }
+
+  private void map(long pixelBytes) throws IOException {
+    // Never shrinks: a reader may still map the end of the file
+    long fileBytes = Math.max(channel.size(), HEADER_BYTES + pixelBytes);
+    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.capacity = fileBytes - HEADER_BYTES;
+    this.pixelInts = buffer.slice(HEADER_BYTES, (int) Math.min(capacity, Integer.MAX_VALUE))
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .asIntBuffer();
+  }
+
+  /**
+   * Publishes a frame with the index of its palette among the built-in ones, -1 if it is not one of them.
+   */
+  @Override
+  public void offer(FixedIntSurface intensities, int[] rgb, Palette palette) {
+    if (failed) {
+      return;
+    }
+    try {
+      publish(intensities, rgb, palette, palettes.indexOf(palette));
+    } catch (IOException e) {
+      // The file could not grow for a larger frame, readers keep the last one
+      failed = true;
+      log.error("Cannot share the frame in {}, sharing stopped", path, e);
+    }
+  }
+
+  /**
+   * Publishes a frame.
+   *
+   * @param intensities the frame before conversion, for {@link Content#INDEX}
+   * @param rgb         the frame converted with the palette, for {@link Content#RGB}
+   * @param paletteId   index of the palette among the built-in ones
+   */
+  public void publish(FixedIntSurface intensities, int[] rgb, Palette palette, int paletteId) throws IOException {
+    int width = intensities.width();
+    int height = intensities.height();
+    int pixels = width * height;
+    long pixelBytes = (long) pixels * content.bytesPerPixel();
+    if (pixelBytes > capacity) {
+      map(pixelBytes);
+    }
+    MappedByteBuffer out = buffer;
+    long writing = sequence + 1;
+    LONGS.setOpaque(out, SEQUENCE_OFFSET, writing);
+    // Nothing below may become visible before the sequence is odd
+    VarHandle.storeStoreFence();
+    out.putInt(WIDTH_OFFSET, width);
+    out.putInt(HEIGHT_OFFSET, height);
+    out.putInt(CONTENT_OFFSET, content.ordinal());
+    out.putInt(PALETTE_OFFSET, paletteId);
+    out.putLong(CAPACITY_OFFSET, capacity);
+    out.putLong(PUBLISHED_OFFSET, System.currentTimeMillis());
+    if (content == Content.RGB) {
+      pixelInts.put(0, rgb, 0, pixels);
+    } else {
+      if (indices.length != pixels) {
+        indices = new byte[pixels];
+      }
+      palette.toIndices(intensities, indices);
+      out.put(HEADER_BYTES, indices, 0, pixels);
+    }
+    sequence = writing + 1;
+    LONGS.setRelease(out, SEQUENCE_OFFSET, sequence);
+  }
+
+  /**
+   * Returns the sequence of the last published frame, 2 per frame.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Closes the file, the last frame stays readable.
+   */
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.warn("Cannot close the shared frame {}", path, e);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import org.kevinferrare.oldskoolfire.export.MappedFrameBuffer.Content;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the frames a {@link MappedFrameBuffer} publishes, from another process (or thread): the reference for
+ * consumers written in other languages, which follow the same steps over their own mapping of the file.
+ * <p>
+ * A read never blocks the writer: it reads the sequence, copies the header then the pixels, and starts over if
+ * the sequence was odd (a frame being written) or changed in the meantime.
+ * <p>
+ * <b>Thread safety:</b> one thread.
+ */
+public class MappedFrameReader implements AutoCloseable {
+
+  /**
+   * Reads given up on a writer that stays in the middle of a frame, most likely because it died there.
+   */
+  private static final int MAX_ATTEMPTS = 100_000;
+
+  /**
+   * A published frame.
+   *
+   * @param sequence        even, grows by 2 with each frame
+   * @param pixels          {@code width * height * content.bytesPerPixel()} bytes, the array may be longer
+   * @param publishedMillis epoch milliseconds of the publication
+   */
+  public record Frame(long sequence, int width, int height, Content content, int paletteId,
+                      long publishedMillis, byte[] pixels) {
+  }
+
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+  private long capacity;
+
+  private MappedFrameReader(FileChannel channel) throws IOException {
+    this.channel = channel;
+    map();
+    if (buffer.capacity() < MappedFrameBuffer.HEADER_BYTES || buffer.getInt(0) != MappedFrameBuffer.MAGIC) {
+      throw new IOException("Not a shared frame buffer");
+    }
+    int version = buffer.getInt(MappedFrameBuffer.VERSION_OFFSET);
+    if (version != MappedFrameBuffer.VERSION) {
+      throw new IOException("Unsupported shared frame buffer version " + version);
+    }
+  }
+
+  public static MappedFrameReader open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MappedFrameReader(channel);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void map() throws IOException {
+    this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.capacity = buffer.capacity() - MappedFrameBuffer.HEADER_BYTES;
+  }
+
+  /**
+   * Copies the latest frame.
+   *
+   * @param reuse array to copy the pixels into if large enough, may be null
+   * @return null if no frame was published yet, or the writer stays in the middle of one
+   */
+  public Frame read(byte[] reuse) throws IOException {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      long sequence = (long) MappedFrameBuffer.LONGS.getAcquire(buffer, MappedFrameBuffer.SEQUENCE_OFFSET);
+      if ((sequence & 1) != 0) {
+        Thread.onSpinWait();
+        continue;
+      }
+      int width = buffer.getInt(MappedFrameBuffer.WIDTH_OFFSET);
+      int height = buffer.getInt(MappedFrameBuffer.HEIGHT_OFFSET);
+      int contentOrdinal = buffer.getInt(MappedFrameBuffer.CONTENT_OFFSET);
+      int paletteId = buffer.getInt(MappedFrameBuffer.PALETTE_OFFSET);
+      long writtenCapacity = buffer.getLong(MappedFrameBuffer.CAPACITY_OFFSET);
+      long publishedMillis = buffer.getLong(MappedFrameBuffer.PUBLISHED_OFFSET);
+      // The header must be consistent before its sizes are trusted
+      VarHandle.loadLoadFence();
+      if ((long) MappedFrameBuffer.LONGS.getAcquire(buffer, MappedFrameBuffer.SEQUENCE_OFFSET) != sequence) {
+        continue;
+      }
+      if (width == 0) {
+        return null;
+      }
+      if (writtenCapacity > capacity) {
+        // The writer grew the file for a larger frame
+        map();
+        continue;
+      }
+      Content content = Content.values()[contentOrdinal];
+      int length = width * height * content.bytesPerPixel();
+      byte[] pixels = reuse != null && reuse.length >= length ? reuse : new byte[length];
+      buffer.get(MappedFrameBuffer.HEADER_BYTES, pixels, 0, length);
+      VarHandle.loadLoadFence();
+      if ((long) MappedFrameBuffer.LONGS.getAcquire(buffer, MappedFrameBuffer.SEQUENCE_OFFSET) == sequence) {
+        return new Frame(sequence, width, height, content, paletteId, publishedMillis, pixels);
+      }
+      reuse = pixels;
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,117 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * {@link FrameFormat#PNG} frames, one 8-bit RGB file per frame. A minimal encoder (no filtering, fastest
+ * compression) instead of ImageIO: it reuses its buffers and keeps the export free of AWT, and the mostly black
+ * fire frames compress well anyway.
+ */
+class PngEncoder implements FrameEncoder {
+
+  private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+  private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+  private static final int IDAT_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final int width;
+  private final byte[] header;
+  private final byte[] scanlines;
+  private final byte[] compressed = new byte[IDAT_SIZE];
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private final CRC32 crc = new CRC32();
+  private ByteBuffer file;
+
+  PngEncoder(Path directory, int width, int height) {
+    this.directory = directory;
+    this.width = width;
+    this.header = ByteBuffer.allocate(13)
+      .putInt(width)
+      .putInt(height)
+      .put((byte) 8)   // bit depth
+      .put((byte) 2)   // color type: RGB
+      .put((byte) 0)   // deflate
+      .put((byte) 0)   // no filtering
+      .put((byte) 0)   // not interlaced
+      .array();
+    this.scanlines = new byte[(1 + 3 * width) * height];
+    this.file = ByteBuffer.allocate(scanlines.length / 4);
+  }
+
+  /**
+   * Returns the file name of the frame with the given index.
+   */
+  static String fileName(long index) {
+    return String.format("frame-%06d.png", index);
+  }
+
+  @Override
+  public void encode(int[] rgb, long index) throws IOException {
+    // Filter type 0 (none) at the start of each row, left at 0 since the array was created
+    int offset = 0;
+    for (int i = 0; i < rgb.length; i++) {
+      if (i % width == 0) {
+        offset++;
+      }
+      int pixel = rgb[i];
+      scanlines[offset++] = (byte) (pixel >> 16);
+      scanlines[offset++] = (byte) (pixel >> 8);
+      scanlines[offset++] = (byte) pixel;
+    }
+
+    file.clear();
+    put(SIGNATURE, SIGNATURE.length);
+    chunk(IHDR, header, header.length);
+    deflater.reset();
+    deflater.setInput(scanlines);
+    deflater.finish();
+    while (!deflater.finished()) {
+      int length = deflater.deflate(compressed);
+      if (length > 0) {
+        chunk(IDAT, compressed, length);
+      }
+    }
+    chunk(IEND, compressed, 0);
+    file.flip();
+
+    try (FileChannel channel = FileChannel.open(directory.resolve(fileName(index)), StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      FrameExporter.writeFully(channel, file, 0);
+    }
+  }
+
+  private void chunk(byte[] type, byte[] data, int length) {
+    ensureRemaining(12 + length);
+    file.putInt(length);
+    file.put(type);
+    file.put(data, 0, length);
+    crc.reset();
+    crc.update(type);
+    crc.update(data, 0, length);
+    file.putInt((int) crc.getValue());
+  }
+
+  private void put(byte[] data, int length) {
+    ensureRemaining(length);
+    file.put(data, 0, length);
+  }
+
+  private void ensureRemaining(int bytes) {
+    if (file.remaining() < bytes) {
+      // Grows until frames compress to a size seen before, then stays
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * file.capacity(), file.position() + bytes));
+      file.flip();
+      larger.put(file);
+      file = larger;
+    }
+  }
+}
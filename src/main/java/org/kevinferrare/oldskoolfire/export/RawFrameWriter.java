@@ -0,0 +1,96 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams frames as headerless raw video, for an external encoder reading stdout or a named pipe, e.g.
+ * {@code ffmpeg -f rawvideo -pix_fmt rgb24 -s 1280x720 -r 60 -i - fire.mp4}.
+ * <p>
+ * Each frame is converted in a single pass into a direct buffer allocated once, which the channel writes without
+ * any further copy. Writes block: a slow reader slows the producer down, no frame is queued or dropped.
+ * <p>
+ * <b>Thread safety:</b> one thread.
+ */
+public class RawFrameWriter implements AutoCloseable {
+
+  /**
+   * Target name of the standard output.
+   */
+  public static final String STDOUT = "-";
+
+  private final WritableByteChannel channel;
+  private final RawPixelFormat format;
+  private final int pixels;
+  private final ByteBuffer buffer;
+  private long frames;
+
+  public RawFrameWriter(WritableByteChannel channel, RawPixelFormat format, int width, int height) {
+    this.channel = channel;
+    this.format = format;
+    this.pixels = width * height;
+    // Little-endian so that an 0xAARRGGBB int is stored as B, G, R, A
+    this.buffer = ByteBuffer.allocateDirect(pixels * format.bytesPerPixel()).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Opens the standard output ({@link #STDOUT}) or the given file or named pipe.
+   */
+  public static RawFrameWriter open(String target, RawPixelFormat format, int width, int height) throws IOException {
+    WritableByteChannel channel = STDOUT.equals(target)
+      ? new FileOutputStream(FileDescriptor.out).getChannel()
+      : FileChannel.open(Path.of(target), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING);
+    return new RawFrameWriter(channel, format, width, height);
+  }
+
+  /**
+   * Writes a frame, blocking until the reader accepted all of it.
+   *
+   * @param rgb 0xRRGGBB pixels, row by row, width * height long
+   * @throws IOException if the reader went away (broken pipe) or the disk is full
+   */
+  public void write(int[] rgb) throws IOException {
+    if (rgb.length != pixels) {
+      throw new IllegalArgumentException("Frame of " + rgb.length + " pixels, expected " + pixels);
+    }
+    ByteBuffer out = buffer;
+    // Absolute puts, the position is only set for the write
+    if (format == RawPixelFormat.BGRA) {
+      for (int i = 0; i < rgb.length; i++) {
+        out.putInt(i << 2, rgb[i] | 0xFF000000);
+      }
+    } else {
+      for (int i = 0, o = 0; i < rgb.length; i++, o += 3) {
+        int pixel = rgb[i];
+        out.put(o, (byte) (pixel >> 16));
+        out.put(o + 1, (byte) (pixel >> 8));
+        out.put(o + 2, (byte) pixel);
+      }
+    }
+    out.clear();
+    while (out.hasRemaining()) {
+      channel.write(out);
+    }
+    frames++;
+  }
+
+  /**
+   * Returns the number of frames written so far.
+   */
+  public long getWrittenFrames() {
+    return frames;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
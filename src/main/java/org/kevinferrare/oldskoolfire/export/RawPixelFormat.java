@@ -0,0 +1,49 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Pixel layouts written by the {@link RawFrameWriter}, named after the ffmpeg {@code -pix_fmt} reading them.
+ */
+public enum RawPixelFormat {
+  /**
+   * 3 bytes per pixel: red, green, blue.
+   */
+  RGB24(3),
+  /**
+   * 4 bytes per pixel: blue, green, red, alpha (always opaque). Larger, but written with one int store per pixel.
+   */
+  BGRA(4);
+
+  private final int bytesPerPixel;
+
+  RawPixelFormat(int bytesPerPixel) {
+    this.bytesPerPixel = bytesPerPixel;
+  }
+
+  public int bytesPerPixel() {
+    return bytesPerPixel;
+  }
+
+  /**
+   * Returns the ffmpeg name of the format.
+   */
+  public String pixFmt() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Parses a format name, case-insensitive.
+   *
+   * @throws IllegalArgumentException if the name is not a format
+   */
+  public static RawPixelFormat parse(String name) {
+    try {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown pixel format '" + name + "', expected one of "
+        + Arrays.toString(values()).toLowerCase(Locale.ROOT), e);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link FrameFormat#RAW} frames: every frame has the same size, so each one is written at its own position
+ * of the shared channel, whatever the order the encoder threads finish in.
+ */
+class RawRgbEncoder implements FrameEncoder {
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+
+  RawRgbEncoder(FileChannel channel, int width, int height) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(frameBytes(width, height));
+  }
+
+  static int frameBytes(int width, int height) {
+    return 3 * width * height;
+  }
+
+  @Override
+  public void encode(int[] rgb, long index) throws IOException {
+    buffer.clear();
+    for (int pixel : rgb) {
+      buffer.put((byte) (pixel >> 16));
+      buffer.put((byte) (pixel >> 8));
+      buffer.put((byte) pixel);
+    }
+    buffer.flip();
+    FrameExporter.writeFully(channel, buffer, index * buffer.capacity());
+  }
+}
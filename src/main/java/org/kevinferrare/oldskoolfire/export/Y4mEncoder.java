@@ -0,0 +1,60 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link FrameFormat#Y4M} frames: "FRAME\n" then the Y, U and V planes at full resolution (4:4:4), converted
+ * with the BT.601 limited range coefficients. Frames have a fixed size and are written at their own position
+ * after the stream header, like {@link RawRgbEncoder}.
+ */
+class Y4mEncoder implements FrameEncoder {
+
+  private static final byte[] FRAME_MARKER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+  private final FileChannel channel;
+  private final long headerBytes;
+  private final int pixels;
+  private final byte[] planes;
+  private final ByteBuffer buffer;
+
+  Y4mEncoder(FileChannel channel, int width, int height, long headerBytes) {
+    this.channel = channel;
+    this.headerBytes = headerBytes;
+    this.pixels = width * height;
+    this.planes = new byte[3 * pixels];
+    this.buffer = ByteBuffer.allocateDirect(frameBytes(width, height));
+  }
+
+  /**
+   * Returns the stream header, written once at the start of the file.
+   */
+  static byte[] header(int width, int height, int fps) {
+    return ("YUV4MPEG2 W" + width + " H" + height + " F" + fps + ":1 Ip A1:1 C444\n")
+      .getBytes(StandardCharsets.US_ASCII);
+  }
+
+  static int frameBytes(int width, int height) {
+    return FRAME_MARKER.length + 3 * width * height;
+  }
+
+  @Override
+  public void encode(int[] rgb, long index) throws IOException {
+    for (int i = 0; i < pixels; i++) {
+      int pixel = rgb[i];
+      int r = (pixel >> 16) & 0xFF;
+      int g = (pixel >> 8) & 0xFF;
+      int b = pixel & 0xFF;
+      planes[i] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+      planes[pixels + i] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+      planes[2 * pixels + i] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+    }
+    buffer.clear();
+    buffer.put(FRAME_MARKER);
+    buffer.put(planes);
+    buffer.flip();
+    FrameExporter.writeFully(channel, buffer, headerBytes + index * buffer.capacity());
+  }
+}
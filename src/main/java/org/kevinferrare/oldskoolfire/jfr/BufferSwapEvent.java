@@ -0,0 +1,54 @@
+package org.kevinferrare.oldskoolfire.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Publication of a completed frame to the render thread, and recycling of the surface it handed back.
+ */
+@Name("org.kevinferrare.oldskoolfire.BufferSwap")
+@Label("Buffer Swap")
+@Category({"Old Skool Fire"})
+@Description("Completed frame published, a surface recycled or reallocated for the next one")
+@StackTrace(false)
+public class BufferSwapEvent extends jdk.jfr.Event {
+
+  private static final EventType TYPE = EventType.getEventType(BufferSwapEvent.class);
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  @Label("Recycled")
+  @Description("False if the returned surface predates a resize and a new one was allocated")
+  boolean recycled;
+
+  /**
+   * Returns whether a recording wants these events, check it before creating one to stay allocation-free.
+   */
+  public static boolean recording() {
+    return TYPE.isEnabled();
+  }
+
+  /**
+   * Creates the event and starts its timing.
+   */
+  public static BufferSwapEvent start() {
+    BufferSwapEvent event = new BufferSwapEvent();
+    event.begin();
+    return event;
+  }
+
+  public void end(int width, int height, boolean recycled) {
+    this.width = width;
+    this.height = height;
+    this.recycled = recycled;
+    commit();
+  }
+}
@@ -0,0 +1,45 @@
+package org.kevinferrare.oldskoolfire.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One stage of a frame (convolve, drawShape, seed, palette, blit), as timed by the stage probes.
+ */
+@Name("org.kevinferrare.oldskoolfire.FrameStage")
+@Label("Frame Stage")
+@Category({"Old Skool Fire"})
+@Description("Stage of a frame: convolution, shape, seed line, palette conversion or blit")
+@StackTrace(false)
+public class FrameStageEvent extends jdk.jfr.Event {
+
+  private static final EventType TYPE = EventType.getEventType(FrameStageEvent.class);
+
+  @Label("Stage")
+  String stage;
+
+  /**
+   * Returns whether a recording wants these events, check it before creating one to stay allocation-free.
+   */
+  public static boolean recording() {
+    return TYPE.isEnabled();
+  }
+
+  /**
+   * Creates the event and starts its timing.
+   */
+  public static FrameStageEvent start() {
+    FrameStageEvent event = new FrameStageEvent();
+    event.begin();
+    return event;
+  }
+
+  public void end(String stage) {
+    this.stage = stage;
+    commit();
+  }
+}
@@ -0,0 +1,74 @@
+package org.kevinferrare.oldskoolfire.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One simulation tick: the shape update and the buffer swap of a frame.
+ */
+@Name("org.kevinferrare.oldskoolfire.FrameTick")
+@Label("Frame Tick")
+@Category({"Old Skool Fire"})
+@Description("Simulation tick computing one frame")
+@StackTrace(false)
+public class FrameTickEvent extends jdk.jfr.Event {
+
+  private static final EventType TYPE = EventType.getEventType(FrameTickEvent.class);
+
+  @Label("Tick")
+  long tick;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  @Label("Renderer")
+  String renderer;
+
+  @Label("Strategy")
+  String strategy;
+
+  @Label("Cooling")
+  int cooling;
+
+  @Label("Shape")
+  String shape;
+
+  @Label("Line Count")
+  int lineCount;
+
+  /**
+   * Returns whether a recording wants these events, check it before creating one to stay allocation-free.
+   */
+  public static boolean recording() {
+    return TYPE.isEnabled();
+  }
+
+  /**
+   * Creates the event and starts its timing.
+   */
+  public static FrameTickEvent start() {
+    FrameTickEvent event = new FrameTickEvent();
+    event.begin();
+    return event;
+  }
+
+  public void end(long tick, int width, int height, String renderer, String strategy, int cooling, String shape,
+                  int lineCount) {
+    this.tick = tick;
+    this.width = width;
+    this.height = height;
+    this.renderer = renderer;
+    this.strategy = strategy;
+    this.cooling = cooling;
+    this.shape = shape;
+    this.lineCount = lineCount;
+    commit();
+  }
+}
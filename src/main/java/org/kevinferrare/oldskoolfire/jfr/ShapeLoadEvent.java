@@ -0,0 +1,52 @@
+package org.kevinferrare.oldskoolfire.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Background load of a shape: mesh parsing or generation, then normalization.
+ */
+@Name("org.kevinferrare.oldskoolfire.ShapeLoad")
+@Label("Shape Load")
+@Category({"Old Skool Fire"})
+@Description("Shape mesh loaded or generated, then normalized")
+public class ShapeLoadEvent extends jdk.jfr.Event {
+
+  @Label("Shape")
+  String shape;
+
+  @Label("Reload")
+  @Description("True if the mesh had been evicted and is loaded again")
+  boolean reload;
+
+  @Label("Vertex Count")
+  int vertexCount;
+
+  @Label("Line Count")
+  int lineCount;
+
+  @Label("Mesh Size")
+  @DataAmount
+  long meshBytes;
+
+  /**
+   * Creates the event and starts its timing.
+   */
+  public static ShapeLoadEvent start(String shape) {
+    ShapeLoadEvent event = new ShapeLoadEvent();
+    event.shape = shape;
+    event.begin();
+    return event;
+  }
+
+  public void end(boolean reload, int vertexCount, int lineCount, long meshBytes) {
+    this.reload = reload;
+    this.vertexCount = vertexCount;
+    this.lineCount = lineCount;
+    this.meshBytes = meshBytes;
+    commit();
+  }
+}
@@ -0,0 +1,41 @@
+package org.kevinferrare.oldskoolfire.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Choice of the convolution strategy, including the time spent probing the GPU and the Vector API.
+ */
+@Name("org.kevinferrare.oldskoolfire.StrategySelection")
+@Label("Strategy Selection")
+@Category({"Old Skool Fire"})
+@Description("Convolution strategy chosen among GPU, SIMD and scalar")
+public class StrategySelectionEvent extends jdk.jfr.Event {
+
+  @Label("Strategy")
+  String strategy;
+
+  @Label("GPU Requested")
+  boolean gpuRequested;
+
+  @Label("Vector API Requested")
+  boolean vectorApiRequested;
+
+  /**
+   * Creates the event and starts its timing.
+   */
+  public static StrategySelectionEvent start(boolean gpuRequested, boolean vectorApiRequested) {
+    StrategySelectionEvent event = new StrategySelectionEvent();
+    event.gpuRequested = gpuRequested;
+    event.vectorApiRequested = vectorApiRequested;
+    event.begin();
+    return event;
+  }
+
+  public void end(String strategy) {
+    this.strategy = strategy;
+    commit();
+  }
+}
@@ -3,8 +3,6 @@ package org.kevinferrare.oldskoolfire.palette;
 import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
 import org.kevinferrare.oldskoolfire.util.Named;
 
-import java.awt.*;
-
 public record Palette(String name, int[] indexToRGB) implements Named {
 
   /**
@@ -21,11 +19,84 @@ public record Palette(String name, int[] indexToRGB) implements Named {
     }
   }
 
+  /**
+   * Converts fixed-point fire intensities to the indices of the colors {@link #apply} looks up, one byte each.
+   */
+  public void toIndices(FixedIntSurface source, byte[] destination) {
+    toIndices(source, destination, indexToRGB.length);
+  }
+
+  /**
+   * Same as {@link #toIndices(FixedIntSurface, byte[])} for any palette of the given size, a power of 2 up to 256,
+   * where the palette is not known.
+   */
+  public static void toIndices(FixedIntSurface source, byte[] destination, int paletteSize) {
+    int[] data = source.data();
+    int mask = paletteSize - 1;
+    for (int i = 0; i < destination.length; i++) {
+      destination[i] = (byte) ((data[i] >> FixedIntSurface.SCALING_SHIFT) & mask);
+    }
+  }
+
   static int rgbToInteger(int r, int g, int b) {
     return (r << 16) | (g << 8) | b;
   }
 
+  /**
+   * Same conversion as {@code java.awt.Color.HSBtoRGB} (alpha included), without loading AWT.
+   */
   static int hsbToInteger(float hue, float saturation, float brightness) {
-    return Color.HSBtoRGB(hue, saturation, brightness);
+    int r = 0;
+    int g = 0;
+    int b = 0;
+    if (saturation == 0) {
+      r = g = b = toByte(brightness);
+    } else {
+      float h = (hue - (float) Math.floor(hue)) * 6.0f;
+      float f = h - (float) Math.floor(h);
+      float p = brightness * (1.0f - saturation);
+      float q = brightness * (1.0f - saturation * f);
+      float t = brightness * (1.0f - (saturation * (1.0f - f)));
+      switch ((int) h) {
+        case 0 -> {
+          r = toByte(brightness);
+          g = toByte(t);
+          b = toByte(p);
+        }
+        case 1 -> {
+          r = toByte(q);
+          g = toByte(brightness);
+          b = toByte(p);
+        }
+        case 2 -> {
+          r = toByte(p);
+          g = toByte(brightness);
+          b = toByte(t);
+        }
+        case 3 -> {
+          r = toByte(p);
+          g = toByte(q);
+          b = toByte(brightness);
+        }
+        case 4 -> {
+          r = toByte(t);
+          g = toByte(p);
+          b = toByte(brightness);
+        }
+        case 5 -> {
+          r = toByte(brightness);
+          g = toByte(p);
+          b = toByte(q);
+        }
+        default -> {
+          // Unreachable, h is in [0, 6)
+        }
+      }
+    }
+    return 0xff000000 | rgbToInteger(r, g, b);
+  }
+
+  private static int toByte(float component) {
+    return (int) (component * 255.0f + 0.5f);
   }
 }
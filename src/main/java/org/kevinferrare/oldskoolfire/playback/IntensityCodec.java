@@ -0,0 +1,91 @@
+package org.kevinferrare.oldskoolfire.playback;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compression of one frame of 8-bit palette indices: each row is replaced by its difference with the row above
+ * (the fire changes slowly from row to row, most differences are 0), then the differences are run-length encoded
+ * the PackBits way. A control byte {@code c} is followed by {@code c + 1} literal bytes when {@code c >= 0},
+ * or by one byte repeated {@code 1 - c} times when {@code c < 0}.
+ */
+final class IntensityCodec {
+
+  private static final int MAX_RUN = 128;
+
+  private IntensityCodec() {
+  }
+
+  /**
+   * Returns the largest possible size of an encoded frame of the given number of pixels.
+   */
+  static int maxEncodedSize(int pixels) {
+    return pixels + (pixels + MAX_RUN - 1) / MAX_RUN;
+  }
+
+  /**
+   * Encodes a frame.
+   *
+   * @param indices the frame, row by row
+   * @param deltas  scratch buffer as long as the frame
+   * @param out     receives the encoded frame, at least {@link #maxEncodedSize} remaining
+   */
+  static void encode(byte[] indices, int width, byte[] deltas, ByteBuffer out) {
+    int n = indices.length;
+    System.arraycopy(indices, 0, deltas, 0, Math.min(width, n));
+    for (int i = width; i < n; i++) {
+      deltas[i] = (byte) (indices[i] - indices[i - width]);
+    }
+    int i = 0;
+    while (i < n) {
+      byte value = deltas[i];
+      int run = 1;
+      while (i + run < n && run < MAX_RUN && deltas[i + run] == value) {
+        run++;
+      }
+      if (run >= 3) {
+        out.put((byte) (1 - run));
+        out.put(value);
+        i += run;
+        continue;
+      }
+      // Literals until the next run worth encoding
+      int start = i;
+      int length = 0;
+      while (i < n && length < MAX_RUN
+        && !(i + 2 < n && deltas[i] == deltas[i + 1] && deltas[i] == deltas[i + 2])) {
+        i++;
+        length++;
+      }
+      out.put((byte) (length - 1));
+      out.put(deltas, start, length);
+    }
+  }
+
+  /**
+   * Decodes a frame encoded by {@link #encode}.
+   *
+   * @param in      encoded bytes, read with absolute gets from {@code offset}
+   * @param indices receives the frame, row by row
+   */
+  static void decode(ByteBuffer in, int offset, byte[] indices, int width) {
+    int n = indices.length;
+    int o = 0;
+    int p = offset;
+    while (o < n) {
+      int control = in.get(p++);
+      if (control >= 0) {
+        in.get(p, indices, o, control + 1);
+        p += control + 1;
+        o += control + 1;
+      } else {
+        byte value = in.get(p++);
+        for (int end = o + 1 - control; o < end; o++) {
+          indices[o] = value;
+        }
+      }
+    }
+    for (int i = width; i < n; i++) {
+      indices[i] = (byte) (indices[i] + indices[i - width]);
+    }
+  }
+}
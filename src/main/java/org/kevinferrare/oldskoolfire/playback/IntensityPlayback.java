@@ -0,0 +1,172 @@
+package org.kevinferrare.oldskoolfire.playback;
+
+import org.kevinferrare.oldskoolfire.palette.Palette;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a recording written by {@link IntensityRecorder}. The file is memory-mapped: opening it only walks
+ * the frame sizes to index the frames, decoding a frame reads its bytes straight from the page cache.
+ * <p>
+ * A recording may change size from a frame to the next, see {@link #getWidth(int)} and {@link #getHeight(int)}.
+ * <p>
+ * <b>Thread safety:</b> {@link #decode} from one thread, the rest from any.
+ */
+public class IntensityPlayback implements AutoCloseable {
+
+  private final FileChannel channel;
+  private final MappedByteBuffer data;
+  private final int width;
+  private final int height;
+  private final int fps;
+  private final int[] pixelOffsets;           // where the encoded pixels of each frame start
+  private final int[] frameWidths;
+  private final int[] frameHeights;
+  private final Palette[] palettes;           // palette of each frame, shared until it changes
+
+  private IntensityPlayback(FileChannel channel, MappedByteBuffer data) throws IOException {
+    this.channel = channel;
+    this.data = data;
+    byte[] magic = new byte[IntensityRecorder.MAGIC.length];
+    if (data.limit() >= IntensityRecorder.HEADER_BYTES) {
+      data.get(0, magic);
+    }
+    if (!Arrays.equals(magic, IntensityRecorder.MAGIC)) {
+      throw new IOException("Not a fire recording");
+    }
+    int version = data.get(magic.length);
+    if (version < 1 || version > IntensityRecorder.VERSION) {
+      throw new IOException("Unsupported fire recording version " + version);
+    }
+    this.width = data.getInt(magic.length + 1);
+    this.height = data.getInt(magic.length + 1 + Integer.BYTES);
+    this.fps = data.getInt(magic.length + 1 + 2 * Integer.BYTES);
+
+    List<Integer> offsets = new ArrayList<>();
+    List<Integer> widths = new ArrayList<>();
+    List<Integer> heights = new ArrayList<>();
+    List<Palette> framePalettes = new ArrayList<>();
+    int frameWidth = width;
+    int frameHeight = height;
+    Palette palette = null;
+    int position = IntensityRecorder.HEADER_BYTES;
+    while (position + Integer.BYTES + 1 <= data.limit()) {
+      int pixelBytes = data.getInt(position);
+      int flags = data.get(position + Integer.BYTES);
+      position += Integer.BYTES + 1;
+      if ((flags & IntensityRecorder.FLAG_SIZE) != 0 && position + 2 * Integer.BYTES <= data.limit()) {
+        frameWidth = data.getInt(position);
+        frameHeight = data.getInt(position + Integer.BYTES);
+        position += 2 * Integer.BYTES;
+      }
+      if ((flags & IntensityRecorder.FLAG_PALETTE) != 0) {
+        byte[] name = new byte[data.getShort(position)];
+        data.get(position + Short.BYTES, name);
+        position += Short.BYTES + name.length;
+        int[] colors = new int[data.getInt(position)];
+        position += Integer.BYTES;
+        for (int i = 0; i < colors.length; i++) {
+          colors[i] = data.getInt(position);
+          position += Integer.BYTES;
+        }
+        palette = new Palette(new String(name, StandardCharsets.UTF_8), colors);
+      }
+      if (palette == null || position + pixelBytes > data.limit()) {
+        break; // Truncated, the recording was not closed properly
+      }
+      offsets.add(position);
+      widths.add(frameWidth);
+      heights.add(frameHeight);
+      framePalettes.add(palette);
+      position += pixelBytes;
+    }
+    if (offsets.isEmpty()) {
+      throw new IOException("Empty fire recording");
+    }
+    this.pixelOffsets = offsets.stream().mapToInt(Integer::intValue).toArray();
+    this.frameWidths = widths.stream().mapToInt(Integer::intValue).toArray();
+    this.frameHeights = heights.stream().mapToInt(Integer::intValue).toArray();
+    this.palettes = framePalettes.toArray(new Palette[0]);
+  }
+
+  /**
+   * Opens and indexes a recording.
+   *
+   * @throws IOException if it cannot be read, is not a recording or has no frame
+   */
+  public static IntensityPlayback open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Fire recordings over 2 GB are not supported");
+      }
+      return new IntensityPlayback(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the width of the first frame.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height of the first frame.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  public int getWidth(int frame) {
+    return frameWidths[frame];
+  }
+
+  public int getHeight(int frame) {
+    return frameHeights[frame];
+  }
+
+  /**
+   * Returns the frame rate the recording is meant to be played at.
+   */
+  public int getFps() {
+    return fps;
+  }
+
+  public int getFrameCount() {
+    return pixelOffsets.length;
+  }
+
+  /**
+   * Returns the palette the given frame was recorded with.
+   */
+  public Palette getPalette(int frame) {
+    return palettes[frame];
+  }
+
+  /**
+   * Decodes the palette indices of a frame.
+   *
+   * @param indices receives the frame, row by row, {@code getWidth(frame) * getHeight(frame)} long
+   */
+  public void decode(int frame, byte[] indices) {
+    IntensityCodec.decode(data, pixelOffsets[frame], indices, frameWidths[frame]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    // The mapping itself is released when collected
+    channel.close();
+  }
+}
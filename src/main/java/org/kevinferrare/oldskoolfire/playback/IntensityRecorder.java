@@ -0,0 +1,158 @@
+package org.kevinferrare.oldskoolfire.playback;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.export.FrameSink;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records frames as palette indices rather than RGB, for {@link IntensityPlayback}.
+ * <p>
+ * The file starts with a header: the magic "FIRI", a version byte, then the width, height and frame rate
+ * as ints. Each frame follows as an int giving the size of its encoded pixels, a flags byte, its new width and
+ * height as ints when {@link #FLAG_SIZE} is set (resize) and, when {@link #FLAG_PALETTE} is set (first frame,
+ * palette change), the palette: its name as a short length and UTF-8 bytes, its size as an int and its RGB colors
+ * as ints. Then come the pixels encoded by {@link IntensityCodec}. Numbers are big-endian.
+ * <p>
+ * Fire frames are mostly black or smooth, a frame typically takes a few percent of its RGB size. As a
+ * {@link FrameSink}, the recording stops at the first frame that cannot be written.
+ * <p>
+ * <b>Thread safety:</b> one thread.
+ */
+@Slf4j
+public class IntensityRecorder implements FrameSink {
+
+  static final byte[] MAGIC = "FIRI".getBytes(StandardCharsets.US_ASCII);
+  static final byte VERSION = 2;
+  static final int HEADER_BYTES = MAGIC.length + 1 + 3 * Integer.BYTES;
+  static final int FLAG_PALETTE = 1;
+  /**
+   * Since version 2, version 1 recordings have a single size.
+   */
+  static final int FLAG_SIZE = 2;
+
+  private final Path path;
+  private final FileChannel channel;
+  private int width;
+  private int height;
+  private byte[] indices;
+  private byte[] deltas;
+  private ByteBuffer frame;
+  private Palette palette;
+  private long frames;
+  private long bytes;
+  private long rgbBytes;
+  private boolean failed;
+
+  /**
+   * @param fps frame rate the recording is played back at
+   */
+  public IntensityRecorder(Path path, int width, int height, int fps) throws IOException {
+    this.path = path;
+    this.width = width;
+    this.height = height;
+    this.indices = new byte[width * height];
+    this.deltas = new byte[width * height];
+    this.frame = ByteBuffer.allocate(Integer.BYTES + 1 + IntensityCodec.maxEncodedSize(width * height));
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+      .put(MAGIC)
+      .put(VERSION)
+      .putInt(width)
+      .putInt(height)
+      .putInt(fps)
+      .flip();
+    write(header);
+  }
+
+  @Override
+  public void offer(FixedIntSurface intensities, int[] rgb, Palette palette) {
+    if (failed) {
+      return;
+    }
+    try {
+      record(intensities, palette);
+    } catch (IOException e) {
+      // Most likely the disk is full, stop recording rather than failing every frame
+      failed = true;
+      log.error("Cannot record the fire to {}, recording stopped", path, e);
+    }
+  }
+
+  /**
+   * Appends a frame. A frame of another size than the previous one (resize) starts with the new size.
+   *
+   * @param surface fixed-point intensities, as given to {@link Palette#apply}
+   * @param palette palette the frame is shown with
+   */
+  public void record(FixedIntSurface surface, Palette palette) throws IOException {
+    boolean sizeChanged = surface.width() != width || surface.height() != height;
+    if (sizeChanged) {
+      log.info("Recording frames of {}x{} instead of {}x{}", surface.width(), surface.height(), width, height);
+      this.width = surface.width();
+      this.height = surface.height();
+      this.indices = new byte[width * height];
+      this.deltas = new byte[width * height];
+    }
+    palette.toIndices(surface, indices);
+
+    boolean paletteChanged = palette != this.palette;
+    byte[] name = paletteChanged ? palette.name().getBytes(StandardCharsets.UTF_8) : null;
+    int paletteBytes = paletteChanged
+      ? Short.BYTES + name.length + Integer.BYTES * (1 + palette.indexToRGB().length)
+      : 0;
+    int sizeBytes = sizeChanged ? 2 * Integer.BYTES : 0;
+    int capacity = Integer.BYTES + 1 + sizeBytes + paletteBytes + IntensityCodec.maxEncodedSize(indices.length);
+    if (frame.capacity() < capacity) {
+      frame = ByteBuffer.allocate(capacity);
+    }
+    frame.clear();
+    frame.position(Integer.BYTES);
+    frame.put((byte) ((paletteChanged ? FLAG_PALETTE : 0) | (sizeChanged ? FLAG_SIZE : 0)));
+    if (sizeChanged) {
+      frame.putInt(width).putInt(height);
+    }
+    if (paletteChanged) {
+      frame.putShort((short) name.length).put(name);
+      frame.putInt(palette.indexToRGB().length);
+      for (int rgb : palette.indexToRGB()) {
+        frame.putInt(rgb);
+      }
+      this.palette = palette;
+    }
+    int pixelsStart = frame.position();
+    IntensityCodec.encode(indices, width, deltas, frame);
+    frame.putInt(0, frame.position() - pixelsStart);
+    frame.flip();
+    write(frame);
+    frames++;
+    rgbBytes += width * height * 3L;
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    bytes += buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.warn("Cannot close the fire recording {}", path, e);
+      return;
+    }
+    log.info("Recorded {} frames to {}: {} bytes, {} times smaller than RGB", frames, path, bytes,
+      bytes > HEADER_BYTES ? String.format("%.1f", (double) rgbBytes / bytes) : "-");
+  }
+}
@@ -0,0 +1,122 @@
+package org.kevinferrare.oldskoolfire.renderer;
+
+import org.kevinferrare.oldskoolfire.band.BandCoordinator;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.LineRasterizer;
+import org.kevinferrare.oldskoolfire.drawable.ShapeLayer;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+import org.kevinferrare.oldskoolfire.util.Stage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Fire renderer whose fire is simulated in bands by the worker processes of a {@link BandCoordinator}. Each tick
+ * rasterizes the shape into a {@link ShapeLayer} and sends it to the workers with the cooling and seed settings,
+ * kept by this class as for an in-process fire. {@link #render} assembles the latest frame from the workers.
+ * <p>
+ * The frames live in the workers, so the surfaces of the base classes are left empty and nothing is swapped.
+ * The convolution duration is that of the slowest worker.
+ */
+public class BandSceneRenderer extends FireSceneRenderer {
+
+  private final BandCoordinator coordinator;
+  private ShapeLayer shapeLayer;            // simulation thread only, recreated on resize
+  private LineRasterizer shapeRasterizer;   // simulation thread only, recreated on resize
+  private FixedIntSurface frame;            // render thread only
+
+  /**
+   * Starts the workers.
+   *
+   * @param seed master seed of the workers' random streams, null to seed them from the clock
+   */
+  public BandSceneRenderer(int bands, boolean gpu, boolean noVectorApi, Long seed) {
+    // The convolution runs in the workers, only keep the settings here
+    super(false, true, new RandomStreams(seed));
+    try {
+      this.coordinator = new BandCoordinator(bands, gpu, noVectorApi, seed);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot start the band workers", e);
+    }
+  }
+
+  @Override
+  public String getStrategyName() {
+    return coordinator.getStrategyName() + " x" + coordinator.getBandCount() + " bands";
+  }
+
+  @Override
+  public ConvolveAndRiseEffect getConvolution() {
+    return null;
+  }
+
+  @Override
+  protected FixedIntSurface createSurface(int width, int height) {
+    return new FixedIntSurface(new int[0], width, height);
+  }
+
+  @Override
+  public void setSize(int width, int height) {
+    super.setSize(width, height);
+    this.shapeLayer = new ShapeLayer(width, height);
+    this.shapeRasterizer = new LineRasterizer(shapeLayer);
+    try {
+      coordinator.resize(width, height);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Band worker lost", e);
+    }
+  }
+
+  @Override
+  public void update(Entity3D shape) {
+    long start = timings.begin(Stage.DRAW_SHAPE);
+    shapeLayer.clear();
+    if (shape != null) {
+      graphics3D.drawEntity(shapeRasterizer, shape);
+    }
+    timings.record(Stage.DRAW_SHAPE, start);
+    try {
+      long convolveNanos = coordinator.tick(getCooling(), isStillFireBottom(), shapeLayer);
+      if (convolveNanos > 0) {
+        timings.recordDuration(Stage.CONVOLVE, convolveNanos);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Band worker lost", e);
+    }
+  }
+
+  @Override
+  public void swapBuffers() {
+    // The workers keep their frames until rendered
+  }
+
+  @Override
+  public boolean render(Palette palette, int[] target) {
+    try {
+      frame = coordinator.gather(frame);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Band worker lost", e);
+    }
+    if (frame.data().length != target.length) {
+      return false; // Frame from before a resize
+    }
+    long start = timings.begin(Stage.PALETTE);
+    palette.apply(frame, target);
+    timings.record(Stage.PALETTE, start);
+    return true;
+  }
+
+  @Override
+  public FixedIntSurface renderedSurface() {
+    return frame;
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    coordinator.close();
+  }
+}
@@ -5,17 +5,57 @@ import org.kevinferrare.oldskoolfire.drawable.FireSeedLine;
 import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
 import org.kevinferrare.oldskoolfire.drawable.brush.Material;
 import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.util.FrameTaskGraph;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+import org.kevinferrare.oldskoolfire.util.Stage;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fire renderer: each tick convolves the previous frame into the back surface, then adds the heat sources
+ * (the shape and the seed line).
+ * <p>
+ * A tick runs as a {@link FrameTaskGraph}: the convolution is split in bands of rows running in parallel,
+ * the seed line (on the extra row, read only by the next tick) runs alongside them, and the shape is drawn
+ * as soon as the last band completes. The convolution is timed from the start of the tick to the end of its
+ * last band, whatever ran alongside.
+ */
 public class FireSceneRenderer extends SceneRenderer {
 
-  private final FireSeedLine fireSeed = new FireSeedLine();
+  /**
+   * Bands smaller than this are not worth a task.
+   */
+  private static final int MIN_BAND_ROWS = 32;
+
+  private final FireSeedLine fireSeed;
 
   private final ConvolveAndRiseEffect convolveAndRiseEffect;
 
+  private final ForkJoinPool pool;
+
   private boolean stillFireBottom = false;
 
-  public FireSceneRenderer(boolean gpu, boolean noVectorApi) {
+  // Tick graph and the per-tick inputs of its tasks, rebuilt on surface change
+  private FrameTaskGraph tickGraph;
+  private FixedIntSurface convolveSource;
+  private Entity3D currentShape;
+  private boolean shapeStaged;
+  private long tickStart;
+  private final AtomicLong convolveEnd = new AtomicLong();
+
+  public FireSceneRenderer(boolean gpu, boolean noVectorApi, RandomStreams streams) {
+    this(gpu, noVectorApi, ForkJoinPool.commonPool(), streams);
+  }
+
+  /**
+   * @param pool    pool running the tick graph, a pool of parallelism 1 runs everything on the simulation thread
+   * @param streams random streams of the engine, seed the seed line
+   */
+  public FireSceneRenderer(boolean gpu, boolean noVectorApi, ForkJoinPool pool, RandomStreams streams) {
     this.convolveAndRiseEffect = new ConvolveAndRiseEffect(3, gpu, noVectorApi);
+    this.pool = pool;
+    this.fireSeed = new FireSeedLine(streams);
   }
 
   @Override
@@ -23,6 +63,29 @@ public class FireSceneRenderer extends SceneRenderer {
     return "fire";
   }
 
+  @Override
+  public void setSize(int width, int height) {
+    super.setSize(width, height);
+    this.tickGraph = createTickGraph(convolveAndRiseEffect.rows(backSurface));
+  }
+
+  private FrameTaskGraph createTickGraph(int rows) {
+    FrameTaskGraph graph = new FrameTaskGraph(pool);
+    int bands = 1;
+    if (graph.isParallel() && convolveAndRiseEffect.supportsBands()) {
+      bands = Math.clamp(rows / MIN_BAND_ROWS, 1, pool.getParallelism());
+    }
+    FrameTaskGraph.Task[] convolution = new FrameTaskGraph.Task[bands];
+    for (int band = 0; band < bands; band++) {
+      int firstRow = rows * band / bands;
+      int endRow = rows * (band + 1) / bands;
+      convolution[band] = graph.add(() -> convolveBand(firstRow, endRow));
+    }
+    graph.add(this::drawSeed);
+    graph.add(this::drawHeat, convolution);
+    return graph;
+  }
+
   @Override
   protected FixedIntSurface createSurface(int width, int height) {
     // Add one extra row for the fire seed line
@@ -41,10 +104,25 @@ public class FireSceneRenderer extends SceneRenderer {
     convolveAndRiseEffect.setCooling(value);
   }
 
+  public int getCooling() {
+    return convolveAndRiseEffect.getCooling();
+  }
+
+  public boolean isStillFireBottom() {
+    return stillFireBottom;
+  }
+
   public String getStrategyName() {
     return convolveAndRiseEffect.getStrategyName();
   }
 
+  /**
+   * Returns the convolution the ticks run, null if it does not run in this process.
+   */
+  public ConvolveAndRiseEffect getConvolution() {
+    return convolveAndRiseEffect;
+  }
+
   public void setStillFireBottom(boolean still) {
     stillFireBottom = still;
     Material material = fireSeed.getMaterial();
@@ -52,11 +130,74 @@ public class FireSceneRenderer extends SceneRenderer {
     material.setRandomPixel(!still);
   }
 
+  /**
+   * Replaces the fire with the given frame, scaled to the current size, and publishes it: the next tick carries on
+   * from it. Called by the simulation thread.
+   *
+   * @param frame intensities and seed line, as produced by this renderer, of any size
+   */
+  public void restore(FixedIntSurface frame) {
+    int[] source = frame.data();
+    int sourceWidth = frame.width();
+    int sourceRows = source.length / sourceWidth;
+    int[] target = backSurface.data();
+    int width = backSurface.width();
+    int rows = target.length / width;
+    for (int y = 0; y < rows; y++) {
+      // First and last rows match, the seed line stays at the bottom
+      int sourceRow = rows > 1 ? (int) ((long) y * (sourceRows - 1) / (rows - 1)) : sourceRows - 1;
+      int sourceOffset = sourceRow * sourceWidth;
+      int offset = y * width;
+      for (int x = 0; x < width; x++) {
+        target[offset + x] = source[sourceOffset + (int) ((long) x * sourceWidth / width)];
+      }
+    }
+    swapBuffers();
+  }
+
   @Override
   public void update(Entity3D shape) {
-    // Order matters: convolve first (read front, write back), then add new heat sources
-    convolveAndRiseEffect.draw(frontSurface(), backSurface);
-    drawShape(shape);
-    fireSeed.draw(backSurface);
+    // Order matters: convolve first (read front, write back), then add new heat sources.
+    // Large shapes are rasterized concurrently with the convolution and applied after it.
+    FixedIntSurface front = frontSurface();
+    convolveSource = hasCurrentSize(front) ? front : null;
+    currentShape = shape;
+    shapeStaged = startShape(shape, fireSeed);
+    tickStart = timings.begin(Stage.CONVOLVE);
+    convolveEnd.set(tickStart);
+    try {
+      tickGraph.run();
+    } finally {
+      convolveSource = null;
+      currentShape = null;
+    }
+  }
+
+  private void convolveBand(int firstRow, int endRow) {
+    if (convolveSource != null) {
+      convolveAndRiseEffect.draw(convolveSource, backSurface, firstRow, endRow);
+    }
+    convolveEnd.accumulateAndGet(System.nanoTime(), Math::max);
+  }
+
+  private void drawSeed() {
+    // Only writes the extra row, independent of the convolution
+    if (!shapeStaged) {
+      long start = timings.begin(Stage.SEED);
+      fireSeed.draw(backSurface);
+      timings.record(Stage.SEED, start);
+    }
+  }
+
+  private void drawHeat() {
+    // Runs after every band: the convolution is complete
+    timings.recordDuration(Stage.CONVOLVE, convolveEnd.get() - tickStart);
+    long start = timings.begin(Stage.DRAW_SHAPE);
+    if (shapeStaged) {
+      finishShape();
+    } else {
+      drawShape(currentShape);
+    }
+    timings.record(Stage.DRAW_SHAPE, start);
   }
 }
@@ -0,0 +1,106 @@
+package org.kevinferrare.oldskoolfire.renderer;
+
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.playback.IntensityPlayback;
+import org.kevinferrare.oldskoolfire.util.Stage;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a fire recording instead of simulating the fire, for machines too slow to run the simulation.
+ * A tick decodes a frame only when the next one is due and copies it to the back surface, the render thread then
+ * runs {@link Palette#apply} as usual, with the palette the frame was recorded with. Shapes are not drawn.
+ * <p>
+ * Ticks are paced at twice the recording's frame rate by {@link #awaitTick}, the simulation thread sleeps in
+ * between. Publishing every tick keeps the render thread from showing a frame older than the previous one, and
+ * the playback follows the ticks, so it pauses with the scene. It loops at the end of the recording.
+ * Frames of another size than the surface are scaled, nearest neighbour, whatever size each was recorded at.
+ */
+public class PlaybackSceneRenderer extends SceneRenderer {
+
+  private static final int TICKS_PER_FRAME = 2;
+
+  private final IntensityPlayback playback;
+  private final long tickNanos;
+  private byte[] indices;                     // palette indices of the shown frame, at its recorded size
+  private int[] frame = new int[0];           // fixed-point intensities of the shown frame, at the surface size
+  private int frameWidth;
+  private int frameHeight;
+  private int shownFrame = -1;
+  private long ticks;
+  private long nextTickNanos;
+  private volatile Palette palette;           // palette of the latest decoded frame, read by the render thread
+
+  public PlaybackSceneRenderer(IntensityPlayback playback) {
+    this.playback = playback;
+    this.tickNanos = 1_000_000_000L / (Math.max(1, playback.getFps()) * TICKS_PER_FRAME);
+    this.indices = new byte[0];
+    this.palette = playback.getPalette(0);
+  }
+
+  @Override
+  public String getName() {
+    return "playback";
+  }
+
+  @Override
+  public void awaitTick() {
+    long now = System.nanoTime();
+    if (nextTickNanos - now > 0) {
+      LockSupport.parkNanos(nextTickNanos - now);
+      nextTickNanos += tickNanos;
+    } else {
+      // Late (first tick, slow machine), do not try to catch up
+      nextTickNanos = now + tickNanos;
+    }
+  }
+
+  @Override
+  public void update(Entity3D shape) {
+    long start = timings.begin(Stage.CONVOLVE);
+    int[] back = backSurface.data();
+    if (frameWidth != backSurface.width() || frameHeight != backSurface.height()) {
+      frameWidth = backSurface.width();
+      frameHeight = backSurface.height();
+      frame = new int[frameWidth * frameHeight];
+      shownFrame = -1;
+    }
+    int due = (int) (ticks++ / TICKS_PER_FRAME % playback.getFrameCount());
+    if (due != shownFrame) {
+      int pixels = playback.getWidth(due) * playback.getHeight(due);
+      if (indices.length != pixels) {
+        indices = new byte[pixels];
+      }
+      playback.decode(due, indices);
+      scale(playback.getWidth(due), playback.getHeight(due));
+      palette = playback.getPalette(due);
+      shownFrame = due;
+    }
+    System.arraycopy(frame, 0, back, 0, frame.length);
+    timings.record(Stage.CONVOLVE, start);
+  }
+
+  /**
+   * Converts the decoded indices to fixed-point intensities at the surface size.
+   */
+  private void scale(int sourceWidth, int sourceHeight) {
+    for (int y = 0; y < frameHeight; y++) {
+      int sourceRow = (int) ((long) y * sourceHeight / frameHeight) * sourceWidth;
+      int row = y * frameWidth;
+      for (int x = 0; x < frameWidth; x++) {
+        int index = indices[sourceRow + (int) ((long) x * sourceWidth / frameWidth)] & 0xFF;
+        frame[row + x] = index << FixedIntSurface.SCALING_SHIFT;
+      }
+    }
+  }
+
+  /**
+   * Renders with the palette of the recording, the given one is ignored.
+   */
+  @Override
+  public boolean render(Palette palette, int[] target) {
+    return super.render(this.palette, target);
+  }
+}
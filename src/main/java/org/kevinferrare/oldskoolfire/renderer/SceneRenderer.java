@@ -1,15 +1,15 @@
 package org.kevinferrare.oldskoolfire.renderer;
 
-import lombok.Setter;
+import org.kevinferrare.oldskoolfire.drawable.FireSeedLine;
 import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
-import org.kevinferrare.oldskoolfire.drawable.LineDrawer;
 import org.kevinferrare.oldskoolfire.drawable.LineRasterizer;
 import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
 import org.kevinferrare.oldskoolfire.drawable.threed.Graphics3D;
+import org.kevinferrare.oldskoolfire.jfr.BufferSwapEvent;
 import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.util.Stage;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
 
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -19,28 +19,56 @@ import java.util.concurrent.atomic.AtomicReference;
  * - backSurface: simulation writes here exclusively
  * - readySurface: most recently completed frame (atomic reference)
  * - renderSurface: render's private buffer, exchanged atomically with ready
+ * <p>
+ * A resize is applied by the simulation thread while the render thread keeps running: surfaces of the
+ * previous size still circulating are replaced as they come back, and frames not matching the size of the
+ * render target are skipped by the render thread.
+ * <p>
+ * Large shapes are rasterized on a {@link ShapeStage} while the subclass prepares the back surface,
+ * see {@link #startShape} and {@link #finishShape}.
+ * <p>
+ * Stage durations are recorded into the {@link StageTimings} given to {@link #setTimings}.
  */
-public abstract class SceneRenderer {
+public abstract class SceneRenderer implements AutoCloseable {
 
   private final AtomicReference<FixedIntSurface> readySurface = new AtomicReference<>();
   private FixedIntSurface renderSurface;            // render thread only
+  private FixedIntSurface completedSurface;         // simulation thread only, last published back surface
   protected FixedIntSurface backSurface;            // simulation thread only
   protected Graphics3D graphics3D;                  // cached, recreated on surface change
-  protected LineDrawer lineDrawer;                   // cached, recreated on surface change
-  @Setter
-  protected Palette palette;
-  protected int[] imageBuffer;
-
-  public void setBufferedImage(BufferedImage bufferedImage) {
-    initImageBuffer(bufferedImage);
-    int width = bufferedImage.getWidth();
-    int height = bufferedImage.getHeight();
+  protected LineRasterizer lineDrawer;               // cached, retargeted on swap, recreated on resize
+  private int width;                                // simulation thread only
+  private int height;                               // simulation thread only
+  private ShapeStage shapeStage;                    // simulation thread only, recreated on surface change
+  private boolean shapeStarted;                     // simulation thread only
+  protected StageTimings timings = new StageTimings(); // set before the threads start
+
+  /**
+   * Sets where stage durations are recorded. Called before the simulation and render threads start.
+   */
+  public void setTimings(StageTimings timings) {
+    this.timings = timings;
+  }
+
+  /**
+   * Sets the size of the frames to produce. Called by the simulation thread, the render thread may keep running.
+   */
+  public void setSize(int width, int height) {
+    this.width = width;
+    this.height = height;
     // Triple buffer: 3 separate surfaces, never shared
     this.backSurface = createSurface(width, height);
     this.readySurface.set(createSurface(width, height));
-    this.renderSurface = createSurface(width, height);
+    if (renderSurface == null) {
+      // First initialization, the render thread is not started yet
+      this.renderSurface = createSurface(width, height);
+    }
     this.graphics3D = new Graphics3D(width, height);
     this.lineDrawer = new LineRasterizer(backSurface);
+    if (shapeStage != null) {
+      shapeStage.close();
+    }
+    this.shapeStage = new ShapeStage(width, height);
   }
 
   /**
@@ -55,10 +83,34 @@ public abstract class SceneRenderer {
    * Simulation calls this after completing a frame.
    */
   public void swapBuffers() {
+    long start = System.nanoTime();
+    BufferSwapEvent event = BufferSwapEvent.recording() ? BufferSwapEvent.start() : null;
+    completedSurface = backSurface;
     // Atomically exchange: publish our completed back, get the old ready to reuse
     FixedIntSurface oldReady = readySurface.getAndSet(backSurface);
-    backSurface = oldReady;  // recycle for next frame
-    lineDrawer = new LineRasterizer(backSurface);
+    // Recycle for next frame, unless it predates a resize
+    boolean recycled = hasCurrentSize(oldReady);
+    backSurface = recycled ? oldReady : createSurface(width, height);
+    lineDrawer.retarget(backSurface);
+    timings.record(Stage.SWAP, start);
+    if (event != null) {
+      event.end(width, height, recycled);
+    }
+  }
+
+  /**
+   * Returns whether the given surface matches the current size (it may predate a resize).
+   */
+  protected boolean hasCurrentSize(FixedIntSurface surface) {
+    return surface.width() == width && surface.height() == height;
+  }
+
+  /**
+   * Returns the frame published by the last {@link #swapBuffers}, null if none yet. Simulation thread only, valid
+   * until the next {@link #swapBuffers}.
+   */
+  public FixedIntSurface completedSurface() {
+    return completedSurface;
   }
 
   /**
@@ -69,37 +121,103 @@ public abstract class SceneRenderer {
   }
 
   /**
-   * Creates the standard image buffer from a BufferedImage.
+   * Draws the given shape onto the back surface. A null shape (still loading) draws nothing.
    */
-  private void initImageBuffer(BufferedImage bufferedImage) {
-    this.imageBuffer = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+  protected void drawShape(Entity3D shape) {
+    if (shape != null) {
+      graphics3D.drawEntity(lineDrawer, shape);
+    }
   }
 
   /**
-   * Draws the given shape onto the back surface.
+   * Starts rasterizing the shape, then the optional seed line, on the shape stage so that it runs concurrently
+   * with whatever the caller does to the back surface next. Shapes too small to be worth the hand-off are not
+   * started, the caller then draws them itself.
+   *
+   * @return true if started, {@link #finishShape()} must then be called before the frame is swapped
    */
-  protected void drawShape(Entity3D shape) {
-    graphics3D.drawEntity(lineDrawer, shape);
+  protected boolean startShape(Entity3D shape, FireSeedLine seed) {
+    if (!ShapeStage.accepts(shape)) {
+      return false;
+    }
+    try {
+      shapeStage.submit(shape, seed);
+      shapeStarted = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return shapeStarted;
   }
 
   /**
-   * Updates the scene state with the given shape. Writes to backSurface.
+   * Waits for the shape started by {@link #startShape} and writes its pixels onto the back surface. If interrupted
+   * the frame goes without the shape and the job is given up.
+   */
+  protected void finishShape() {
+    if (!shapeStarted) {
+      return;
+    }
+    shapeStarted = false;
+    try {
+      shapeStage.awaitInto(backSurface);
+    } catch (InterruptedException e) {
+      shapeStage.cancel();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits until the next tick is due. Renderers producing frames at a fixed rate pace the simulation thread
+   * this way, the others return at once.
+   */
+  public void awaitTick() {
+  }
+
+  /**
+   * Updates the scene state with the given shape (null if none is ready yet). Writes to backSurface.
    */
   public abstract void update(Entity3D shape);
 
   /**
-   * Renders the scene to the output buffer. Lock-free.
+   * Renders the latest completed frame to the given RGB pixels with the given palette. Lock-free.
    * Exchanges renderSurface with readySurface to grab the latest completed frame.
+   *
+   * @param target RGB pixels, row by row, of the size last given to {@link #setSize}
+   * @return false if the frame was skipped because it does not match the target size (resize in progress)
    */
-  public void render() {
+  public boolean render(Palette palette, int[] target) {
     // Atomically exchange: give back our old frame, get latest
     FixedIntSurface latest = readySurface.getAndSet(renderSurface);
     renderSurface = latest;
-    palette.apply(renderSurface, this.imageBuffer);
+    if (latest.width() * latest.height() != target.length) {
+      return false; // Frame from before a resize
+    }
+    long start = timings.begin(Stage.PALETTE);
+    palette.apply(renderSurface, target);
+    timings.record(Stage.PALETTE, start);
+    return true;
+  }
+
+  /**
+   * Returns the frame converted by the last successful {@link #render}. Render thread only, valid until the next
+   * call to {@link #render}.
+   */
+  public FixedIntSurface renderedSurface() {
+    return renderSurface;
   }
 
   /**
    * Returns the name of this renderer for display purposes.
    */
   public abstract String getName();
+
+  /**
+   * Stops the shape stage thread.
+   */
+  @Override
+  public void close() {
+    if (shapeStage != null) {
+      shapeStage.close();
+    }
+  }
 }
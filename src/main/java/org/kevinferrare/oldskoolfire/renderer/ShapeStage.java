@@ -0,0 +1,204 @@
+package org.kevinferrare.oldskoolfire.renderer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kevinferrare.oldskoolfire.drawable.FireSeedLine;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.LineRasterizer;
+import org.kevinferrare.oldskoolfire.drawable.ShapeLayer;
+import org.kevinferrare.oldskoolfire.drawable.brush.Material;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Graphics3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Mesh;
+import org.kevinferrare.oldskoolfire.drawable.threed.Transform;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pipeline stage projecting and rasterizing the shape (and fire seed) on its own thread.
+ * <p>
+ * Within a tick the shape can only be drawn onto the back surface once the convolution has written it,
+ * and the next convolution needs the finished surface. So instead of drawing, the simulation thread
+ * hands this stage a job at the start of the tick, runs the convolution while the shape is projected and
+ * rasterized into a {@link ShapeLayer}, then replays the recorded pixels. The tick then costs roughly
+ * max(convolve, rasterize) instead of their sum.
+ * <p>
+ * Jobs are recycled {@link Job}s handed over through single-slot references, the waiting side parks until
+ * the other one unparks it. Blocking queues would allocate a wait node each time a side has to wait,
+ * this way the steady state allocates nothing. The wait is a {@link ForkJoinPool.ManagedBlocker}: it runs in a
+ * task of the tick graph, its pool may start a spare worker meanwhile.
+ * Small meshes are not worth the thread hand-off and are drawn inline by the caller.
+ * <p>
+ * The free jobs and the submitted and abandoned ones are not confined to one thread: {@link #submit} runs on the
+ * simulation thread, but {@link #awaitInto} and {@link #cancel} run in the task of the tick graph drawing the heat,
+ * on a pool worker when the pool has more than one thread. They are owned by one side at a time within a tick, and
+ * it is the graph that orders them: the tasks are forked after {@link #submit} and joined before the next one, so
+ * each side sees what the previous one wrote. Calling them outside that order needs synchronization of its own.
+ */
+@Slf4j
+class ShapeStage implements AutoCloseable {
+
+  /**
+   * Meshes with fewer lines are drawn inline, the hand-off would cost more than it saves.
+   */
+  static final int MIN_PIPELINED_LINES = 2048;
+  private static final int RING_SIZE = 2;
+
+  /**
+   * A recycled unit of work: a snapshot of what to draw and the layer receiving the pixels.
+   */
+  private static final class Job {
+    private final Transform pose = new Transform();
+    private final ShapeLayer layer;
+    private final LineRasterizer rasterizer;
+    private Mesh mesh;
+    private Material material;
+    private FireSeedLine seed;
+
+    Job(int width, int height) {
+      this.layer = new ShapeLayer(width, height);
+      this.rasterizer = new LineRasterizer(layer);
+    }
+  }
+
+  private final int width;
+  private final int height;
+  private final Graphics3D graphics3D;
+  private final ArrayDeque<Job> free = new ArrayDeque<>(RING_SIZE);  // ordered by the tick graph
+  private final AtomicReference<Job> pending = new AtomicReference<>();
+  private final AtomicReference<Job> done = new AtomicReference<>();
+  private final Thread thread;
+  private final ForkJoinPool.ManagedBlocker completion = new Completion();
+  private volatile Thread waiter;                                      // the thread awaiting the job
+  private Job submitted;                                               // ordered by the tick graph
+  private Job abandoned;                                               // ordered by the tick graph, see cancel
+
+  ShapeStage(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.graphics3D = new Graphics3D(width, height);
+    for (int i = 0; i < RING_SIZE; i++) {
+      free.add(new Job(width, height));
+    }
+    this.thread = new Thread(this::run, "ShapeStage");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Returns whether the shape is large enough to be worth drawing on this stage.
+   */
+  static boolean accepts(Entity3D shape) {
+    return shape != null && shape.mesh().lines().length / 2 >= MIN_PIPELINED_LINES;
+  }
+
+  /**
+   * Starts drawing the shape (at its current pose) and then the optional seed line on the stage thread.
+   * Must be followed by {@link #awaitInto(FixedIntSurface)} within the same tick.
+   */
+  void submit(Entity3D shape, FireSeedLine seed) throws InterruptedException {
+    Job job = free.poll();
+    if (job == null && abandoned != null) {
+      // The abandoned job is still being drawn, or was overwritten: replace it
+      job = new Job(width, height);
+      abandoned = null;
+    }
+    if (job == null) {
+      throw new IllegalStateException("Previous job was not awaited");
+    }
+    job.pose.copyFrom(shape.transform());
+    job.mesh = shape.mesh();
+    job.material = shape.material();
+    job.seed = seed;
+    submitted = job;
+    pending.set(job);
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Waits for the submitted job and writes its pixels onto the given surface.
+   */
+  void awaitInto(FixedIntSurface surface) throws InterruptedException {
+    // Registered before looking at the slot, so the stage either sees this thread or already filled the slot
+    waiter = Thread.currentThread();
+    ForkJoinPool.managedBlock(completion);
+    Job job = done.getAndSet(null);
+    submitted = null;
+    job.layer.applyTo(surface);
+    recycle(job);
+  }
+
+  /**
+   * Gives up on the submitted job, after {@link #awaitInto} was interrupted: it returns to the free jobs once the
+   * stage is done with it, so that the next {@link #submit} does not fail.
+   */
+  void cancel() {
+    abandoned = submitted;
+    submitted = null;
+  }
+
+  private void recycle(Job job) {
+    job.mesh = null;
+    job.material = null;
+    job.seed = null;
+    if (job == abandoned) {
+      abandoned = null;
+    }
+    free.add(job);
+  }
+
+  /**
+   * Waits for the submitted job in the done slot, recycling an abandoned one found there first.
+   */
+  private final class Completion implements ForkJoinPool.ManagedBlocker {
+    @Override
+    public boolean isReleasable() {
+      Job job = done.get();
+      if (job != null && job != submitted && done.compareAndSet(job, null)) {
+        recycle(job);
+        return false;
+      }
+      return job != null && job == submitted;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      while (!isReleasable()) {
+        LockSupport.park(ShapeStage.this);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      return true;
+    }
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      Job job = pending.getAndSet(null);
+      if (job == null) {
+        LockSupport.park(this);
+        continue;
+      }
+      job.layer.clear();
+      try {
+        graphics3D.drawMesh(job.rasterizer, job.mesh, job.pose, job.material.getPixelSource());
+        if (job.seed != null) {
+          job.seed.draw(job.layer);
+        }
+      } catch (RuntimeException e) {
+        // Never leave the simulation waiting, it gets whatever was recorded
+        log.error("Shape stage failed", e);
+      }
+      done.set(job);
+      LockSupport.unpark(waiter);
+    }
+  }
+
+  @Override
+  public void close() {
+    thread.interrupt();
+  }
+}
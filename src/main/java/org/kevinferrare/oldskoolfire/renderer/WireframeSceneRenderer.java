@@ -1,6 +1,7 @@
 package org.kevinferrare.oldskoolfire.renderer;
 
 import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.util.Stage;
 
 import java.util.Arrays;
 
@@ -17,8 +18,15 @@ public class WireframeSceneRenderer extends SceneRenderer {
 
   @Override
   public void update(Entity3D shape) {
+    long start = timings.begin(Stage.DRAW_SHAPE);
+    boolean staged = startShape(shape, null);
     // Clear back buffer to black
     Arrays.fill(backSurface.data(), 0);
-    drawShape(shape);
+    if (staged) {
+      finishShape();
+    } else {
+      drawShape(shape);
+    }
+    timings.record(Stage.DRAW_SHAPE, start);
   }
 }
@@ -0,0 +1,30 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Heap allocation counters of the JVM, as reported by the HotSpot thread MXBean.
+ */
+public final class Allocations {
+
+  private Allocations() {
+  }
+
+  /**
+   * Bytes allocated so far by all live threads, -1 if the JVM cannot measure it.
+   * Threads that terminated no longer count, so the total may go down between two calls.
+   */
+  public static long totalAllocatedBytes() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+      && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+      long total = 0;
+      for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+        if (allocated > 0) {
+          total += allocated;
+        }
+      }
+      return total;
+    }
+    return -1;
+  }
+}
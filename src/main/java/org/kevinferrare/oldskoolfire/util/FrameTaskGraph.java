@@ -0,0 +1,171 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a fixed graph of dependent tasks on a {@link ForkJoinPool}, typically once per frame.
+ * <p>
+ * The graph is built once with {@link #add}, then {@link #run()} executes every task after all of its
+ * dependencies, as early as possible: a task is forked by whichever task completes its last dependency,
+ * so idle workers pick up work as soon as it becomes runnable instead of waiting for a whole phase to end.
+ * Tasks are reinitialized and reused between runs instead of being created each frame.
+ * <p>
+ * With a pool of parallelism 1 the tasks are simply run in insertion order on the calling thread.
+ * <p>
+ * <b>Thread safety:</b> build and run from a single thread, runs must not overlap.
+ */
+public class FrameTaskGraph {
+
+  /**
+   * A node of the graph, used as a dependency of the tasks added after it.
+   */
+  public static final class Task extends RecursiveAction {
+    private final FrameTaskGraph graph;
+    private final Runnable body;
+    private final int dependencyCount;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<Task> successorList = new ArrayList<>();
+    private Task[] successors;
+
+    private Task(FrameTaskGraph graph, Runnable body, int dependencyCount) {
+      this.graph = graph;
+      this.body = body;
+      this.dependencyCount = dependencyCount;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        body.run();
+      } catch (Throwable t) {
+        // Keep releasing successors so that the run completes, the failure is rethrown by run()
+        graph.failure.compareAndSet(null, t);
+      }
+      // Outside of a worker (a joining thread helping), fork() would submit to the common pool
+      boolean inPool = getPool() == graph.pool;
+      for (Task successor : successors) {
+        if (successor.pending.decrementAndGet() == 0) {
+          if (inPool) {
+            successor.fork();
+          } else {
+            graph.pool.execute(successor);
+          }
+        }
+      }
+    }
+  }
+
+  private final ForkJoinPool pool;
+  private final List<Task> tasks = new ArrayList<>();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private Task[] roots;
+  private Task sink; // depends on every task without successors, completes the run
+
+  /**
+   * @param pool pool running the tasks, shared with other graphs
+   */
+  public FrameTaskGraph(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Adds a task running after all the given dependencies, which must already be part of this graph.
+   */
+  public Task add(Runnable body, Task... dependencies) {
+    if (sink != null) {
+      throw new IllegalStateException("Tasks cannot be added once the graph has run");
+    }
+    Task task = new Task(this, body, dependencies.length);
+    for (Task dependency : dependencies) {
+      if (dependency.graph != this) {
+        throw new IllegalArgumentException("Dependency belongs to another graph");
+      }
+      dependency.successorList.add(task);
+    }
+    tasks.add(task);
+    return task;
+  }
+
+  /**
+   * Returns whether tasks may run concurrently, false when the graph runs inline on the calling thread.
+   */
+  public boolean isParallel() {
+    return pool.getParallelism() > 1;
+  }
+
+  /**
+   * Runs every task once and returns when all are done.
+   *
+   * @throws RuntimeException if a task failed, the first failure (wrapped when checked) after all tasks ran
+   */
+  public void run() {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    if (!isParallel()) {
+      // Insertion order is a topological order since dependencies are added first.
+      // Indexed loops here and below: an iterator would be allocated every frame
+      for (int i = 0; i < tasks.size(); i++) {
+        tasks.get(i).body.run();
+      }
+      return;
+    }
+    if (sink == null) {
+      seal();
+    }
+    failure.set(null);
+    for (int i = 0; i < tasks.size(); i++) {
+      Task task = tasks.get(i);
+      task.reinitialize();
+      task.pending.set(task.dependencyCount);
+    }
+    sink.reinitialize();
+    sink.pending.set(sink.dependencyCount);
+    for (Task root : roots) {
+      pool.execute(root);
+    }
+    sink.join();
+    // A task is only marked done after it released its successors, wait for all of them before they are reused
+    for (int i = 0; i < tasks.size(); i++) {
+      tasks.get(i).quietlyJoin();
+    }
+    Throwable t = failure.get();
+    if (t instanceof RuntimeException e) {
+      throw e;
+    }
+    if (t instanceof Error e) {
+      throw e;
+    }
+    if (t != null) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  private void seal() {
+    List<Task> leaves = new ArrayList<>();
+    List<Task> rootList = new ArrayList<>();
+    for (Task task : tasks) {
+      if (task.successorList.isEmpty()) {
+        leaves.add(task);
+      }
+      if (task.dependencyCount == 0) {
+        rootList.add(task);
+      }
+    }
+    sink = new Task(this, () -> {
+    }, leaves.size());
+    for (Task leaf : leaves) {
+      leaf.successorList.add(sink);
+    }
+    sink.successors = new Task[0];
+    for (Task task : tasks) {
+      task.successors = task.successorList.toArray(new Task[0]);
+    }
+    roots = rootList.toArray(new Task[0]);
+  }
+}
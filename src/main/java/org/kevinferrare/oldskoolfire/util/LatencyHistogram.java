@@ -0,0 +1,110 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free histogram of durations in nanoseconds.
+ * <p>
+ * Buckets are log-linear: each power of two is split in {@value #SUB_BUCKETS} linear sub-buckets, so any recorded
+ * value is reported with less than 1/{@value #SUB_BUCKETS} relative error, from 1 ns to centuries, in a fixed
+ * array of counters. Recording is one {@code nanoTime} difference, a few shifts and an atomic increment.
+ * <p>
+ * <b>Thread safety:</b> any number of threads may {@link #record} while another takes a
+ * {@link #snapshotAndReset() snapshot}. A value recorded during a snapshot lands in this one or the next one.
+ */
+public class LatencyHistogram {
+
+  /**
+   * Percentiles of the values recorded since the previous snapshot, all 0 if none.
+   *
+   * @param count number of values
+   * @param p50   median, in nanoseconds
+   * @param p99   99th percentile, in nanoseconds
+   * @param max   exact maximum, in nanoseconds
+   */
+  public record Snapshot(long count, long p50, long p99, long max) {
+
+    public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0);
+  }
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Values below SUB_BUCKETS are exact, then one group of SUB_BUCKETS per power of two up to 2^62
+  private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a duration, negative ones (clock adjustments) count as 0.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucketOf(value));
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Records the time elapsed since the given {@link System#nanoTime()}.
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns the percentiles of the values recorded since the previous call, and starts over.
+   */
+  public Snapshot snapshotAndReset() {
+    long[] taken = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      taken[i] = counts.getAndSet(i, 0);
+      count += taken[i];
+    }
+    long maxValue = max.getAndSet(0);
+    if (count == 0) {
+      return Snapshot.EMPTY;
+    }
+    return new Snapshot(count, percentile(taken, count, 0.50, maxValue), percentile(taken, count, 0.99, maxValue),
+      maxValue);
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Returns the largest value falling in the given bucket.
+   */
+  static long highestValueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+    return ((mantissa + 1) << shift) - 1;
+  }
+
+  /**
+   * Nearest-rank percentile, reported as the top of its bucket but never above the exact maximum.
+   */
+  private static long percentile(long[] taken, long count, double fraction, long maxValue) {
+    long rank = Math.max(1, (long) Math.ceil(fraction * count));
+    long seen = 0;
+    for (int i = 0; i < taken.length; i++) {
+      seen += taken[i];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), maxValue);
+      }
+    }
+    return maxValue;
+  }
+}
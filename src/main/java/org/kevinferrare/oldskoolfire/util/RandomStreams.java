@@ -0,0 +1,50 @@
+package org.kevinferrare.oldskoolfire.util;
+
+/**
+ * Creates the named {@link FastRandom} streams of one engine.
+ * <p>
+ * With a master seed, each stream gets its own seed derived from the master seed and its name, so runs with the
+ * same master seed draw the same values whatever the order the generators are created in, and whatever other
+ * engines of the process do. Without one, streams are seeded from the clock.
+ */
+public final class RandomStreams {
+
+  /**
+   * Streams seeded from the clock.
+   */
+  public static final RandomStreams UNSEEDED = new RandomStreams(null);
+
+  private final Long masterSeed;
+
+  /**
+   * @param masterSeed seed of all the streams, null to seed them from the clock
+   */
+  public RandomStreams(Long masterSeed) {
+    this.masterSeed = masterSeed;
+  }
+
+  public Long getMasterSeed() {
+    return masterSeed;
+  }
+
+  /**
+   * Creates a generator for the given stream.
+   *
+   * @param stream name identifying the consumer, unique among generators that must not draw the same values
+   */
+  public FastRandom create(String stream) {
+    if (masterSeed == null) {
+      return new FastRandom();
+    }
+    return new FastRandom(mix(masterSeed ^ mix(stream.hashCode())));
+  }
+
+  /**
+   * SplitMix64 finalizer, spreads close inputs (consecutive seeds, similar names) over the whole range.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,41 @@
+package org.kevinferrare.oldskoolfire.util;
+
+/**
+ * Stages of a frame timed separately by {@link StageTimings}.
+ */
+public enum Stage {
+  /**
+   * Convolution of the previous frame into the back surface, all bands.
+   */
+  CONVOLVE("convolve"),
+  /**
+   * Shape rasterization, or waiting for and applying the pipelined one.
+   */
+  DRAW_SHAPE("drawShape"),
+  /**
+   * Fire seed line, when drawn on the tick graph.
+   */
+  SEED("seed"),
+  /**
+   * Publication of the back surface.
+   */
+  SWAP("swap"),
+  /**
+   * {@code Palette.apply}: intensities to RGB pixels.
+   */
+  PALETTE("palette"),
+  /**
+   * Copy of the image to the window.
+   */
+  BLIT("blit");
+
+  private final String label;
+
+  Stage(String label) {
+    this.label = label;
+  }
+
+  public String label() {
+    return label;
+  }
+}
@@ -0,0 +1,103 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import org.kevinferrare.oldskoolfire.jfr.FrameStageEvent;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One {@link LatencyHistogram} per {@link Stage}. Probes call {@link #begin} before the stage and {@link #record}
+ * after it, from whatever thread runs the stage.
+ * <p>
+ * While a JFR recording enables it, each stage started with {@link #begin} is also emitted as a
+ * {@link FrameStageEvent}. A stage runs once at a time: its begin and record happen on the same thread,
+ * or on threads ordered by the tick graph.
+ * <p>
+ * The latest duration of each stage is also kept, see {@link #latestNanos}, for per-frame records.
+ */
+public class StageTimings {
+
+  private static final Stage[] STAGES = Stage.values();
+
+  private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+  private final FrameStageEvent[] openEvents = new FrameStageEvent[STAGES.length];
+  private final AtomicLongArray latest = new AtomicLongArray(STAGES.length);
+
+  public StageTimings() {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Starts timing a stage.
+   *
+   * @return the start time to pass to {@link #record}
+   */
+  public long begin(Stage stage) {
+    if (FrameStageEvent.recording()) {
+      openEvents[stage.ordinal()] = FrameStageEvent.start();
+    }
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the time elapsed in the given stage since {@code startNanos}.
+   */
+  public void record(Stage stage, long startNanos) {
+    recordDuration(stage, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Records a duration measured by the caller, for a stage spread over several threads.
+   */
+  public void recordDuration(Stage stage, long nanos) {
+    histograms[stage.ordinal()].record(nanos);
+    latest.set(stage.ordinal(), nanos);
+    endEvent(stage);
+  }
+
+  /**
+   * Returns the duration of the latest run of the given stage, 0 if it never ran. Not reset by {@link #snapshotAndReset}.
+   */
+  public long latestNanos(Stage stage) {
+    return latest.get(stage.ordinal());
+  }
+
+  private void endEvent(Stage stage) {
+    FrameStageEvent event = openEvents[stage.ordinal()];
+    if (event != null) {
+      openEvents[stage.ordinal()] = null;
+      event.end(stage.label());
+    }
+  }
+
+  /**
+   * Returns the percentiles of every stage since the previous call, and starts over.
+   */
+  public Map<Stage, LatencyHistogram.Snapshot> snapshotAndReset() {
+    Map<Stage, LatencyHistogram.Snapshot> snapshots = new EnumMap<>(Stage.class);
+    for (Stage stage : STAGES) {
+      snapshots.put(stage, histograms[stage.ordinal()].snapshotAndReset());
+    }
+    return snapshots;
+  }
+
+  /**
+   * Formats snapshots as "stage p50/p99/max" in microseconds, skipping stages without samples.
+   */
+  public static String format(Map<Stage, LatencyHistogram.Snapshot> snapshots) {
+    StringBuilder text = new StringBuilder();
+    snapshots.forEach((stage, snapshot) -> {
+      if (snapshot.count() > 0) {
+        if (!text.isEmpty()) {
+          text.append(", ");
+        }
+        text.append(String.format("%s %.0f/%.0f/%.0f us", stage.label(),
+          snapshot.p50() / 1000.0, snapshot.p99() / 1000.0, snapshot.max() / 1000.0));
+      }
+    });
+    return text.toString();
+  }
+}
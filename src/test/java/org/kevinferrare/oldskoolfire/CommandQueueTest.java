@@ -0,0 +1,78 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandQueueTest {
+
+  private record Applied(SceneCommand command, double argument) {
+  }
+
+  @Test
+  void drainAppliesCommandsInOrder() {
+    CommandQueue queue = new CommandQueue();
+    queue.offer(SceneCommand.NEXT_PALETTE);
+    queue.offer(SceneCommand.INCREASE_SCALE, 50);
+    queue.offer(SceneCommand.TOGGLE_PAUSE);
+
+    List<Applied> applied = new ArrayList<>();
+    assertEquals(3, queue.drain((command, argument) -> applied.add(new Applied(command, argument))));
+
+    assertEquals(List.of(
+      new Applied(SceneCommand.NEXT_PALETTE, 0),
+      new Applied(SceneCommand.INCREASE_SCALE, 50),
+      new Applied(SceneCommand.TOGGLE_PAUSE, 0)), applied);
+    assertEquals(0, queue.drain((command, argument) -> fail("Queue should be empty")));
+  }
+
+  @Test
+  void fullQueueRejectsUntilDrained() {
+    CommandQueue queue = new CommandQueue();
+    int accepted = 0;
+    while (queue.offer(SceneCommand.NEXT_SHAPE)) {
+      accepted++;
+    }
+    assertTrue(accepted > 0);
+    assertEquals(accepted, queue.drain((command, argument) -> {
+    }));
+    assertTrue(queue.offer(SceneCommand.NEXT_SHAPE), "Draining should free the slots");
+  }
+
+  @Test
+  void rotationsAreCoalesced() {
+    CommandQueue queue = new CommandQueue();
+    queue.addRotation(3, -2);
+    queue.addRotation(-10, 7);
+    queue.addRotation(1, 1);
+
+    long rotation = queue.takeRotation();
+    assertEquals(-6, CommandQueue.rotationX(rotation));
+    assertEquals(6, CommandQueue.rotationY(rotation));
+    assertEquals(0, queue.takeRotation(), "Taking the rotation should reset it");
+  }
+
+  @Test
+  void consumerSeesEveryCommandFromProducerThread() throws InterruptedException {
+    CommandQueue queue = new CommandQueue();
+    int total = 100_000;
+    Thread producer = new Thread(() -> {
+      for (int i = 0; i < total; i++) {
+        while (!queue.offer(SceneCommand.INCREASE_Z, i)) {
+          Thread.onSpinWait();
+        }
+      }
+    });
+    producer.start();
+
+    AtomicInteger expected = new AtomicInteger();
+    while (expected.get() < total) {
+      queue.drain((command, argument) -> assertEquals(expected.getAndIncrement(), argument, 0.0));
+    }
+    producer.join();
+  }
+}
@@ -0,0 +1,159 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.util.LatencyHistogram;
+import org.kevinferrare.oldskoolfire.util.Stage;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that the {@link FireEngine} runs and renders without any window, and that its setters
+ * take effect at the next step.
+ */
+public class FireEngineTest {
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+
+  private static AppConfig config(String shape) {
+    return config(shape, null, null, null);
+  }
+
+  private static AppConfig config(String shape, Long seed, Path recordInput, Path replayInput) {
+    return AppConfig.defaults()
+      .width(WIDTH)
+      .height(HEIGHT)
+      .shape(shape)
+      .noVectorApi(true)
+      .threads(1)
+      .seed(seed)
+      .recordInput(recordInput)
+      .replayInput(replayInput)
+      .build();
+  }
+
+  @Test
+  void stepsAndRendersWithoutWindow() throws InterruptedException {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("cube"))) {
+      assertTrue(engine.awaitShape(Duration.ofSeconds(5)), "Cube must load");
+      int[] pixels = new int[WIDTH * HEIGHT];
+      for (int i = 0; i < 20; i++) {
+        assertTrue(engine.step(0.01));
+      }
+      assertTrue(engine.renderTo(pixels));
+      Map<Stage, LatencyHistogram.Snapshot> stages = engine.getStageTimings().snapshotAndReset();
+      for (Stage stage : new Stage[]{Stage.CONVOLVE, Stage.DRAW_SHAPE, Stage.SEED, Stage.SWAP}) {
+        assertEquals(20, stages.get(stage).count(), stage.label());
+      }
+      assertEquals(1, stages.get(Stage.PALETTE).count());
+      int black = engine.getState().palette().indexToRGB()[0];
+      assertTrue(Arrays.stream(pixels).anyMatch(p -> p != black), "Fire must be visible");
+    }
+  }
+
+  @Test
+  void renderToSkipsMismatchedTarget() {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("none"))) {
+      engine.step(0.01);
+      assertFalse(engine.renderTo(new int[WIDTH * HEIGHT / 2]));
+      engine.resize(WIDTH / 2, HEIGHT);
+      engine.step(0.01);
+      assertTrue(engine.renderTo(new int[WIDTH * HEIGHT / 2]));
+    }
+  }
+
+  @Test
+  void settersApplyAtNextStep() {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("none"))) {
+      engine.setPalette("EVIL");
+      engine.setShape("cube");
+      engine.setCooling(20);
+      assertEquals("fire", engine.getState().palette().name());
+
+      engine.step(0.01);
+      SceneState state = engine.getState();
+      assertEquals("evil", state.palette().name());
+      assertEquals("cube", state.shapeName());
+      assertEquals(20, state.cooling());
+    }
+  }
+
+  @Test
+  void replayedSeededRunReproducesRecordedFrames() throws IOException {
+    Path script = Files.createTempFile("fire-input", ".txt");
+    try {
+      int[] recorded = new int[WIDTH * HEIGHT];
+      try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("cube", 42L, script, null))) {
+        for (int i = 0; i < 60; i++) {
+          switch (i) {
+            case 10 -> engine.toggleStillShape();
+            case 20 -> engine.rotateShape(15, -4);
+            case 30 -> {
+              engine.nextPalette();
+              engine.increaseScale(-20);
+            }
+            case 45 -> engine.setCooling(8);
+            default -> {
+            }
+          }
+          // Wall-clock deltas, ignored when seeded
+          engine.step(Math.random());
+        }
+        engine.renderTo(recorded);
+      }
+
+      int[] replayed = new int[WIDTH * HEIGHT];
+      try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("cube", 42L, null, script))) {
+        for (int i = 0; i < 60; i++) {
+          engine.step(Math.random());
+        }
+        engine.renderTo(replayed);
+        assertEquals(8, engine.getState().cooling());
+      }
+      assertArrayEquals(recorded, replayed);
+    } finally {
+      Files.deleteIfExists(script);
+    }
+  }
+
+  @Test
+  void steadyStateTickDoesNotAllocate() throws InterruptedException {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+    long thread = Thread.currentThread().threadId();
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("cube"))) {
+      assertTrue(engine.awaitShape(Duration.ofSeconds(5)), "Cube must load");
+      int[] pixels = new int[WIDTH * HEIGHT];
+      // Lazy initialization (first frames, class loading) is allowed to allocate
+      for (int i = 0; i < 200; i++) {
+        engine.step(0.01);
+        engine.renderTo(pixels);
+      }
+      int ticks = 500;
+      long before = threads.getThreadAllocatedBytes(thread);
+      for (int i = 0; i < ticks; i++) {
+        engine.step(0.01);
+        engine.renderTo(pixels);
+      }
+      long allocated = threads.getThreadAllocatedBytes(thread) - before;
+      assertEquals(0, allocated, "Bytes allocated per tick: " + (double) allocated / ticks);
+    }
+  }
+
+  @Test
+  void unknownNamesAreRejected() {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config("none"))) {
+      assertThrows(IllegalArgumentException.class, () -> engine.setPalette("nope"));
+      assertThrows(IllegalArgumentException.class, () -> engine.setShape("nope"));
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that an engine resumes the fire of a {@link FireSnapshot} instead of growing it again from black.
+ */
+public class FireSnapshotTest {
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+
+  private Path file;
+
+  @BeforeEach
+  void createFile() throws IOException {
+    // Absent, the first engine starts from black
+    file = Files.createTempFile("fire", ".osfs");
+    Files.delete(file);
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private AppConfig config(int width, int height) {
+    return AppConfig.defaults()
+      .width(width)
+      .height(height)
+      .shape("none")
+      .noVectorApi(true)
+      .threads(1)
+      .seed(42L)
+      .snapshot(file)
+      .build();
+  }
+
+  private static boolean hasFire(int[] pixels) {
+    int black = pixels[0];
+    return Arrays.stream(pixels).anyMatch(p -> p != black);
+  }
+
+  @Test
+  void resumesSavedFireAndScene() {
+    int[] saved = new int[WIDTH * HEIGHT];
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config(WIDTH, HEIGHT))) {
+      engine.setPalette("evil");
+      engine.setCooling(7);
+      for (int i = 0; i < 100; i++) {
+        engine.step(FireEngine.FIXED_DELTA_SEC);
+      }
+      assertTrue(engine.renderTo(saved));
+    }
+    assertTrue(hasFire(saved), "Fire must be visible");
+
+    // The first frame, before any tick, is the last one of the previous run
+    int[] resumed = new int[WIDTH * HEIGHT];
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config(WIDTH, HEIGHT))) {
+      assertEquals("evil", engine.getState().palette().name());
+      assertEquals(7, engine.getState().cooling());
+      assertTrue(engine.renderTo(resumed));
+    }
+    assertArrayEquals(saved, resumed);
+
+    // At another size the fire is scaled
+    int[] scaled = new int[WIDTH * 2 * HEIGHT];
+    try (FireEngine engine = new FireEngine(WIDTH * 2, HEIGHT, config(WIDTH * 2, HEIGHT))) {
+      assertTrue(engine.renderTo(scaled));
+    }
+    assertTrue(hasFire(scaled), "Scaled fire must be visible");
+  }
+
+  @Test
+  void keepsFireOnResize() {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config(WIDTH, HEIGHT))) {
+      for (int i = 0; i < 100; i++) {
+        engine.step(FireEngine.FIXED_DELTA_SEC);
+      }
+      engine.resize(WIDTH / 2, HEIGHT * 2);
+      int[] pixels = new int[WIDTH * HEIGHT];
+      assertTrue(engine.renderTo(pixels));
+      assertTrue(hasFire(pixels), "Fire must survive the resize");
+    }
+  }
+
+  @Test
+  void rejectsIncompleteSnapshot() throws IOException {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config(WIDTH, HEIGHT))) {
+      engine.step(FireEngine.FIXED_DELTA_SEC);
+    }
+    // As if the save had stopped before its last write
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(Integer.BYTES), 0);
+    }
+    assertThrows(IOException.class, () -> FireSnapshot.load(file));
+
+    // The engine starts from black rather than failing
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config(WIDTH, HEIGHT))) {
+      int[] pixels = new int[WIDTH * HEIGHT];
+      assertTrue(engine.renderTo(pixels));
+      assertFalse(hasFire(pixels));
+    }
+  }
+}
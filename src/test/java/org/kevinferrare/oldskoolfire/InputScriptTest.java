@@ -0,0 +1,48 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link InputScript} format and the tick-by-tick replay.
+ */
+public class InputScriptTest {
+
+  @Test
+  void formattedEventsParseBack() {
+    List<InputScript.Event> events = List.of(
+      new InputScript.Event(0, SceneCommand.NEXT_PALETTE, 0, 0, 0),
+      new InputScript.Event(3, null, 0, -12, 7),
+      new InputScript.Event(3, SceneCommand.INCREASE_SCALE, -50, 0, 0),
+      new InputScript.Event(9, SceneCommand.SET_COOLING, 1e-4, 0, 0));
+    List<String> lines = new ArrayList<>(List.of("# comment", ""));
+    events.forEach(event -> lines.add(InputScript.format(event)));
+
+    assertEquals(events, InputScript.parse(lines).events());
+  }
+
+  @Test
+  void replayHandsEventsUpToTheTick() {
+    InputScript script = InputScript.parse(List.of("1 NEXT_SHAPE", "1 ROTATE 2 3", "4 toggle_pause"));
+    List<InputScript.Event> replayed = new ArrayList<>();
+
+    script.replayUpTo(0, replayed::add);
+    assertTrue(replayed.isEmpty());
+    script.replayUpTo(2, replayed::add);
+    assertEquals(2, replayed.size());
+    assertTrue(replayed.get(1).isRotation());
+    script.replayUpTo(10, replayed::add);
+    assertEquals(SceneCommand.TOGGLE_PAUSE, replayed.get(2).command());
+  }
+
+  @Test
+  void invalidScriptsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> InputScript.parse(List.of("1 FLY_AWAY")));
+    assertThrows(IllegalArgumentException.class, () -> InputScript.parse(List.of("1 ROTATE 2")));
+    assertThrows(IllegalArgumentException.class, () -> InputScript.parse(List.of("5 NEXT_SHAPE", "4 NEXT_SHAPE")));
+  }
+}
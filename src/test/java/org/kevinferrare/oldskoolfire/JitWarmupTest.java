@@ -0,0 +1,44 @@
+package org.kevinferrare.oldskoolfire;
+
+import jdk.jfr.FlightRecorder;
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.drawable.ConvolveAndRiseEffect;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that the {@link JitWarmup} stops once its kernels are compiled, and never outlives its budget.
+ */
+public class JitWarmupTest {
+
+  private static AppConfig config(int jitWarmupMs) {
+    return AppConfig.defaults()
+      .width(320)
+      .height(200)
+      .shape("none")
+      .threads(1)
+      .jitWarmupMs(jitWarmupMs)
+      .build();
+  }
+
+  private static ConvolveAndRiseEffect convolution() {
+    return new ConvolveAndRiseEffect(AppConfig.DEFAULT_COOLING, false, false);
+  }
+
+  @Test
+  void stopsOnceCompiled() throws InterruptedException {
+    assumeTrue(FlightRecorder.isAvailable(), "Compilations are followed with JFR");
+    long start = System.nanoTime();
+    // The kernels may have been compiled by the previous tests, then the JIT settles instead
+    JitWarmup.start(320, 200, config(60_000), convolution()).await();
+    assertTrue(System.nanoTime() - start < 30_000_000_000L, "Must stop once compiled, not at the budget");
+  }
+
+  @Test
+  void stopsAtBudget() throws InterruptedException {
+    long start = System.nanoTime();
+    JitWarmup.start(320, 200, config(1), convolution()).await();
+    assertTrue(System.nanoTime() - start < 5_000_000_000L);
+  }
+}
@@ -0,0 +1,54 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the {@link MetricsServer} serves the controller's metrics in Prometheus text format on loopback.
+ */
+public class MetricsServerTest {
+
+  @Test
+  void servesMetricsInPrometheusFormat() throws IOException, InterruptedException {
+    AppConfig config = AppConfig.defaults()
+      .width(64)
+      .height(48)
+      .shape("none")
+      .noVectorApi(true)
+      .threads(1)
+      .jitWarmupMs(0)
+      .build();
+    SceneController controller = new SceneController();
+    controller.init(64, 48, config);
+    try (MetricsServer server = new MetricsServer(controller, 0)) {
+      URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/metrics");
+      HttpClient client = HttpClient.newHttpClient();
+
+      HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+        HttpResponse.BodyHandlers.ofString());
+
+      assertEquals(200, response.statusCode());
+      assertEquals(MetricsServer.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElseThrow());
+      String body = response.body();
+      assertTrue(body.contains("# TYPE oldskoolfire_ups gauge\n"), body);
+      assertTrue(body.contains("oldskoolfire_convolution_strategy_info{strategy=\"Scalar\",renderer=\"fire\"} 1"), body);
+      assertTrue(body.contains("oldskoolfire_frame_width_pixels 64"), body);
+      for (String line : body.split("\n")) {
+        assertTrue(line.startsWith("# ") || line.matches("[a-z_]+(\\{.*})? -?[0-9.e+-]+"), "Invalid line: " + line);
+      }
+
+      HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody())
+        .build(), HttpResponse.BodyHandlers.ofString());
+      assertEquals(405, post.statusCode());
+    } finally {
+      controller.stop();
+    }
+  }
+}
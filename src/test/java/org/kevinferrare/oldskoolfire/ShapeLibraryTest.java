@@ -0,0 +1,122 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.MeshGenerator;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.ShapeSource;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link ShapeLibrary} builds shapes in the background without ever blocking the caller,
+ * and keeps loaded meshes within its memory budget.
+ */
+public class ShapeLibraryTest {
+
+  private static Entity3D awaitShape(ShapeLibrary library, int index) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      Entity3D shape = library.getIfReady(index);
+      if (shape != null) {
+        return shape;
+      }
+      Thread.sleep(5);
+    }
+    return fail("Shape " + index + " was not loaded in time");
+  }
+
+  @Test
+  void getIfReadyDoesNotWaitForSlowLoad() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    ShapeSource slow = new ShapeSource("slow", () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return MeshGenerator.createCube();
+    }, false);
+    try (ShapeLibrary library = new ShapeLibrary(List.of(slow), 100, 0, RandomStreams.UNSEEDED)) {
+      assertNull(library.getIfReady(0), "Shape must not be returned before its load completes");
+      release.countDown();
+      assertEquals("slow", awaitShape(library, 0).name());
+    }
+  }
+
+  @Test
+  void prefetchAroundLoadsNeighbours() throws InterruptedException {
+    List<ShapeSource> sources = List.of(
+      new ShapeSource("a", MeshGenerator::createCube, false),
+      new ShapeSource("b", MeshGenerator::createOctahedron, false),
+      new ShapeSource("c", MeshGenerator::createIcosahedron, false));
+    try (ShapeLibrary library = new ShapeLibrary(sources, 100, 0, RandomStreams.UNSEEDED)) {
+      library.prefetchAround(0);
+      Entity3D previous = awaitShape(library, 2);
+      Entity3D next = awaitShape(library, 1);
+      assertEquals("c", previous.name());
+      assertEquals("b", next.name());
+      assertEquals(100, next.transform().getScale(), 1e-9, "Initial scale should be applied");
+    }
+  }
+
+  @Test
+  void failedLoadIsReportedAsNotReady() throws InterruptedException {
+    ShapeSource broken = new ShapeSource("broken", () -> {
+      throw new IllegalStateException("corrupt mesh");
+    }, true);
+    ShapeSource cube = new ShapeSource("cube", MeshGenerator::createCube, false);
+    try (ShapeLibrary library = new ShapeLibrary(List.of(cube, broken), 100, 0, RandomStreams.UNSEEDED)) {
+      library.prefetchExternal();
+      awaitShape(library, 0);
+      Thread.sleep(50);
+      assertNull(library.getIfReady(1));
+      assertEquals(1, library.findIndex("BROKEN"));
+    }
+  }
+
+  @Test
+  void leastRecentlyShownShapeIsEvictedOverBudget() throws InterruptedException {
+    AtomicInteger cubeLoads = new AtomicInteger();
+    List<ShapeSource> sources = List.of(
+      new ShapeSource("cube", () -> {
+        cubeLoads.incrementAndGet();
+        return MeshGenerator.createCube();
+      }, false),
+      new ShapeSource("sphere", () -> MeshGenerator.createSphere(12, 16), false));
+    long cubeBytes = MeshGenerator.createCube().estimatedBytes();
+    long sphereBytes = MeshGenerator.createSphere(12, 16).estimatedBytes();
+    // Room for either shape alone, not for both
+    try (ShapeLibrary library = new ShapeLibrary(sources, 100, Math.max(cubeBytes, sphereBytes),
+      RandomStreams.UNSEEDED)) {
+      Entity3D cube = awaitShape(library, 0);
+      cube.transform().setScale(42);
+
+      awaitShape(library, 1);
+      awaitEvicted(library, sphereBytes);
+      assertEquals(1, cubeLoads.get());
+
+      Entity3D reloaded = awaitShape(library, 0);
+      assertEquals(2, cubeLoads.get(), "Evicted shape should be reloaded through its source");
+      assertNotSame(cube, reloaded);
+      assertSame(cube.transform(), reloaded.transform(), "Transform must survive the eviction");
+      assertSame(cube.material(), reloaded.material(), "Material must survive the eviction");
+      assertEquals(42, reloaded.transform().getScale(), 1e-9);
+    }
+  }
+
+  private static void awaitEvicted(ShapeLibrary library, long maxResidentBytes) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (library.residentBytes() > maxResidentBytes) {
+      if (System.nanoTime() > deadline) {
+        fail("Resident size stayed at " + library.residentBytes() + " bytes");
+      }
+      Thread.sleep(5);
+    }
+  }
+}
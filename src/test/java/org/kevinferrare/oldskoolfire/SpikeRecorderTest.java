@@ -0,0 +1,108 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.util.Stage;
+import org.kevinferrare.oldskoolfire.util.StageTimings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the {@link SpikeRecorder} dumps the ring around a slow tick or frame, and only then.
+ */
+public class SpikeRecorderTest {
+
+  private static final long BUDGET = 1_000_000;
+  private static final int CAPACITY = 8;
+  private static final int TICKS_AFTER = 2;
+
+  private Path directory;
+
+  @BeforeEach
+  void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("spikes");
+  }
+
+  @AfterEach
+  void deleteDirectory() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  private static List<Path> dumps(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(f -> f.toString().endsWith(".csv")).toList();
+    }
+  }
+
+  @Test
+  void slowTickDumpsRingWithTicksAfterIt() throws IOException {
+    StageTimings timings = new StageTimings();
+    timings.recordDuration(Stage.CONVOLVE, 3000);
+    Path out = directory.resolve("spikes");
+    try (SpikeRecorder recorder = new SpikeRecorder(timings, BUDGET, out, false, CAPACITY, TICKS_AFTER)) {
+      for (int tick = 1; tick <= 10; tick++) {
+        recorder.recordTick(tick, tick == 9 ? 5 * BUDGET : BUDGET / 2, null);
+      }
+      recorder.recordTick(11, BUDGET / 2, null);
+    }
+    List<Path> dumps = dumps(out);
+    assertEquals(1, dumps.size());
+    assertTrue(dumps.get(0).getFileName().toString().endsWith("-tick9.csv"));
+    List<String> lines = Files.readAllLines(dumps.get(0));
+    // Comment, header and the whole ring: ticks 4 to 11
+    assertEquals(2 + CAPACITY, lines.size());
+    assertTrue(lines.get(1).startsWith("tick,epoch_ms,tick_us,frame_us,convolve_us"));
+    assertTrue(lines.get(2).startsWith("4,"));
+    assertTrue(lines.get(7).startsWith("9,"));
+    assertTrue(lines.get(7).endsWith(",1"));
+    assertTrue(lines.get(9).startsWith("11,"));
+    assertTrue(lines.get(9).endsWith(",0"));
+    assertEquals("3", lines.get(2).split(",")[4]);
+  }
+
+  @Test
+  void slowFrameMarksNextTick() throws IOException {
+    try (SpikeRecorder recorder = new SpikeRecorder(new StageTimings(), BUDGET, directory, false,
+      CAPACITY, TICKS_AFTER)) {
+      for (int tick = 1; tick <= CAPACITY; tick++) {
+        recorder.recordTick(tick, 0, null);
+      }
+      recorder.recordFrame(2 * BUDGET);
+      recorder.recordTick(CAPACITY + 1, 0, null);
+    }
+    // Dumped on close, before the ticks after it were recorded
+    List<Path> dumps = dumps(directory);
+    assertEquals(1, dumps.size());
+    List<String> lines = Files.readAllLines(dumps.get(0));
+    String last = lines.get(lines.size() - 1);
+    assertTrue(last.startsWith((CAPACITY + 1) + ","));
+    assertEquals("2000", last.split(",")[3]);
+    assertTrue(last.endsWith(",1"));
+  }
+
+  @Test
+  void spikesWhileRingFillsAreIgnored() throws IOException {
+    try (SpikeRecorder recorder = new SpikeRecorder(new StageTimings(), BUDGET, directory, false,
+      CAPACITY, TICKS_AFTER)) {
+      for (int tick = 1; tick <= CAPACITY; tick++) {
+        recorder.recordTick(tick, 10 * BUDGET, null);
+      }
+    }
+    assertTrue(dumps(directory).isEmpty());
+  }
+}
@@ -0,0 +1,80 @@
+package org.kevinferrare.oldskoolfire;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a {@link TileWall} runs its tiles independently and assembles them into one frame.
+ */
+public class TileWallTest {
+
+  private static final int WIDTH = 2 * 40 + 1;
+  private static final int HEIGHT = 2 * 30;
+
+  private static AppConfig config(String wall, List<String> tiles) {
+    return AppConfig.defaults()
+      .width(WIDTH)
+      .height(HEIGHT)
+      .shape("none")
+      .noVectorApi(true)
+      .threads(2)
+      .seed(42L)
+      .wall(wall)
+      .wallTiles(tiles)
+      .build();
+  }
+
+  /**
+   * Returns the sum of one channel (16 for red, 8 for green) over the tile of the top row starting at column x.
+   */
+  private static long channel(int[] pixels, int x, int shift) {
+    long sum = 0;
+    for (int y = 0; y < HEIGHT / 2; y++) {
+      for (int i = x; i < x + 40; i++) {
+        sum += pixels[y * WIDTH + i] >> shift & 0xFF;
+      }
+    }
+    return sum;
+  }
+
+  @Test
+  void rendersEachTileWithItsOwnPalette() {
+    try (TileWall wall = new TileWall(WIDTH, HEIGHT, config("2x2", List.of(":matrix:", "none:fire:40")))) {
+      for (int i = 0; i < 50; i++) {
+        assertTrue(wall.step(0.01));
+      }
+      int[] pixels = new int[WIDTH * HEIGHT];
+      assertTrue(wall.renderTo(pixels));
+
+      // Over the whole tile: the hottest pixels of the fire palette are yellow to white, not red
+      assertTrue(channel(pixels, 0, 16) < channel(pixels, 0, 8), "Matrix tile is green");
+      assertTrue(channel(pixels, 40, 16) > channel(pixels, 40, 8), "Fire tile is red");
+      for (int y = 0; y < HEIGHT; y++) {
+        assertEquals(0, pixels[y * WIDTH + 2 * 40], "The column left over by the grid stays black");
+      }
+      assertEquals("matrix", wall.getState().palette().name());
+    }
+  }
+
+  @Test
+  void commandsReachEveryTile() {
+    try (TileWall wall = new TileWall(WIDTH, HEIGHT, config("3x1", List.of()))) {
+      AtomicInteger engines = new AtomicInteger();
+      wall.command(engine -> engines.incrementAndGet());
+      assertEquals(3, engines.get());
+
+      wall.command(FireEngine::togglePause);
+      assertFalse(wall.step(0.01), "Every tile is paused");
+    }
+  }
+
+  @Test
+  void rejectsInvalidGrids() {
+    assertThrows(IllegalArgumentException.class, () -> new TileWall(WIDTH, HEIGHT, config("3", List.of())));
+    assertThrows(IllegalArgumentException.class, () -> new TileWall(WIDTH, HEIGHT, config("100x1", List.of())));
+  }
+}
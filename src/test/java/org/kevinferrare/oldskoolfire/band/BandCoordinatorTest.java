@@ -0,0 +1,70 @@
+package org.kevinferrare.oldskoolfire.band;
+
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.AppConfig;
+import org.kevinferrare.oldskoolfire.FireEngine;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a fire simulated in bands by worker processes is the fire of a single process.
+ */
+public class BandCoordinatorTest {
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 90;
+
+  private static AppConfig config(int bands) {
+    return AppConfig.defaults()
+      .width(WIDTH)
+      .height(HEIGHT)
+      .noVectorApi(true)
+      .threads(1)
+      .seed(42L)
+      .bands(bands)
+      .build();
+  }
+
+  private static int[] run(int bands) throws InterruptedException {
+    try (FireEngine engine = new FireEngine(WIDTH, HEIGHT, config(bands))) {
+      assertTrue(engine.awaitShape(Duration.ofSeconds(5)), "Cube must load");
+      int[] pixels = new int[WIDTH * HEIGHT];
+      for (int i = 0; i < 100; i++) {
+        assertTrue(engine.step(FireEngine.FIXED_DELTA_SEC));
+        if (i == 50 && bands > 0) {
+          // The workers keep their frames: unlike in a single process, a render does not change the next tick
+          assertTrue(engine.renderTo(pixels));
+        }
+      }
+      assertTrue(engine.renderTo(pixels));
+      return pixels;
+    }
+  }
+
+  @Test
+  void bandedFireMatchesSingleProcess() throws InterruptedException {
+    int[] expected = run(0);
+    int black = expected[0];
+    assertTrue(Arrays.stream(expected).anyMatch(p -> p != black), "Fire must be visible");
+    assertArrayEquals(expected, run(3), "Halo rows must carry the fire across the bands");
+  }
+
+  @Test
+  void splitsRowsFromTopToBottom() {
+    Band[] bands = Band.split(10, 3);
+    assertEquals(new Band(0, 3, false), bands[0]);
+    assertEquals(new Band(3, 3, false), bands[1]);
+    assertEquals(new Band(6, 4, true), bands[2]);
+    assertEquals(4, bands[1].surfaceHeight());
+    assertEquals(4, bands[2].surfaceHeight());
+
+    // Too few rows for every band: the upper ones are idle
+    Band[] small = Band.split(3, 3);
+    assertEquals(0, small[0].rows());
+    assertEquals(0, small[1].rows());
+    assertEquals(new Band(0, 3, true), small[2]);
+  }
+}
@@ -0,0 +1,81 @@
+package org.kevinferrare.oldskoolfire.bench;
+
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.AppConfig;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that benchmark results survive a CSV or JSON round trip and that comparisons flag only
+ * the metrics that got worse beyond the threshold.
+ */
+public class BenchResultsTest {
+
+  private static BenchResult result(String shape, double meanMs, double p99Ms, double ups) {
+    return new BenchResult("simd", "SIMD (256-bit)", "1920x1080", shape, 0, 2000, meanMs, 0.5, p99Ms, ups, 128);
+  }
+
+  @Test
+  void csvRoundTrip() {
+    List<BenchResult> results = List.of(result("cube", 1.25, 2.5, 800), result("dragon", 2.0, 4.0, 500));
+    assertEquals(results, BenchResults.fromCsv(BenchResults.toCsv(results)));
+  }
+
+  @Test
+  void jsonRoundTrip() {
+    List<BenchResult> results = List.of(result("cube", 1.25, 2.5, 800), result("dragon", 2.0, 4.0, 500));
+    assertEquals(results, BenchResults.fromJson(BenchResults.toJson(results)));
+  }
+
+  @Test
+  void jsonRoundTripKeepsQuotesAndBackslashes() {
+    List<BenchResult> results = List.of(result("C:\\meshes\\\"big\" {dragon}.obj", 1.25, 2.5, 800),
+      result("tab\tand\u0001control", 2.0, 4.0, 500));
+    String json = BenchResults.toJson(results);
+    assertTrue(json.contains("C:\\\\meshes\\\\\\\"big\\\""), json);
+    assertTrue(json.contains("tab\\u0009and\\u0001control"), json);
+    assertEquals(results, BenchResults.fromJson(json));
+  }
+
+  @Test
+  void comparisonFlagsWorseningBeyondThreshold() {
+    List<BenchResult> baseline = List.of(result("cube", 1.0, 2.0, 1000), result("dragon", 2.0, 4.0, 500));
+    List<BenchResult> current = List.of(
+      result("cube", 1.03, 1.5, 990),   // within 5%, p99 improved
+      result("dragon", 2.5, 4.0, 400),  // mean +25%, UPS -20%
+      result("torus", 9.0, 9.0, 10));   // not in the baseline
+
+    List<BenchComparison.Regression> regressions = BenchComparison.regressions(baseline, current, 5);
+
+    assertEquals(2, regressions.size(), regressions.toString());
+    assertEquals("meanMs", regressions.get(0).metric());
+    assertEquals(25, regressions.get(0).changePercent(), 1e-9);
+    assertEquals("ups", regressions.get(1).metric());
+    assertEquals(20, regressions.get(1).changePercent(), 1e-9);
+  }
+
+  @Test
+  void matrixCoversEveryCombination() {
+    List<BenchCase> cases = BenchCase.matrix(List.of("scalar", "SIMD"), List.of("64x48", "32x24"),
+      List.of("cube"), List.of(1, 2));
+    assertEquals(8, cases.size());
+    assertEquals(new BenchCase("simd", 32, 24, "cube", 2), cases.get(7));
+    assertThrows(IllegalArgumentException.class, () -> BenchCase.matrix(List.of("cuda"), List.of("64x48"),
+      List.of("cube"), List.of(1)));
+  }
+
+  @Test
+  void runnerMeasuresEveryTick() throws InterruptedException {
+    BenchCase benchCase = new BenchCase("scalar", 64, 48, "cube", 1);
+    AppConfig base = AppConfig.defaults()
+      .shape("none")
+      .jitWarmupMs(0)
+      .build();
+    BenchResult result = new BenchRunner(base, 5, 20).run(benchCase);
+    assertEquals(20, result.ticks());
+    assertTrue(result.p50Ms() <= result.p99Ms());
+    assertTrue(result.ups() > 0);
+  }
+}
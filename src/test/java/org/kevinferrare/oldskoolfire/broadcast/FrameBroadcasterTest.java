@@ -0,0 +1,142 @@
+package org.kevinferrare.oldskoolfire.broadcast;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that viewers of both streams receive the published frames, across resizes, and the tile-delta encoding.
+ */
+public class FrameBroadcasterTest {
+
+  private static final int WIDTH = 70;
+  private static final int HEIGHT = 40;
+
+  private static int[] frame(int index) {
+    int[] rgb = new int[WIDTH * HEIGHT];
+    // Only the top left tile changes from frame to frame
+    rgb[0] = index;
+    for (int i = 1; i < rgb.length; i++) {
+      rgb[i] = i * 2654435 & 0xFFFFFF;
+    }
+    return rgb;
+  }
+
+  @Test
+  void deltaMessagesOnlyCarryChangedTiles() throws IOException {
+    int[] first = frame(1);
+    int[] second = frame(2);
+    byte[] key = TileDeltaCodec.encode(1, first, null, WIDTH, HEIGHT);
+    byte[] delta = TileDeltaCodec.encode(2, second, first, WIDTH, HEIGHT);
+    assertTrue(delta.length < key.length);
+
+    int[] client = new int[WIDTH * HEIGHT];
+    assertEquals(1, TileDeltaCodec.decode(new DataInputStream(new ByteArrayInputStream(key)), client,
+      WIDTH, HEIGHT));
+    assertArrayEquals(first, client);
+    assertEquals(2, TileDeltaCodec.decode(new DataInputStream(new ByteArrayInputStream(delta)), client,
+      WIDTH, HEIGHT));
+    assertArrayEquals(second, client);
+  }
+
+  /**
+   * Publishes frames of the given height until the test is done: nothing is published before a viewer connects.
+   */
+  private static Thread publish(FrameBroadcaster broadcaster, AtomicBoolean done, AtomicInteger height) {
+    return Thread.ofPlatform().daemon().start(() -> {
+      for (int i = 0; !done.get(); i++) {
+        broadcaster.offer(frame(i), WIDTH, height.get());
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    });
+  }
+
+  private static HttpURLConnection open(FrameBroadcaster broadcaster, String path) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + broadcaster.getPort() + path)
+      .toURL().openConnection();
+    connection.setReadTimeout(10_000);
+    return connection;
+  }
+
+  @Test
+  void streamsTilesAndMjpeg() throws IOException, InterruptedException {
+    AtomicBoolean done = new AtomicBoolean();
+    try (FrameBroadcaster broadcaster = new FrameBroadcaster(0, WIDTH, HEIGHT, 500)) {
+      Thread publisher = publish(broadcaster, done, new AtomicInteger(HEIGHT));
+      try {
+        HttpURLConnection tiles = open(broadcaster, "/tiles");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(tiles.getInputStream()))) {
+          int[] client = new int[WIDTH * HEIGHT];
+          long first = TileDeltaCodec.decode(in, client, WIDTH, HEIGHT);
+          long second = TileDeltaCodec.decode(in, client, WIDTH, HEIGHT);
+          assertTrue(second > first);
+          int[] expected = frame(0);
+          expected[0] = client[0];
+          assertArrayEquals(expected, client, "Every tile but the changing one is constant");
+        }
+
+        HttpURLConnection mjpeg = open(broadcaster, "/mjpeg");
+        assertTrue(mjpeg.getContentType().startsWith("multipart/x-mixed-replace"));
+        try (InputStream in = mjpeg.getInputStream()) {
+          byte[] start = in.readNBytes(256);
+          String text = new String(start, StandardCharsets.ISO_8859_1);
+          assertTrue(text.startsWith("--" + FrameBroadcaster.BOUNDARY + "\r\nContent-Type: image/jpeg"));
+          int body = text.indexOf("\r\n\r\n") + 4;
+          assertEquals((byte) 0xFF, start[body]);
+          assertEquals((byte) 0xD8, start[body + 1], "JPEG start of image");
+        }
+      } finally {
+        done.set(true);
+        publisher.join();
+      }
+    }
+  }
+
+  @Test
+  void followsResize() throws IOException, InterruptedException {
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicInteger height = new AtomicInteger(HEIGHT);
+    try (FrameBroadcaster broadcaster = new FrameBroadcaster(0, WIDTH, HEIGHT, 500)) {
+      Thread publisher = publish(broadcaster, done, height);
+      try {
+        HttpURLConnection tiles = open(broadcaster, "/tiles");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(tiles.getInputStream()))) {
+          TileDeltaCodec.decode(in, new int[WIDTH * HEIGHT], WIDTH, HEIGHT);
+          height.set(HEIGHT / 2);
+          // Skip the frames published before the resize
+          byte kind;
+          int messageHeight;
+          do {
+            kind = in.readByte();
+            in.readLong();
+            assertEquals(WIDTH, in.readInt());
+            messageHeight = in.readInt();
+            in.readInt();
+            in.readInt();
+            in.skipNBytes(in.readInt());
+          } while (messageHeight == HEIGHT);
+          assertEquals(HEIGHT / 2, messageHeight);
+          assertEquals(TileDeltaCodec.KEY, kind, "The first frame of the new size has every tile");
+        }
+      } finally {
+        done.set(true);
+        publisher.join();
+      }
+    }
+  }
+}
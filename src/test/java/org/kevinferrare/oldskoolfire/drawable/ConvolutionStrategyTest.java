@@ -1,7 +1,10 @@
 package org.kevinferrare.oldskoolfire.drawable;
 
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -82,6 +85,21 @@ public class ConvolutionStrategyTest {
       "Vector strategy must produce near-identical output to scalar strategy");
   }
 
+  @Test
+  void everyVectorSpeciesProducesSameOutputAsScalar() {
+    FixedIntSurface src = randomSurface(WIDTH, HEIGHT, 42);
+    FixedIntSurface destScalar = emptySurface(WIDTH, HEIGHT);
+    new ConvolveAndRiseEffect(COOLING, new ScalarConvolutionStrategy()).draw(src, destScalar);
+
+    for (VectorSpecies<Integer> species : List.of(IntVector.SPECIES_64, IntVector.SPECIES_128,
+      IntVector.SPECIES_256, IntVector.SPECIES_512, IntVector.SPECIES_MAX)) {
+      FixedIntSurface destVector = emptySurface(WIDTH, HEIGHT);
+      new ConvolveAndRiseEffect(COOLING, new VectorConvolutionStrategy(species)).draw(src, destVector);
+      assertArraysNearlyEqual(destScalar.data(), destVector.data(), MAX_DELTA,
+        "Vector strategy with " + species + " must produce near-identical output to scalar strategy");
+    }
+  }
+
   @Test
   void vectorHandlesSmallSurface() {
     // Surface smaller than a SIMD vector lane count - only remainder loop should run
@@ -98,6 +116,26 @@ public class ConvolutionStrategyTest {
       "Vector strategy must handle surfaces smaller than SIMD width");
   }
 
+  @Test
+  void bandsMatchWholeFrame() {
+    FixedIntSurface src = randomSurface(WIDTH, HEIGHT, 7);
+    for (ConvolutionStrategy strategy : new ConvolutionStrategy[]{new ScalarConvolutionStrategy(), new VectorConvolutionStrategy()}) {
+      ConvolveAndRiseEffect effect = new ConvolveAndRiseEffect(COOLING, strategy);
+      FixedIntSurface whole = emptySurface(WIDTH, HEIGHT);
+      FixedIntSurface banded = emptySurface(WIDTH, HEIGHT);
+      effect.draw(src, whole);
+
+      int rows = effect.rows(src);
+      assertEquals(HEIGHT - 1, rows);
+      // Uneven bands, the last one past the end is clamped
+      effect.draw(src, banded, 0, 37);
+      effect.draw(src, banded, 37, 120);
+      effect.draw(src, banded, 120, rows + 10);
+
+      assertArrayEquals(whole.data(), banded.data(), strategy.name() + " bands must match the whole frame");
+    }
+  }
+
   @Test
   void bothStrategiesHandleEmptySurface() {
     FixedIntSurface src = new FixedIntSurface(new int[0], 0, 0);
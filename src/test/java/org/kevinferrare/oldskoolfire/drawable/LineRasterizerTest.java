@@ -2,7 +2,9 @@ package org.kevinferrare.oldskoolfire.drawable;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LineRasterizerTest {
@@ -115,4 +117,36 @@ public class LineRasterizerTest {
     rasterizer.drawLine(19, 0, 19, 9, SOURCE);
     assertEquals(10, countDrawnPixels(s));
   }
+
+  @Test
+  void layerRecordingMatchesDirectDrawing() {
+    FixedIntSurface direct = surface(40, 30);
+    FixedIntSurface replayed = surface(40, 30);
+    ShapeLayer layer = new ShapeLayer(40, 30);
+    int[] counter = {0};
+    PixelSource varying = () -> ++counter[0];
+
+    new LineRasterizer(direct).drawLine(-5, 3, 45, 27, varying);
+    new LineRasterizer(direct).drawLine(10, 35, 12, -4, varying);
+    counter[0] = 0;
+    LineRasterizer recorder = new LineRasterizer(layer);
+    recorder.drawLine(-5, 3, 45, 27, varying);
+    recorder.drawLine(10, 35, 12, -4, varying);
+    layer.applyTo(replayed);
+
+    assertTrue(layer.size() > 0);
+    assertArrayEquals(direct.data(), replayed.data());
+  }
+
+  @Test
+  void retargetDrawsOntoNewSurface() {
+    FixedIntSurface first = surface(20, 10);
+    FixedIntSurface second = surface(20, 10);
+    LineRasterizer rasterizer = new LineRasterizer(first);
+    rasterizer.retarget(second);
+    rasterizer.drawLine(0, 5, 19, 5, SOURCE);
+    assertEquals(0, countDrawnPixels(first));
+    assertEquals(20, countDrawnPixels(second));
+    assertThrows(IllegalArgumentException.class, () -> rasterizer.retarget(surface(10, 10)));
+  }
 }
@@ -45,6 +45,18 @@ public class QuaternionTest {
     assertEquals(0, q.z(), EPSILON);
   }
 
+  @Test
+  void preRotateEulerXYInPlaceMatchesFromEulerXY() {
+    Quaternion expected = Quaternion.fromAxisAngle(0, 0, 1, 0.7);
+    Quaternion actual = Quaternion.fromAxisAngle(0, 0, 1, 0.7);
+    expected.preMultiplyInPlace(Quaternion.fromEulerXY(0.3, -1.1));
+    actual.preRotateEulerXYInPlace(0.3, -1.1);
+    assertEquals(expected.w(), actual.w(), EPSILON);
+    assertEquals(expected.x(), actual.x(), EPSILON);
+    assertEquals(expected.y(), actual.y(), EPSILON);
+    assertEquals(expected.z(), actual.z(), EPSILON);
+  }
+
   @Test
   void multiplyIdentityTimesQequalsQ() {
     Quaternion identity = new Quaternion();
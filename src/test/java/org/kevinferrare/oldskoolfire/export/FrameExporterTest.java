@@ -0,0 +1,119 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that every {@link FrameFormat} writes the offered frames in order, whatever encoder thread wrote them.
+ */
+public class FrameExporterTest {
+
+  private static final int WIDTH = 5;
+  private static final int HEIGHT = 3;
+  private static final int FRAMES = 12;
+
+  private Path directory;
+
+  @BeforeEach
+  void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("export");
+  }
+
+  @AfterEach
+  void deleteDirectory() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  private static int[] frame(int index) {
+    int[] rgb = new int[WIDTH * HEIGHT];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = (index * 16 + i) << 16 | i << 8 | index;
+    }
+    return rgb;
+  }
+
+  private static void export(Path output, FrameFormat format) throws IOException {
+    // Fewer buffers than frames and several encoders: frames are recycled and finish out of order
+    try (FrameExporter exporter = new FrameExporter(output, format, WIDTH, HEIGHT, FrameExporter.Policy.BLOCK, 30,
+      2, 3)) {
+      for (int i = 0; i < FRAMES; i++) {
+        assertTrue(exporter.offer(frame(i), WIDTH, HEIGHT));
+      }
+      assertFalse(exporter.offer(frame(0), WIDTH, HEIGHT - 1), "Frames of another size are dropped");
+      assertFalse(exporter.offer(frame(0), HEIGHT, WIDTH), "Even with as many pixels");
+      assertEquals(2, exporter.getDroppedFrames());
+    }
+  }
+
+  @Test
+  void rawWritesRgbFramesInOrder() throws IOException {
+    Path file = directory.resolve("out.rgb");
+    export(file, FrameFormat.forPath(file));
+    byte[] bytes = Files.readAllBytes(file);
+    assertEquals(FRAMES * WIDTH * HEIGHT * 3, bytes.length);
+    for (int f = 0; f < FRAMES; f++) {
+      int[] expected = frame(f);
+      for (int i = 0; i < expected.length; i++) {
+        int offset = (f * expected.length + i) * 3;
+        int actual = (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8 | bytes[offset + 2] & 0xFF;
+        assertEquals(expected[i], actual, "frame " + f + " pixel " + i);
+      }
+    }
+  }
+
+  @Test
+  void y4mWritesHeaderAndFrames() throws IOException {
+    Path file = directory.resolve("out.y4m");
+    export(file, FrameFormat.forPath(file));
+    byte[] bytes = Files.readAllBytes(file);
+    String header = "YUV4MPEG2 W5 H3 F30:1 Ip A1:1 C444\n";
+    int frameBytes = "FRAME\n".length() + 3 * WIDTH * HEIGHT;
+    assertEquals(header.length() + FRAMES * frameBytes, bytes.length);
+    assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII));
+    for (int f = 0; f < FRAMES; f++) {
+      int offset = header.length() + f * frameBytes;
+      assertEquals("FRAME\n", new String(bytes, offset, 6, StandardCharsets.US_ASCII));
+      // Luma of the first pixel: red f * 16, no green, blue f
+      int expectedY = ((66 * f * 16 + 25 * f + 128) >> 8) + 16;
+      assertEquals(expectedY, bytes[offset + 6] & 0xFF, "frame " + f);
+    }
+  }
+
+  @Test
+  void pngWritesOneDecodableFilePerFrame() throws IOException {
+    Path frames = directory.resolve("frames");
+    export(frames, FrameFormat.forPath(frames));
+    for (int f = 0; f < FRAMES; f++) {
+      BufferedImage image = ImageIO.read(frames.resolve(PngEncoder.fileName(f)).toFile());
+      assertEquals(WIDTH, image.getWidth());
+      assertEquals(HEIGHT, image.getHeight());
+      int[] expected = frame(f);
+      for (int i = 0; i < expected.length; i++) {
+        assertEquals(expected[i], image.getRGB(i % WIDTH, i / WIDTH) & 0xFFFFFF, "frame " + f + " pixel " + i);
+      }
+    }
+  }
+
+  @Test
+  void formatAndPolicyNamesAreParsed() {
+    assertEquals(FrameFormat.Y4M, FrameFormat.parse("y4m"));
+    assertEquals(FrameExporter.Policy.BLOCK, FrameExporter.Policy.parse("Block"));
+    assertThrows(IllegalArgumentException.class, () -> FrameFormat.parse("gif"));
+  }
+}
@@ -0,0 +1,112 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.PaletteFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that readers of a {@link MappedFrameBuffer} get whole frames, whatever the writer is doing.
+ */
+public class MappedFrameBufferTest {
+
+  private Path file;
+
+  @BeforeEach
+  void createFile() throws IOException {
+    file = Files.createTempFile("frame", ".osfb");
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private static FixedIntSurface surface(int width, int height, int index) {
+    int[] data = new int[width * height];
+    Arrays.fill(data, index << FixedIntSurface.SCALING_SHIFT);
+    return new FixedIntSurface(data, width, height);
+  }
+
+  @Test
+  void publishesRgbAndIndices() throws IOException {
+    try (MappedFrameBuffer rgb = new MappedFrameBuffer(file, MappedFrameBuffer.Content.RGB, 2, 1);
+         MappedFrameReader reader = MappedFrameReader.open(file)) {
+      assertNull(reader.read(null), "Nothing published yet");
+      rgb.publish(surface(2, 1, 7), new int[]{0x112233, 0xA0B0C0}, PaletteFactory.createFire(), 3);
+      MappedFrameReader.Frame frame = reader.read(null);
+      assertEquals(2, frame.sequence());
+      assertEquals(2, frame.width());
+      assertEquals(1, frame.height());
+      assertEquals(3, frame.paletteId());
+      assertArrayEquals(new byte[]{0x33, 0x22, 0x11, 0, (byte) 0xC0, (byte) 0xB0, (byte) 0xA0, 0}, frame.pixels());
+    }
+
+    // A larger frame grows the file, the sequence carries on from the previous writer
+    try (MappedFrameBuffer indices = new MappedFrameBuffer(file, MappedFrameBuffer.Content.INDEX, 2, 1);
+         MappedFrameReader reader = MappedFrameReader.open(file)) {
+      indices.publish(surface(40, 30, 200), new int[40 * 30], PaletteFactory.createFire(), 0);
+      MappedFrameReader.Frame frame = reader.read(null);
+      assertEquals(4, frame.sequence());
+      assertEquals(MappedFrameBuffer.Content.INDEX, frame.content());
+      assertEquals(40 * 30, frame.pixels().length);
+      assertEquals((byte) 200, frame.pixels()[40 * 30 - 1]);
+    }
+  }
+
+  @Test
+  void readersNeverSeeTornFrames() throws IOException, InterruptedException {
+    int width = 256;
+    int height = 64;
+    AtomicBoolean done = new AtomicBoolean();
+    try (MappedFrameBuffer buffer = new MappedFrameBuffer(file, MappedFrameBuffer.Content.RGB, width, height);
+         MappedFrameReader reader = MappedFrameReader.open(file)) {
+      FixedIntSurface surface = surface(width, height, 0);
+      Thread writer = Thread.ofPlatform().start(() -> {
+        int[] rgb = new int[width * height];
+        try {
+          for (int i = 1; !done.get(); i++) {
+            // Every pixel of a frame has the same value
+            Arrays.fill(rgb, i);
+            buffer.publish(surface, rgb, PaletteFactory.createFire(), 0);
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      try {
+        byte[] pixels = null;
+        long lastSequence = 0;
+        for (int read = 0; read < 2000; read++) {
+          MappedFrameReader.Frame frame = reader.read(pixels);
+          if (frame == null) {
+            continue;
+          }
+          pixels = frame.pixels();
+          assertTrue(frame.sequence() >= lastSequence);
+          lastSequence = frame.sequence();
+          ByteBuffer ints = ByteBuffer.wrap(pixels).order(ByteOrder.LITTLE_ENDIAN);
+          int first = ints.getInt(0);
+          for (int i = 0; i < width * height; i++) {
+            assertEquals(first, ints.getInt(i * Integer.BYTES), "Torn frame");
+          }
+        }
+        assertTrue(lastSequence > 0);
+      } finally {
+        done.set(true);
+        writer.join();
+      }
+    }
+  }
+}
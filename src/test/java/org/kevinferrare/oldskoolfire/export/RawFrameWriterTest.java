@@ -0,0 +1,46 @@
+package org.kevinferrare.oldskoolfire.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the byte layout of each {@link RawPixelFormat}.
+ */
+public class RawFrameWriterTest {
+
+  private static final int[] FRAME = {0x112233, 0xA0B0C0};
+
+  private static byte[] write(RawPixelFormat format) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (RawFrameWriter writer = new RawFrameWriter(Channels.newChannel(bytes), format, 2, 1)) {
+      writer.write(FRAME);
+      writer.write(FRAME);
+      assertEquals(2, writer.getWrittenFrames());
+      assertThrows(IllegalArgumentException.class, () -> writer.write(new int[3]));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  void writesRgb24() throws IOException {
+    byte[] frame = {0x11, 0x22, 0x33, (byte) 0xA0, (byte) 0xB0, (byte) 0xC0};
+    byte[] expected = new byte[2 * frame.length];
+    System.arraycopy(frame, 0, expected, 0, frame.length);
+    System.arraycopy(frame, 0, expected, frame.length, frame.length);
+    assertArrayEquals(expected, write(RawPixelFormat.RGB24));
+  }
+
+  @Test
+  void writesOpaqueBgra() throws IOException {
+    byte[] bytes = write(RawPixelFormat.BGRA);
+    assertEquals(16, bytes.length);
+    assertArrayEquals(new byte[]{0x33, 0x22, 0x11, (byte) 0xFF, (byte) 0xC0, (byte) 0xB0, (byte) 0xA0, (byte) 0xFF},
+      Arrays.copyOf(bytes, 8));
+  }
+}
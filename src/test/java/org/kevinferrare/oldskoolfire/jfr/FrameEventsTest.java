@@ -0,0 +1,74 @@
+package org.kevinferrare.oldskoolfire.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.AppConfig;
+import org.kevinferrare.oldskoolfire.FireEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a JFR recording of a few headless ticks contains the frame lifecycle events with their fields.
+ */
+public class FrameEventsTest {
+
+  private static final String PREFIX = "org.kevinferrare.oldskoolfire.";
+
+  @Test
+  void recordingContainsFrameLifecycleEvents() throws IOException, InterruptedException {
+    AppConfig config = AppConfig.defaults()
+      .width(64)
+      .height(48)
+      .cooling(9)
+      .noVectorApi(true)
+      .threads(1)
+      .build();
+    Path file = Files.createTempFile("fire", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        for (String name : List.of("FrameTick", "FrameStage", "BufferSwap", "ShapeLoad", "StrategySelection")) {
+          recording.enable(PREFIX + name).withThreshold(Duration.ZERO);
+        }
+        recording.start();
+        try (FireEngine engine = new FireEngine(64, 48, config)) {
+          assertTrue(engine.awaitShape(Duration.ofSeconds(5)));
+          for (int i = 0; i < 5; i++) {
+            engine.step(0.01);
+          }
+        }
+        recording.stop();
+        recording.dump(file);
+      }
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+      List<RecordedEvent> ticks = named(events, "FrameTick");
+      assertEquals(5, ticks.size());
+      RecordedEvent tick = ticks.get(4);
+      assertEquals(5, tick.getLong("tick"));
+      assertEquals(64, tick.getInt("width"));
+      assertEquals("Scalar", tick.getString("strategy"));
+      assertEquals(9, tick.getInt("cooling"));
+      assertEquals("cube", tick.getString("shape"));
+      assertEquals(12, tick.getInt("lineCount"));
+
+      assertEquals(5, named(events, "BufferSwap").size());
+      assertTrue(named(events, "FrameStage").stream().anyMatch(e -> e.getString("stage").equals("convolve")));
+      assertTrue(named(events, "ShapeLoad").stream().anyMatch(e -> e.getString("shape").equals("cube")));
+      assertEquals("Scalar", named(events, "StrategySelection").getFirst().getString("strategy"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+    return events.stream().filter(e -> e.getEventType().getName().equals(PREFIX + name)).toList();
+  }
+}
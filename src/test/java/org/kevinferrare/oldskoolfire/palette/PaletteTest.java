@@ -41,6 +41,19 @@ public class PaletteTest {
     assertEquals(0xFFFF0000, result);
   }
 
+  @Test
+  void hsbToIntegerMatchesAwt() {
+    for (float hue = -1f; hue <= 2f; hue += 0.013f) {
+      for (float saturation = 0f; saturation <= 1f; saturation += 0.125f) {
+        for (float brightness = 0f; brightness <= 1f; brightness += 0.0625f) {
+          assertEquals(java.awt.Color.HSBtoRGB(hue, saturation, brightness),
+            Palette.hsbToInteger(hue, saturation, brightness),
+            "hue " + hue + ", saturation " + saturation + ", brightness " + brightness);
+        }
+      }
+    }
+  }
+
   @Test
   void applyMapsZeroSurfaceToBlack() {
     int width = 10;
@@ -71,4 +84,26 @@ public class PaletteTest {
 
     assertEquals(palette.indexToRGB()[128], destination[0]);
   }
+
+  @Test
+  void toIndicesMatchesApply() {
+    Palette palette = PaletteFactory.createFire();
+    int width = 16;
+    int height = 4;
+    int[] data = new int[width * (height + 1)];
+    for (int i = 0; i < data.length; i++) {
+      // Beyond the palette too, both must wrap the same way
+      data[i] = (i * 37) << FixedIntSurface.SCALING_SHIFT;
+    }
+    FixedIntSurface surface = new FixedIntSurface(data, width, height);
+    int[] rgb = new int[width * height];
+    byte[] indices = new byte[width * height];
+
+    palette.apply(surface, rgb);
+    palette.toIndices(surface, indices);
+
+    for (int i = 0; i < indices.length; i++) {
+      assertEquals(rgb[i], palette.indexToRGB()[indices[i] & 0xFF], "pixel " + i);
+    }
+  }
 }
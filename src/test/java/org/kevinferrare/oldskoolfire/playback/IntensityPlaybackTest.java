@@ -0,0 +1,143 @@
+package org.kevinferrare.oldskoolfire.playback;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.palette.Palette;
+import org.kevinferrare.oldskoolfire.palette.PaletteFactory;
+import org.kevinferrare.oldskoolfire.util.FastRandom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that frames recorded by {@link IntensityRecorder} are played back identically, with their palette and size.
+ */
+public class IntensityPlaybackTest {
+
+  private static final int WIDTH = 37;
+  private static final int HEIGHT = 11;
+
+  private Path file;
+
+  @BeforeEach
+  void createFile() throws IOException {
+    file = Files.createTempFile("fire", ".firi");
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * A fire-like frame: long runs, noise and all 256 indices.
+   */
+  private static byte[] indices(int seed) {
+    FastRandom random = new FastRandom(seed);
+    byte[] indices = new byte[WIDTH * HEIGHT];
+    for (int i = 0; i < indices.length; i++) {
+      int y = i / WIDTH;
+      indices[i] = (byte) (y < 4 ? 0 : y < 7 ? random.nextLong() : (i * 7 + seed));
+    }
+    return indices;
+  }
+
+  private static FixedIntSurface surface(byte[] indices) {
+    // One extra row like the fire surfaces, never recorded
+    int[] data = new int[WIDTH * (HEIGHT + 1)];
+    for (int i = 0; i < indices.length; i++) {
+      data[i] = ((indices[i] & 0xFF) << FixedIntSurface.SCALING_SHIFT) | (i & 0xFF);
+    }
+    return new FixedIntSurface(data, WIDTH, HEIGHT);
+  }
+
+  @Test
+  void codecRoundTrips() {
+    byte[] indices = indices(3);
+    ByteBuffer encoded = ByteBuffer.allocate(IntensityCodec.maxEncodedSize(indices.length));
+    IntensityCodec.encode(indices, WIDTH, new byte[indices.length], encoded);
+    byte[] decoded = new byte[indices.length];
+    IntensityCodec.decode(encoded, 0, decoded, WIDTH);
+    assertArrayEquals(indices, decoded);
+  }
+
+  @Test
+  void playsBackRecordedFramesAndPalettes() throws IOException {
+    Palette fire = PaletteFactory.createFire();
+    Palette matrix = PaletteFactory.createMatrix();
+    try (IntensityRecorder recorder = new IntensityRecorder(file, WIDTH, HEIGHT, 25)) {
+      recorder.record(surface(indices(0)), fire);
+      recorder.record(surface(indices(1)), fire);
+      recorder.record(surface(indices(2)), matrix);
+    }
+    assertTrue(Files.size(file) < 3L * WIDTH * HEIGHT * 3, "Smaller than RGB");
+
+    try (IntensityPlayback playback = IntensityPlayback.open(file)) {
+      assertEquals(WIDTH, playback.getWidth());
+      assertEquals(HEIGHT, playback.getHeight());
+      assertEquals(25, playback.getFps());
+      assertEquals(3, playback.getFrameCount());
+      byte[] decoded = new byte[WIDTH * HEIGHT];
+      for (int frame = 0; frame < 3; frame++) {
+        playback.decode(frame, decoded);
+        assertArrayEquals(indices(frame), decoded, "Frame " + frame);
+      }
+      assertEquals(fire.name(), playback.getPalette(1).name());
+      assertArrayEquals(fire.indexToRGB(), playback.getPalette(1).indexToRGB());
+      assertEquals(matrix.name(), playback.getPalette(2).name());
+    }
+  }
+
+  @Test
+  void playsBackResizedFrames() throws IOException {
+    Palette fire = PaletteFactory.createFire();
+    int[] small = {1 << FixedIntSurface.SCALING_SHIFT, 2 << FixedIntSurface.SCALING_SHIFT, 0, 0, 0, 0};
+    try (IntensityRecorder recorder = new IntensityRecorder(file, WIDTH, HEIGHT, 25)) {
+      recorder.record(surface(indices(0)), fire);
+      recorder.record(new FixedIntSurface(small, 2, 2), fire);
+      recorder.record(surface(indices(1)), fire);
+    }
+
+    try (IntensityPlayback playback = IntensityPlayback.open(file)) {
+      assertEquals(3, playback.getFrameCount());
+      assertEquals(2, playback.getWidth(1));
+      assertEquals(2, playback.getHeight(1));
+      byte[] decoded = new byte[4];
+      playback.decode(1, decoded);
+      assertArrayEquals(new byte[]{1, 2, 0, 0}, decoded);
+      assertEquals(WIDTH, playback.getWidth(2));
+      assertEquals(HEIGHT, playback.getHeight(2));
+      decoded = new byte[WIDTH * HEIGHT];
+      playback.decode(2, decoded);
+      assertArrayEquals(indices(1), decoded);
+    }
+  }
+
+  @Test
+  void ignoresTruncatedFrames() throws IOException {
+    try (IntensityRecorder recorder = new IntensityRecorder(file, WIDTH, HEIGHT, 25)) {
+      recorder.record(surface(indices(0)), PaletteFactory.createFire());
+      recorder.record(surface(indices(1)), PaletteFactory.createFire());
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+    try (IntensityPlayback playback = IntensityPlayback.open(file)) {
+      assertEquals(1, playback.getFrameCount());
+    }
+  }
+
+  @Test
+  void rejectsOtherFiles() throws IOException {
+    Files.writeString(file, "not a recording");
+    assertThrows(IOException.class, () -> IntensityPlayback.open(file));
+  }
+}
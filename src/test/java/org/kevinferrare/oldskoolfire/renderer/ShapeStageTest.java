@@ -0,0 +1,75 @@
+package org.kevinferrare.oldskoolfire.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.kevinferrare.oldskoolfire.drawable.FixedIntSurface;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3D;
+import org.kevinferrare.oldskoolfire.drawable.threed.Entity3DFactory;
+import org.kevinferrare.oldskoolfire.drawable.threed.objects.MeshGenerator;
+import org.kevinferrare.oldskoolfire.util.RandomStreams;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the {@link ShapeStage} hands its pixels over inside a pool, and survives interrupted waits.
+ */
+public class ShapeStageTest {
+
+  private static final int WIDTH = 160;
+  private static final int HEIGHT = 100;
+
+  private static Entity3D shape() {
+    Entity3D shape = new Entity3DFactory(RandomStreams.UNSEEDED).createScaled("sphere",
+      MeshGenerator.createSphere(48, 64), 80);
+    assertTrue(ShapeStage.accepts(shape));
+    return shape;
+  }
+
+  private static FixedIntSurface surface() {
+    return new FixedIntSurface(new int[WIDTH * (HEIGHT + 1)], WIDTH, HEIGHT);
+  }
+
+  private static boolean drawn(FixedIntSurface surface) {
+    return Arrays.stream(surface.data()).anyMatch(p -> p != 0);
+  }
+
+  @Test
+  void awaitsInPoolTask() {
+    Entity3D shape = shape();
+    FixedIntSurface surface = surface();
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try (ShapeStage stage = new ShapeStage(WIDTH, HEIGHT)) {
+      pool.submit(() -> {
+        stage.submit(shape, null);
+        stage.awaitInto(surface);
+        return null;
+      }).join();
+    } finally {
+      pool.shutdown();
+    }
+    assertTrue(drawn(surface));
+  }
+
+  @Test
+  void keepsWorkingAfterInterruptedWaits() throws InterruptedException {
+    Entity3D shape = shape();
+    try (ShapeStage stage = new ShapeStage(WIDTH, HEIGHT)) {
+      for (int i = 0; i < 3; i++) {
+        stage.submit(shape, null);
+        Thread.currentThread().interrupt();
+        try {
+          stage.awaitInto(surface());
+        } catch (InterruptedException e) {
+          stage.cancel();
+        }
+        Thread.interrupted();
+      }
+      FixedIntSurface surface = surface();
+      stage.submit(shape, null);
+      stage.awaitInto(surface);
+      assertTrue(drawn(surface), "The last job is the one applied");
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameTaskGraphTest {
+
+  @Test
+  void tasksRunAfterTheirDependencies() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<String> order = Collections.synchronizedList(new ArrayList<>());
+      FrameTaskGraph graph = new FrameTaskGraph(pool);
+      FrameTaskGraph.Task a = graph.add(() -> order.add("a"));
+      FrameTaskGraph.Task b = graph.add(() -> order.add("b"));
+      FrameTaskGraph.Task c = graph.add(() -> order.add("c"), a, b);
+      graph.add(() -> order.add("d"), c);
+      graph.add(() -> order.add("e"));
+
+      // Runs repeatedly, tasks are reused
+      for (int run = 0; run < 100; run++) {
+        order.clear();
+        graph.run();
+        assertEquals(5, order.size());
+        assertTrue(order.indexOf("c") > order.indexOf("a"));
+        assertTrue(order.indexOf("c") > order.indexOf("b"));
+        assertTrue(order.indexOf("d") > order.indexOf("c"));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void singleThreadPoolRunsInlineInInsertionOrder() {
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      Thread caller = Thread.currentThread();
+      List<String> order = new ArrayList<>();
+      FrameTaskGraph graph = new FrameTaskGraph(pool);
+      FrameTaskGraph.Task a = graph.add(() -> order.add("a"));
+      graph.add(() -> {
+        assertSame(caller, Thread.currentThread());
+        order.add("b");
+      }, a);
+      graph.run();
+
+      assertFalse(graph.isParallel());
+      assertEquals(List.of("a", "b"), order);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void failureIsRethrownAfterAllTasksRan() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      AtomicInteger ran = new AtomicInteger();
+      FrameTaskGraph graph = new FrameTaskGraph(pool);
+      FrameTaskGraph.Task failing = graph.add(() -> {
+        throw new IllegalStateException("boom");
+      });
+      graph.add(ran::incrementAndGet, failing);
+      graph.add(ran::incrementAndGet);
+
+      IllegalStateException e = assertThrows(IllegalStateException.class, graph::run);
+      assertEquals("boom", e.getMessage());
+      assertEquals(2, ran.get(), "Dependents of a failed task still run");
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
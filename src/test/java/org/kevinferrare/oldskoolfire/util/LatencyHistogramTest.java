@@ -0,0 +1,60 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the accuracy of {@link LatencyHistogram} percentiles and that concurrent recording loses nothing.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  void bucketsCoverTheirValues() {
+    for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(LatencyHistogram.highestValueOf(bucket) >= value, "Bucket of " + value);
+      if (bucket > 0) {
+        assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value, "Previous bucket of " + value);
+      }
+    }
+  }
+
+  @Test
+  void percentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+    assertEquals(1000, snapshot.count());
+    assertEquals(500_000, snapshot.p50(), 500_000 / 16.0);
+    assertEquals(990_000, snapshot.p99(), 990_000 / 16.0);
+    assertEquals(1_000_000, snapshot.max());
+    assertEquals(LatencyHistogram.Snapshot.EMPTY, histogram.snapshotAndReset(), "Snapshot must reset");
+  }
+
+  @Test
+  void concurrentRecordsAreAllCounted() throws InterruptedException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      long offset = t;
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          histogram.record(i + offset);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+    assertEquals(40_000, snapshot.count());
+    assertEquals(10_002, snapshot.max());
+  }
+}
@@ -0,0 +1,37 @@
+package org.kevinferrare.oldskoolfire.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RandomStreamsTest {
+
+  @Test
+  void masterSeedMakesNamedStreamsReproducible() {
+    RandomStreams streams = new RandomStreams(7L);
+    FastRandom a = streams.create("seed");
+    FastRandom other = streams.create("shape");
+    // Another engine's streams in between must not change this engine's
+    new RandomStreams(8L).create("seed");
+    FastRandom b = streams.create("seed");
+    boolean streamsDiffer = false;
+    for (int i = 0; i < 100; i++) {
+      long value = a.nextLong();
+      assertEquals(value, b.nextLong());
+      streamsDiffer |= value != other.nextLong();
+    }
+    assertTrue(streamsDiffer, "Different streams must not draw the same values");
+  }
+
+  @Test
+  void differentMasterSeedsDrawDifferentValues() {
+    FastRandom a = new RandomStreams(7L).create("seed");
+    FastRandom b = new RandomStreams(8L).create("seed");
+    boolean anyDifference = false;
+    for (int i = 0; i < 100; i++) {
+      anyDifference |= a.nextLong() != b.nextLong();
+    }
+    assertTrue(anyDifference);
+  }
+}